@@ -0,0 +1,110 @@
+package pers.clare.racejob.impl;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Claim and finish throughput of {@link JdbcRaceJobStoreImpl} on embedded H2 in MySQL mode.
+ * <p>
+ * Eight threads race for the firings of {@code jobCount} jobs, fewer jobs means more contention per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class JdbcRaceJobStoreBenchmark {
+    private static final String INSTANCE = "benchmark";
+
+    @Param({"1", "16", "1024"})
+    private int jobCount;
+
+    private HikariDataSource dataSource;
+
+    private JdbcRaceJobStoreImpl store;
+
+    private List<RaceJobKey> keys;
+
+    /**
+     * Firing times only move forward, so every claim attempt targets a new firing.
+     */
+    private final AtomicLong firing = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:race-job-" + jobCount + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(8);
+        dataSource = new HikariDataSource(config);
+        store = new JdbcRaceJobStoreImpl(dataSource);
+        store.afterPropertiesSet();
+        keys = new ArrayList<>(jobCount);
+        List<RaceJob> jobs = new ArrayList<>(jobCount);
+        for (int i = 0; i < jobCount; i++) {
+            RaceJob job = RaceJob.builder().group("benchmark").name("job-" + i).key("benchmark").cron("*/1 * * * * ?").build();
+            jobs.add(job);
+            keys.add(job.toKey());
+        }
+        store.upsert(INSTANCE, jobs, new long[jobCount]);
+        firing.set(System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    /**
+     * A RACE mode firing, the winner finishes the job.
+     */
+    @Benchmark
+    public void claimAndFinish(Blackhole blackhole) {
+        RaceJobKey key = keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+        long now = System.currentTimeMillis();
+        RaceJobClaim claim = store.tryClaim(INSTANCE, key, firing.incrementAndGet(), now, now - 1000);
+        if (claim == RaceJobClaim.WON) {
+            blackhole.consume(store.finish(INSTANCE, key, now));
+        }
+        blackhole.consume(claim);
+    }
+
+    /**
+     * A manual execution, competed on the start time.
+     */
+    @Benchmark
+    public void competeAndFinish(Blackhole blackhole) {
+        RaceJobKey key = keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+        long startTime = firing.incrementAndGet();
+        int count = store.compete(INSTANCE, key, startTime);
+        if (count > 0) {
+            blackhole.consume(store.finish(INSTANCE, key, startTime));
+        }
+        blackhole.consume(count);
+    }
+}
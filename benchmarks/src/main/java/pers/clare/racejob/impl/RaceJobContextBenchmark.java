@@ -0,0 +1,65 @@
+package pers.clare.racejob.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RaceJobContext#updateJob} churn, with reloads that keep or change the schedule.
+ * Every update gets a freshly read job, as a reload does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RaceJobContextBenchmark {
+    private static final String DATA = "{\"account\":\"A-0001\",\"limit\":100,\"tags\":[\"daily\",\"report\"]}";
+
+    private RaceJobContext context;
+
+    private int version;
+
+    @Setup
+    public void setup() {
+        context = new RaceJobContext();
+        context.updateJob(newJob("*/1 * * * * ?"));
+        context.getJob().getData().get("account");
+    }
+
+    @Benchmark
+    public RaceJobContext sameSchedule() {
+        context.updateJob(newJob("*/1 * * * * ?"));
+        return context;
+    }
+
+    @Benchmark
+    public RaceJobContext changedSchedule() {
+        context.updateJob(newJob((version & 1) == 0 ? "*/1 * * * * ?" : "*/2 * * * * ?"));
+        return context;
+    }
+
+    private RaceJob newJob(String cron) {
+        return RaceJob.builder()
+                .group("report")
+                .name("daily-settlement")
+                .key("report")
+                .version(++version)
+                .cron(cron)
+                .timezone("+08:00")
+                .data(new RaceJobData(DATA))
+                .build();
+    }
+}
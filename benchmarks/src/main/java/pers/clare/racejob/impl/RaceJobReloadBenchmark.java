@@ -0,0 +1,108 @@
+package pers.clare.racejob.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobChanges;
+import pers.clare.racejob.vo.RaceJobData;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cost of a full reload, the store returns prebuilt rows so only the scheduler's work is measured.
+ * The scheduler is never started, so no timers are created.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class RaceJobReloadBenchmark {
+    private static final String[] CRONS = {"*/1 * * * * ?", "0 */5 * * * ?", "0 0 2 * * ?", "0 15 10 ? * MON-FRI"};
+
+    @Param({"10000", "100000", "1000000"})
+    private int jobCount;
+
+    private RaceJobSchedulerImpl scheduler;
+
+    private volatile List<RaceJob> rows = Collections.emptyList();
+
+    private int generation;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setFullReloadInterval(Duration.ZERO);
+        scheduler = new RaceJobSchedulerImpl(properties, stubStore());
+        rows = newRows();
+        scheduler.reload(true);
+    }
+
+    /**
+     * Every reload reads new row objects, a quarter of them with a changed version.
+     */
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        generation++;
+        rows = newRows();
+    }
+
+    @Benchmark
+    public void fullReload() {
+        scheduler.reload(true);
+    }
+
+    private List<RaceJob> newRows() {
+        List<RaceJob> jobs = new ArrayList<>(jobCount);
+        for (int i = 0; i < jobCount; i++) {
+            jobs.add(RaceJob.builder()
+                    .group("group-" + (i % 100))
+                    .name("job-" + i)
+                    .key("handler-" + (i % 10))
+                    .version(1 + (i % 4 == 0 ? generation : 0))
+                    .cron(CRONS[i % CRONS.length])
+                    .timezone("+08:00")
+                    .data(new RaceJobData("{\"index\":" + i + "}"))
+                    .build());
+        }
+        return jobs;
+    }
+
+    /**
+     * Serves {@link #rows} to findAll, every other call returns an empty result.
+     */
+    private RaceJobStore stubStore() {
+        return (RaceJobStore) Proxy.newProxyInstance(RaceJobStore.class.getClassLoader(), new Class[]{RaceJobStore.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "findAll":
+                    return rows;
+                case "findChangedSince":
+                    return new RaceJobChanges(Collections.emptyList(), Collections.emptyList());
+                default:
+            }
+            Class<?> type = method.getReturnType();
+            if (type == int.class) return 0;
+            if (type == boolean.class) return false;
+            if (List.class.isAssignableFrom(type)) return Collections.emptyList();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package pers.clare.racejob.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next fire time of a realistic mix of cron expressions and time zones, parsed on every call as the scheduler does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JobUtilBenchmark {
+    private static final String[] CRONS = {
+            "*/1 * * * * ?",
+            "*/10 * * * * ?",
+            "0 */5 * * * ?",
+            "0 0 * * * ?",
+            "0 0 2 * * ?",
+            "0 15 10 ? * MON-FRI",
+            "0 0/30 8-18 ? * MON-FRI",
+            "0 0 0 1 * ?",
+            "0 0 12 L * ?",
+            "0 0 9 ? * MON#1",
+    };
+
+    private static final String[] TIMEZONES = {"", "+00:00", "+08:00", "Asia/Taipei", "America/New_York"};
+
+    private int index;
+
+    @Benchmark
+    public long getNextTime() {
+        int i = index++;
+        return JobUtil.getNextTime(CRONS[i % CRONS.length], TIMEZONES[i % TIMEZONES.length]);
+    }
+
+    @Benchmark
+    public long everySecond() {
+        return JobUtil.getNextTime(CRONS[0], TIMEZONES[0]);
+    }
+}
@@ -0,0 +1,74 @@
+package pers.clare.racejob.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.clare.racejob.constant.RaceEventType;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and parsing done by the scheduler's publishEvent and handleEvent, per event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RaceJobEventCodecBenchmark {
+
+    @Param({"1", "100"})
+    private int batchSize;
+
+    private RaceJobEvent event;
+
+    private String text;
+
+    private List<RaceJobEvent> events;
+
+    private byte[] frame;
+
+    @Setup
+    public void setup() {
+        long time = System.currentTimeMillis();
+        event = new RaceJobEvent(RaceEventType.COMPLETE, "report", "daily-settlement", time);
+        text = RaceJobEventCodec.encodeText(event);
+        events = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            events.add(new RaceJobEvent(RaceEventType.CHANGE, "report", "daily-settlement-" + i, time + i));
+        }
+        frame = RaceJobEventCodec.encode(events);
+    }
+
+    @Benchmark
+    public String encodeText() {
+        return RaceJobEventCodec.encodeText(event);
+    }
+
+    @Benchmark
+    public RaceJobEvent decodeText() {
+        return RaceJobEventCodec.decodeText(text);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return RaceJobEventCodec.encode(events);
+    }
+
+    @Benchmark
+    public List<RaceJobEvent> decodeBinary() {
+        return RaceJobEventCodec.decode(frame);
+    }
+}
@@ -1,17 +1,35 @@
 package pers.clare.racejob;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.Nullable;
+import pers.clare.racejob.impl.BatchingRaceJobEventChannel;
+import pers.clare.racejob.impl.BinaryRaceJobEventChannel;
+import pers.clare.racejob.impl.DefaultRaceJobExecutorFactory;
+import pers.clare.racejob.impl.FileRaceJobStoreImpl;
+import pers.clare.racejob.constant.RaceJobStoreType;
+import pers.clare.racejob.impl.JdbcRaceJobHistoryStoreImpl;
 import pers.clare.racejob.impl.JdbcRaceJobStoreImpl;
+import pers.clare.racejob.impl.MemoryRaceJobStoreImpl;
+import pers.clare.racejob.impl.MeteredRaceJobStore;
+import pers.clare.racejob.impl.MicrometerRaceJobMetrics;
+import pers.clare.racejob.impl.RaceJobEventChannel;
+import pers.clare.racejob.impl.RaceJobHistoryWriter;
 import pers.clare.racejob.impl.RaceJobSchedulerImpl;
+import pers.clare.racejob.impl.TextRaceJobEventChannel;
 
 import javax.sql.DataSource;
+import java.nio.file.Paths;
 
 @Configuration
 @ConditionalOnBean(RaceJobProperties.class)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 public class RaceJobAutoConfiguration {
 
     @Bean
@@ -20,15 +38,98 @@ public class RaceJobAutoConfiguration {
             RaceJobProperties jobProperties
             , RaceJobStore jobStore
             , @Nullable RaceJobEventBus jobEventService
+            , @Nullable RaceJobBinaryEventBus binaryEventBus
+            , RaceJobExecutorFactory executorFactory
+            , @Nullable RaceJobMetrics metrics
+            , @Nullable RaceJobHistory history
     ) {
-        return new RaceJobSchedulerImpl(jobProperties, jobStore, jobEventService);
+        RaceJobHistory jobHistory = history == null ? RaceJobHistory.NOOP : history;
+        if (metrics == null) {
+            return new RaceJobSchedulerImpl(jobProperties, jobStore, toEventChannel(jobProperties, jobEventService, binaryEventBus), executorFactory, RaceJobMetrics.NOOP, jobHistory);
+        }
+        return new RaceJobSchedulerImpl(jobProperties, new MeteredRaceJobStore(jobStore, metrics), toEventChannel(jobProperties, jobEventService, binaryEventBus), executorFactory, metrics, jobHistory);
+    }
+
+    private static RaceJobEventChannel toEventChannel(
+            RaceJobProperties jobProperties
+            , RaceJobEventBus eventBus
+            , RaceJobBinaryEventBus binaryEventBus
+    ) {
+        if (binaryEventBus != null) {
+            if (jobProperties.getEventBatchSize() > 1) {
+                return new BatchingRaceJobEventChannel(binaryEventBus, jobProperties.getEventBatchSize(), jobProperties.getEventFlushInterval());
+            }
+            return new BinaryRaceJobEventChannel(binaryEventBus);
+        }
+        return eventBus == null ? null : new TextRaceJobEventChannel(eventBus);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(RaceJobExecutorFactory.class)
+    public RaceJobExecutorFactory raceJobExecutorFactory() {
+        return new DefaultRaceJobExecutorFactory();
     }
 
     @Bean
     @ConditionalOnMissingBean(RaceJobStore.class)
     public RaceJobStore jobStore(
-            DataSource dataSource
+            RaceJobProperties jobProperties
+            , @Nullable DataSource dataSource
+            , @Nullable RaceJobMetrics metrics
     ) {
-        return new JdbcRaceJobStoreImpl(dataSource);
+        RaceJobMetrics storeMetrics = metrics == null ? RaceJobMetrics.NOOP : metrics;
+        if (jobProperties.getStore() == RaceJobStoreType.MEMORY) {
+            return new MemoryRaceJobStoreImpl(storeMetrics);
+        }
+        if (jobProperties.getStore() == RaceJobStoreType.FILE) {
+            return new FileRaceJobStoreImpl(Paths.get(jobProperties.getFilePath()), jobProperties.getFileSync()
+                    , jobProperties.getFileSyncInterval(), jobProperties.getFileCompactSize(), storeMetrics);
+        }
+        if (dataSource == null) {
+            throw new IllegalStateException("race-job.store is JDBC but no DataSource is defined");
+        }
+        return new JdbcRaceJobStoreImpl(dataSource, storeMetrics, jobProperties.getDialect());
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = RaceJobProperties.PREFIX, name = "history-enabled", havingValue = "true")
+    static class HistoryConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(RaceJobHistoryStore.class)
+        public RaceJobHistoryStore raceJobHistoryStore(RaceJobProperties jobProperties, @Nullable DataSource dataSource) {
+            if (dataSource == null) {
+                throw new IllegalStateException("race-job.history-enabled is true but no DataSource is defined");
+            }
+            return new JdbcRaceJobHistoryStoreImpl(dataSource, jobProperties.getDialect());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean(RaceJobHistory.class)
+        public RaceJobHistory raceJobHistory(
+                RaceJobProperties jobProperties
+                , RaceJobHistoryStore historyStore
+                , @Nullable RaceJobMetrics metrics
+        ) {
+            return new RaceJobHistoryWriter(jobProperties.getInstance(), historyStore
+                    , jobProperties.getHistoryBufferSize(), jobProperties.getHistoryBatchSize()
+                    , jobProperties.getHistoryFlushInterval(), jobProperties.getHistoryRetention(), jobProperties.getHistoryPruneInterval()
+                    , metrics == null ? RaceJobMetrics.NOOP : metrics);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnBean(MeterRegistry.class)
+        @ConditionalOnMissingBean(RaceJobMetrics.class)
+        public RaceJobMetrics raceJobMetrics(
+                MeterRegistry meterRegistry
+                , RaceJobProperties jobProperties
+        ) {
+            return new MicrometerRaceJobMetrics(meterRegistry, jobProperties.getInstance());
+        }
     }
 }
@@ -0,0 +1,16 @@
+package pers.clare.racejob;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport for binary event frames, see {@link pers.clare.racejob.util.RaceJobEventCodec}.
+ * Takes precedence over {@link RaceJobEventBus} when both are present.
+ */
+@SuppressWarnings("UnusedReturnValue")
+public interface RaceJobBinaryEventBus {
+
+    void send(byte[] body);
+
+    void listen(Consumer<byte[]> listener);
+
+}
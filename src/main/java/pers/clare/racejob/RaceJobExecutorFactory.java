@@ -0,0 +1,14 @@
+package pers.clare.racejob;
+
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executor that runs job handlers. The scheduler owns the executor and shuts it down on destroy.
+ */
+public interface RaceJobExecutorFactory {
+
+    @NonNull
+    ExecutorService create(@NonNull RaceJobProperties properties);
+}
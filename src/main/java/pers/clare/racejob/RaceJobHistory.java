@@ -0,0 +1,13 @@
+package pers.clare.racejob;
+
+import pers.clare.racejob.vo.RaceJobExecution;
+
+/**
+ * Receives every finished execution. Called on the execution path, implementations must not block.
+ */
+public interface RaceJobHistory {
+    RaceJobHistory NOOP = execution -> {
+    };
+
+    void record(RaceJobExecution execution);
+}
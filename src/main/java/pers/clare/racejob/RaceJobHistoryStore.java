@@ -0,0 +1,26 @@
+package pers.clare.racejob;
+
+import org.springframework.lang.NonNull;
+import pers.clare.racejob.vo.RaceJobExecution;
+import pers.clare.racejob.vo.RaceJobKey;
+
+import java.util.List;
+
+/**
+ * Execution history, written in batches off the execution path.
+ */
+@SuppressWarnings("UnusedReturnValue")
+public interface RaceJobHistoryStore {
+    void insert(@NonNull String instance, @NonNull List<RaceJobExecution> executions);
+
+    /**
+     * Latest executions of the job, newest first.
+     */
+    @NonNull
+    List<RaceJobExecution> find(@NonNull String instance, @NonNull RaceJobKey jobKey, int limit);
+
+    /**
+     * Delete at most limit executions started before the given time.
+     */
+    int deleteBefore(@NonNull String instance, long startTime, int limit);
+}
@@ -0,0 +1,83 @@
+package pers.clare.racejob;
+
+import pers.clare.racejob.constant.RaceJobClaim;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Instrumentation hooks of the scheduler and the store, every hook does nothing by default.
+ * Called on the execution path, implementations must not block.
+ */
+public interface RaceJobMetrics {
+    RaceJobMetrics NOOP = new RaceJobMetrics() {
+    };
+
+    /**
+     * Called once when the scheduler starts.
+     *
+     * @param executingCount jobs executing on this node
+     * @param timerSize      schedules waiting in the timer
+     */
+    default void bindScheduler(IntSupplier executingCount, IntSupplier timerSize) {
+    }
+
+    /**
+     * @param lag actual start minus the scheduled time, in milliseconds
+     */
+    default void recordFireLag(long lag) {
+    }
+
+    /**
+     * Outcome of competing for a command.
+     */
+    default void recordCompete(boolean won) {
+    }
+
+    /**
+     * Outcome of claiming a firing, by {@link pers.clare.racejob.RaceJobStore#tryClaim} or for each job of a claimDue.
+     */
+    default void recordClaim(RaceJobClaim claim) {
+        recordCompete(claim == RaceJobClaim.WON || claim == RaceJobClaim.STALE);
+        if (claim == RaceJobClaim.STALE) recordStaleTakeover(1);
+    }
+
+    /**
+     * Jobs claimed from owners that stopped updating their active time.
+     *
+     * @deprecated stale takeovers are reported through {@link #recordClaim}
+     */
+    @Deprecated
+    default void recordStaleTakeover(int count) {
+    }
+
+    /**
+     * Executing jobs released because their node stopped heartbeating.
+     */
+    default void recordOrphansReleased(int count) {
+    }
+
+    /**
+     * @param duration handler duration in nanoseconds
+     */
+    default void recordExecution(String group, String key, long duration, boolean success) {
+    }
+
+    /**
+     * @param duration reload duration in nanoseconds
+     * @param rows     jobs and tombstones read
+     */
+    default void recordReload(boolean full, long duration, int rows) {
+    }
+
+    /**
+     * @param duration store call duration in nanoseconds
+     */
+    default void recordStatement(String statement, long duration, boolean success) {
+    }
+
+    /**
+     * Execution history records dropped because the buffer was full or the write failed.
+     */
+    default void recordHistoryDropped(long count) {
+    }
+}
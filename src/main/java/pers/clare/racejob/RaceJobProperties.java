@@ -4,6 +4,12 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import pers.clare.racejob.constant.RaceJobDialect;
+import pers.clare.racejob.constant.RaceJobExecutorType;
+import pers.clare.racejob.constant.RaceJobFileSync;
+import pers.clare.racejob.constant.RaceJobMode;
+import pers.clare.racejob.constant.RaceJobStoreType;
+import pers.clare.racejob.constant.RaceJobTimerType;
 
 import java.time.Duration;
 
@@ -16,25 +22,155 @@ public class RaceJobProperties {
 
     private String instance = "raceJobScheduler";
 
+    /**
+     * Store of jobs and cluster state, used when no RaceJobStore bean is defined. default JDBC.
+     */
+    private RaceJobStoreType store = RaceJobStoreType.JDBC;
+
+    /**
+     * SQL dialect of the JDBC store and history, detected from the DataSource when empty.
+     */
+    private RaceJobDialect dialect;
+
+    /**
+     * Directory of the FILE store log. default race-job.
+     */
+    private String filePath = "race-job";
+
+    /**
+     * When the FILE store flushes its log to disk. default INTERVAL.
+     */
+    private RaceJobFileSync fileSync = RaceJobFileSync.INTERVAL;
+
+    /**
+     * Flush interval of the INTERVAL sync, also how often the FILE store checks for compaction. default PT1S.
+     */
+    private Duration fileSyncInterval = Duration.parse("PT1S");
+
+    /**
+     * The FILE store log is compacted into a snapshot once it grows past this size in bytes
+     * and twice the size of the last snapshot. default 64MB.
+     */
+    private Long fileCompactSize = 64L * 1024 * 1024;
+
+    /**
+     * Record every execution into race_job_execution. default false.
+     */
+    private Boolean historyEnabled = false;
+
+    /**
+     * Executions buffered for the history writer, rounded up to a power of two.
+     * Executions over it are dropped. default 8192.
+     */
+    private Integer historyBufferSize = 8192;
+
+    /**
+     * Executions per history insert batch. default 500.
+     */
+    private Integer historyBatchSize = 500;
+
+    /**
+     * Interval of flushing buffered executions. default PT1S.
+     */
+    private Duration historyFlushInterval = Duration.parse("PT1S");
+
+    /**
+     * Executions started before this are pruned. default P7D.
+     */
+    private Duration historyRetention = Duration.parse("P7D");
+
+    /**
+     * Interval of pruning expired executions. default PT1H.
+     */
+    private Duration historyPruneInterval = Duration.parse("PT1H");
+
+    /**
+     * RACE keeps a timer per job, POLL claims due jobs in batches,
+     * PARTITION keeps timers only for the jobs this node owns,
+     * DISPATCH lets one leased node claim due jobs and send them to nodes with capacity. default RACE.
+     */
+    private RaceJobMode mode = RaceJobMode.RACE;
+
+    /**
+     * POLL and DISPATCH mode interval of claiming due jobs.
+     */
+    private Duration pollInterval = Duration.parse("PT1S");
+
+    /**
+     * POLL and DISPATCH mode maximum jobs claimed by one query.
+     */
+    private Integer pollBatchSize = 100;
+
+    /**
+     * Unique id of this node, a random UUID if empty.
+     */
+    private String nodeId;
+
+    /**
+     * Interval of the node heartbeat, membership refresh and release of orphaned jobs.
+     */
+    private Duration nodeHeartbeatInterval = Duration.parse("PT5S");
+
+    /**
+     * A node whose heartbeat is older than this leaves the hash ring and its jobs move to other nodes,
+     * the jobs it was running are released for other nodes to claim.
+     */
+    private Duration nodeTimeout = Duration.parse("PT15S");
+
+    /**
+     * Points per node on the hash ring, more points spread jobs more evenly.
+     */
+    private Integer virtualNodes = 128;
+
+    /**
+     * DISPATCH mode lifetime of the dispatcher lease, renewed every third of it.
+     * Other nodes take over once the holder stops renewing.
+     */
+    private Duration leaseDuration = Duration.parse("PT10S");
+
+    /**
+     * Platform threads that run job handlers.
+     */
     private Integer threadCount = 1;
 
+    /**
+     * PLATFORM runs handlers on thread-count threads, VIRTUAL runs each handler on its own virtual thread (Java 21+).
+     */
+    private RaceJobExecutorType executorType = RaceJobExecutorType.PLATFORM;
+
+    /**
+     * Firings waiting for a platform thread, firings beyond it are skipped on this node.
+     */
+    private Integer queueCapacity = 10000;
+
+    /**
+     * Threads that run timers, reloads and heartbeats.
+     */
+    private Integer controlThreadCount = 1;
+
     /**
      * Setting it to false will cause the scheduler to not execute any tasks. default true.
      */
     private Boolean executionEnabled = true;
 
     /**
-     * Reload all job intervals.
+     * Reload changed job intervals.
      */
     private Duration reloadInterval = Duration.parse("PT60S");
 
+    /**
+     * Reload all job intervals, between them only changed jobs are reloaded.
+     */
+    private Duration fullReloadInterval = Duration.parse("PT10M");
+
     /**
      * The time is to check that the job is actually being executed.
      */
     private Long checkWaitTime = 1000L;
 
     /**
-     * The running job periodically updates its last active timestamp.
+     * The running job periodically updates its last active timestamp in DISPATCH mode,
+     * where a dispatched claim is taken over once it is not updated for 1.5 times this interval.
      */
     private Duration updateActiveInterval = Duration.parse("PT60S");
 
@@ -42,4 +178,71 @@ public class RaceJobProperties {
      *  If true, aborts the task on exception; if false, exceptions are caught and execution continues.
      */
     private Boolean abortOnError = true;
+
+    /**
+     * On shutdown, in-flight handlers may finish within this time before they are interrupted and their claims released,
+     * 0 interrupts them at once. default PT30S.
+     */
+    private Duration drainTimeout = Duration.parse("PT30S");
+
+    /**
+     * Lower bound of the adaptive concurrency limit.
+     */
+    private Integer minConcurrency = 1;
+
+    /**
+     * Upper bound of the adaptive concurrency limit. Jobs over the limit are left to other nodes.
+     */
+    private Integer maxConcurrency = 100;
+
+    /**
+     * System CPU load (0~1) above which the concurrency limit backs off.
+     */
+    private Double cpuThreshold = 0.8;
+
+    /**
+     * A manual execution declined by the concurrency limit waits for a free permit at most this long,
+     * a declined scheduled firing waits until the next firing time.
+     */
+    private Duration deferTimeout = Duration.parse("PT60S");
+
+    /**
+     * Interval of sampling the system CPU load.
+     */
+    private Duration cpuSampleInterval = Duration.parse("PT1S");
+
+    /**
+     * Timer engine that holds job schedules. default EXECUTOR.
+     */
+    private RaceJobTimerType timer = RaceJobTimerType.EXECUTOR;
+
+    /**
+     * Precision of the WHEEL timer.
+     */
+    private Duration timerTickDuration = Duration.parse("PT0.01S");
+
+    /**
+     * Buckets per level of the WHEEL timer, rounded up to a power of two.
+     */
+    private Integer timerWheelSize = 512;
+
+    /**
+     * Events per frame sent through {@link RaceJobBinaryEventBus}, 1 disables batching.
+     */
+    private Integer eventBatchSize = 100;
+
+    /**
+     * Max delay of a buffered event before its frame is sent.
+     */
+    private Duration eventFlushInterval = Duration.parse("PT0.01S");
+
+    /**
+     * Received CHANGE events within this window are reloaded together, zero reloads each event immediately.
+     */
+    private Duration changeCoalesceWindow = Duration.parse("PT0.1S");
+
+    /**
+     * Coalesced changes above this count trigger a full reload instead of a batched find.
+     */
+    private Integer changeReloadThreshold = 1000;
 }
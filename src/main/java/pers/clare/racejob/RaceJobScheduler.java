@@ -6,6 +6,7 @@ import pers.clare.racejob.function.RaceJobHandler;
 import pers.clare.racejob.vo.RaceJob;
 import pers.clare.racejob.vo.RaceJobKey;
 
+import java.util.Collection;
 import java.util.List;
 
 @SuppressWarnings("unused")
@@ -26,8 +27,18 @@ public interface RaceJobScheduler {
      */
     void add(@NonNull RaceJob job);
 
+    /**
+     * create or modify jobs in batches, notifying other nodes once
+     */
+    void addAll(@NonNull Collection<RaceJob> jobs);
+
     void remove(@NonNull RaceJobKey jobKey);
 
+    /**
+     * remove jobs in batches, notifying other nodes once
+     */
+    void removeAll(@NonNull Collection<RaceJobKey> jobKeys);
+
     /**
      * start job
      */
@@ -38,6 +49,26 @@ public interface RaceJobScheduler {
      */
     void disable(@NonNull RaceJobKey jobKey);
 
+    /**
+     * start all jobs of the group
+     */
+    void enableGroup(@NonNull String group);
+
+    /**
+     * stop all jobs of the group
+     */
+    void disableGroup(@NonNull String group);
+
+    /**
+     * remove all jobs of the group
+     */
+    void removeGroup(@NonNull String group);
+
+    /**
+     * execute all jobs of the group
+     */
+    void executeGroup(@NonNull String group);
+
     /**
      * add job event executor
      */
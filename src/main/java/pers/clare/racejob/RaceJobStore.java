@@ -1,11 +1,17 @@
 package pers.clare.racejob;
 
 import org.springframework.lang.NonNull;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.exception.RaceJobException;
 import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobChanges;
 import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobNode;
 import pers.clare.racejob.vo.RaceJobStatus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 
 @SuppressWarnings("UnusedReturnValue")
 public interface RaceJobStore {
@@ -17,18 +23,98 @@ public interface RaceJobStore {
 
     RaceJob find(@NonNull String instance, @NonNull RaceJobKey jobKey);
 
+    /**
+     * Find many jobs in as few round trips as possible, keys that do not exist are absent from the result.
+     */
+    @NonNull
+    List<RaceJob> find(@NonNull String instance, @NonNull Collection<RaceJobKey> jobKeys);
+
+    /**
+     * Jobs created, modified or deleted with a revision greater than the given one.
+     * The revision is the modification timestamp.
+     */
+    @NonNull
+    RaceJobChanges findChangedSince(@NonNull String instance, long revision);
+
+    /**
+     * Remove deletion records whose revision is less than the given one.
+     */
+    int deleteTombstones(@NonNull String instance, long revision);
+
     void insert(@NonNull String instance, @NonNull RaceJob job, @NonNull long nextTime);
 
     void update(@NonNull String instance, @NonNull RaceJob job, @NonNull long nextTime);
 
+    /**
+     * Insert the job, or update it when its version is greater than the stored one.
+     * Stores with a native upsert do it in one statement.
+     *
+     * @return the stored job, null if it was not saved
+     */
+    default RaceJob save(@NonNull String instance, @NonNull RaceJob job, long nextTime) {
+        return session(() -> {
+            RaceJob oldJob = find(instance, job.toKey());
+            if (oldJob == null) {
+                try {
+                    insert(instance, job, nextTime);
+                } catch (RaceJobException e) {
+                    try {
+                        // retry update
+                        update(instance, job, nextTime);
+                    } catch (RaceJobException ex) {
+                        throw e;
+                    }
+                }
+            } else if (job.getVersion() > oldJob.getVersion()) {
+                update(instance, job, nextTime);
+            } else {
+                return null;
+            }
+            return find(instance, job.toKey());
+        });
+    }
+
+    /**
+     * Insert missing jobs and update jobs whose version is greater than the stored one, in batches.
+     *
+     * @param nextTimes next execution time of each job, by index
+     * @return affected rows
+     */
+    int upsert(@NonNull String instance, @NonNull List<RaceJob> jobs, @NonNull long[] nextTimes);
+
     void updateActive(@NonNull String instance, @NonNull RaceJob job, @NonNull long activeTime);
 
+    /**
+     * Update the active time of all jobs in one round trip.
+     */
+    int updateActive(@NonNull String instance, @NonNull Collection<RaceJobKey> jobKeys, long activeTime);
+
     void delete(@NonNull String instance, @NonNull RaceJobKey jobKey);
 
+    /**
+     * Delete jobs and record their tombstones in batches.
+     */
+    int delete(@NonNull String instance, @NonNull Collection<RaceJobKey> jobKeys);
+
     void enable(@NonNull String instance, @NonNull RaceJobKey jobKey);
 
     void disable(@NonNull String instance, @NonNull RaceJobKey jobKey);
 
+    /**
+     * Enable all jobs of the group with one statement.
+     */
+    int enableGroup(@NonNull String instance, @NonNull String group);
+
+    /**
+     * Disable all jobs of the group with one statement.
+     */
+    int disableGroup(@NonNull String instance, @NonNull String group);
+
+    /**
+     * Delete all jobs of the group and record their tombstones, set-based in one transaction.
+     */
+    int deleteGroup(@NonNull String instance, @NonNull String group);
+
     RaceJobStatus getStatus(@NonNull String instance, @NonNull RaceJobKey jobKey);
 
     @NonNull
@@ -38,6 +124,59 @@ public interface RaceJobStore {
     int compete(@NonNull String instance, @NonNull RaceJobKey jobKey
             , @NonNull long nextTime, @NonNull long startTime);
 
+    /**
+     * Take over the job if its owner has not updated the active time since {@code staleBefore},
+     * and claim the firing in a single conditional update.
+     *
+     * @return {@link RaceJobClaim#WON} or {@link RaceJobClaim#STALE} if claimed from a waiting or a stale job,
+     * {@link RaceJobClaim#DISABLED} if the job is disabled or missing, {@link RaceJobClaim#LOST} if the firing
+     * was already claimed, {@link RaceJobClaim#HELD} if the job still runs for an earlier firing
+     */
+    @NonNull
+    RaceJobClaim tryClaim(@NonNull String instance, @NonNull RaceJobKey jobKey
+            , long nextTime, long startTime, long staleBefore);
+
+    /**
+     * Claim up to {@code limit} enabled cron jobs whose next time is not after {@code now},
+     * and move their next time to the following firing.
+     *
+     * @param keys handler keys this node can execute
+     * @return claimed jobs
+     */
+    @NonNull
+    List<RaceJob> claimDue(@NonNull String instance, @NonNull Collection<String> keys
+            , long now, long staleBefore, int limit);
+
+    /**
+     * {@link #tryClaim(String, RaceJobKey, long, long, long)} recording the node that runs the job.
+     * A job claimed by a node is only taken over after {@link #releaseOrphans} released it,
+     * {@code staleBefore} applies to jobs claimed without a node.
+     */
+    @NonNull
+    default RaceJobClaim tryClaim(@NonNull String instance, @NonNull RaceJobKey jobKey
+            , long nextTime, long startTime, long staleBefore, @NonNull String owner) {
+        return tryClaim(instance, jobKey, nextTime, startTime, staleBefore);
+    }
+
+    /**
+     * {@link #claimDue(String, Collection, long, long, int)} recording the node that runs the jobs.
+     */
+    @NonNull
+    default List<RaceJob> claimDue(@NonNull String instance, @NonNull Collection<String> keys
+            , long now, long staleBefore, int limit, @NonNull String owner) {
+        return claimDue(instance, keys, now, staleBefore, limit);
+    }
+
+    /**
+     * Release every executing job claimed by a node whose heartbeat is earlier than the given time, in one statement.
+     * Stores that do not record the claiming node release nothing.
+     *
+     * @return released jobs
+     */
+    default int releaseOrphans(@NonNull String instance, long aliveAfter) {
+        return 0;
+    }
+
     /**
      * Used to execute instructions.
      */
@@ -49,4 +188,52 @@ public interface RaceJobStore {
     @NonNull
     int finish(@NonNull String instance, @NonNull RaceJobKey jobKey, @NonNull long endTime);
 
+    /**
+     * {@link #finish(String, RaceJobKey, long)} only if the job is claimed by the owner or by no node,
+     * so a node whose jobs were released as orphans does not reset the claim of the node that took them over.
+     *
+     * @return 0 if another node holds the claim
+     */
+    @NonNull
+    default int finish(@NonNull String instance, @NonNull RaceJobKey jobKey, long endTime, @NonNull String owner) {
+        return finish(instance, jobKey, endTime);
+    }
+
+    /**
+     * Register the node or refresh its heartbeat and handler keys.
+     */
+    void heartbeat(@NonNull String instance, @NonNull RaceJobNode node);
+
+    /**
+     * Nodes whose heartbeat is not earlier than the given time.
+     */
+    @NonNull
+    List<RaceJobNode> findNodes(@NonNull String instance, long aliveAfter);
+
+    int deleteNode(@NonNull String instance, @NonNull String nodeId);
+
+    /**
+     * Delete the nodes whose heartbeat is earlier than the given time.
+     *
+     * @return deleted nodes
+     */
+    default int deleteNodes(@NonNull String instance, long heartbeatBefore) {
+        return 0;
+    }
+
+    /**
+     * Take or renew the named lease if it is free, expired or already held by the owner.
+     *
+     * @return whether the owner holds the lease until the expire time
+     */
+    boolean acquireLease(@NonNull String instance, @NonNull String name, @NonNull String owner, long now, long expireTime);
+
+    int releaseLease(@NonNull String instance, @NonNull String name, @NonNull String owner);
+
+    /**
+     * Run related store calls together, a store that holds connections runs them on one connection.
+     */
+    default <T> T session(@NonNull Supplier<T> operations) {
+        return operations.get();
+    }
 }
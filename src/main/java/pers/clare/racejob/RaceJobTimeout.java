@@ -0,0 +1,11 @@
+package pers.clare.racejob;
+
+/**
+ * Handle of a schedule created by {@link RaceJobTimer}.
+ */
+public interface RaceJobTimeout {
+
+    boolean isCancelled();
+
+    boolean cancel();
+}
@@ -0,0 +1,21 @@
+package pers.clare.racejob;
+
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer engine that holds job schedules and fires them when they are due.
+ */
+public interface RaceJobTimer {
+
+    @NonNull
+    RaceJobTimeout schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit);
+
+    /**
+     * Number of schedules waiting to fire.
+     */
+    int size();
+
+    void stop();
+}
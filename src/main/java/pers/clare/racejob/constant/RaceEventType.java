@@ -7,4 +7,20 @@ public class RaceEventType {
     public static final int CHANGE = 1;
     public static final int COMPLETE = 2;
     public static final int EXECUTE = 3;
+    /**
+     * Many jobs changed at once, reload changed jobs.
+     */
+    public static final int RELOAD = 4;
+    public static final int ENABLE_GROUP = 5;
+    public static final int DISABLE_GROUP = 6;
+    public static final int REMOVE_GROUP = 7;
+    public static final int EXECUTE_GROUP = 8;
+    /**
+     * The dispatcher claimed the job for the target node.
+     */
+    public static final int DISPATCH = 9;
+    /**
+     * A draining node gave back the claim of the job, peers may claim a firing it missed.
+     */
+    public static final int RELEASE = 10;
 }
@@ -0,0 +1,27 @@
+package pers.clare.racejob.constant;
+
+/**
+ * Result of {@link pers.clare.racejob.RaceJobStore#tryClaim}.
+ */
+public enum RaceJobClaim {
+    /**
+     * This node claimed the job.
+     */
+    WON,
+    /**
+     * This node claimed the job from an owner that stopped updating its active time.
+     */
+    STALE,
+    /**
+     * Another node claimed this firing first.
+     */
+    LOST,
+    /**
+     * The job is executing and its owner is still active.
+     */
+    HELD,
+    /**
+     * The job is disabled or no longer exists.
+     */
+    DISABLED
+}
@@ -0,0 +1,16 @@
+package pers.clare.racejob.constant;
+
+public enum RaceJobDialect {
+    /**
+     * MySQL and MariaDB, upsert with ON DUPLICATE KEY UPDATE, a row alias instead of VALUES() from MySQL 8.0.19, SKIP LOCKED from MySQL 8.
+     */
+    MYSQL,
+    /**
+     * PostgreSQL, upsert with ON CONFLICT DO UPDATE, saves and claims return the rows with RETURNING.
+     */
+    POSTGRESQL,
+    /**
+     * H2 in any compatibility mode, upsert with MERGE USING.
+     */
+    H2
+}
@@ -0,0 +1,12 @@
+package pers.clare.racejob.constant;
+
+public enum RaceJobExecutorType {
+    /**
+     * Bounded pool of thread-count platform threads.
+     */
+    PLATFORM,
+    /**
+     * One virtual thread per job, requires Java 21+. Falls back to PLATFORM on older runtimes.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,16 @@
+package pers.clare.racejob.constant;
+
+public enum RaceJobFileSync {
+    /**
+     * Leave flushing to the OS, records survive a process crash but not an OS crash.
+     */
+    NONE,
+    /**
+     * Flush every sync interval, an OS crash loses at most one interval.
+     */
+    INTERVAL,
+    /**
+     * Flush after every record.
+     */
+    ALWAYS
+}
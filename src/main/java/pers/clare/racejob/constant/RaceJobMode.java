@@ -0,0 +1,20 @@
+package pers.clare.racejob.constant;
+
+public enum RaceJobMode {
+    /**
+     * Every node keeps a timer per job and races on every firing.
+     */
+    RACE,
+    /**
+     * Every node periodically claims a batch of due jobs.
+     */
+    POLL,
+    /**
+     * Jobs are assigned to live nodes by consistent hashing, only the owner keeps a timer and races.
+     */
+    PARTITION,
+    /**
+     * The node holding the dispatcher lease claims due jobs and hands them to nodes by their capacity.
+     */
+    DISPATCH
+}
@@ -0,0 +1,16 @@
+package pers.clare.racejob.constant;
+
+public enum RaceJobStoreType {
+    /**
+     * Relational database through the application DataSource, shared by all nodes.
+     */
+    JDBC,
+    /**
+     * Concurrent maps in this JVM, for a single node or embedded use. Nothing survives a restart.
+     */
+    MEMORY,
+    /**
+     * Memory store persisted in an append-only log on the local disk, for a single node without a database.
+     */
+    FILE
+}
@@ -0,0 +1,12 @@
+package pers.clare.racejob.constant;
+
+public enum RaceJobTimerType {
+    /**
+     * One ScheduledExecutorService task per schedule.
+     */
+    EXECUTOR,
+    /**
+     * Hierarchical timing wheel, O(1) insert and cancel.
+     */
+    WHEEL
+}
@@ -0,0 +1,83 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import pers.clare.racejob.RaceJobBinaryEventBus;
+import pers.clare.racejob.util.RaceJobEventCodec;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers events and sends them as one frame when the batch is full or the flush interval elapses,
+ * trading up to one interval of latency for far fewer messages during bursts.
+ */
+@Log4j2
+public class BatchingRaceJobEventChannel extends BinaryRaceJobEventChannel {
+    private final int batchSize;
+
+    private final ScheduledExecutorService flushExecutor;
+
+    private List<RaceJobEvent> buffer;
+
+    /**
+     * @param batchSize     events per frame
+     * @param flushInterval max delay of a buffered event
+     */
+    public BatchingRaceJobEventChannel(@NonNull RaceJobBinaryEventBus eventBus, int batchSize, @NonNull Duration flushInterval) {
+        super(eventBus);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        this.batchSize = batchSize;
+        this.buffer = new ArrayList<>(batchSize);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("race-job-event-");
+        threadFactory.setDaemon(true);
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = Math.max(1, flushInterval.toMillis());
+        this.flushExecutor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void publish(RaceJobEvent event) {
+        List<RaceJobEvent> events = null;
+        synchronized (this) {
+            buffer.add(event);
+            if (buffer.size() >= batchSize) {
+                events = buffer;
+                buffer = new ArrayList<>(batchSize);
+            }
+        }
+        if (events != null) send(events);
+    }
+
+    @Override
+    public void close() {
+        flushExecutor.shutdownNow();
+        flush();
+    }
+
+    void flush() {
+        List<RaceJobEvent> events;
+        synchronized (this) {
+            if (buffer.isEmpty()) return;
+            events = buffer;
+            buffer = new ArrayList<>(batchSize);
+        }
+        send(events);
+    }
+
+    private void send(List<RaceJobEvent> events) {
+        try {
+            eventBus.send(RaceJobEventCodec.encode(events));
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.lang.NonNull;
+import pers.clare.racejob.RaceJobBinaryEventBus;
+import pers.clare.racejob.util.RaceJobEventCodec;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * One binary frame per event, a received frame may carry many events.
+ */
+@Log4j2
+public class BinaryRaceJobEventChannel implements RaceJobEventChannel {
+    protected final RaceJobBinaryEventBus eventBus;
+
+    public BinaryRaceJobEventChannel(@NonNull RaceJobBinaryEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    @Override
+    public void publish(RaceJobEvent event) {
+        eventBus.send(RaceJobEventCodec.encode(event));
+    }
+
+    @Override
+    public void listen(Consumer<RaceJobEvent> listener) {
+        eventBus.listen(body -> {
+            List<RaceJobEvent> events;
+            try {
+                events = RaceJobEventCodec.decode(body);
+            } catch (RuntimeException e) {
+                log.warn("Discard event frame: {}", e.getMessage());
+                return;
+            }
+            for (RaceJobEvent event : events) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        });
+    }
+}
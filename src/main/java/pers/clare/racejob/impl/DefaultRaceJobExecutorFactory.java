@@ -0,0 +1,53 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import pers.clare.racejob.RaceJobExecutorFactory;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.constant.RaceJobExecutorType;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Log4j2
+public class DefaultRaceJobExecutorFactory implements RaceJobExecutorFactory {
+    /**
+     * Class declaring the static {@code newVirtualThreadPerTaskExecutor()}.
+     */
+    private final Class<?> executors;
+
+    public DefaultRaceJobExecutorFactory() {
+        this(Executors.class);
+    }
+
+    DefaultRaceJobExecutorFactory(Class<?> executors) {
+        this.executors = executors;
+    }
+
+    @Override
+    public ExecutorService create(RaceJobProperties properties) {
+        if (properties.getExecutorType() == RaceJobExecutorType.VIRTUAL) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) return executor;
+            log.warn("Virtual threads require Java 21+, use platform threads instead.");
+        }
+        return new ThreadPoolExecutor(properties.getThreadCount(), properties.getThreadCount()
+                , 0L, TimeUnit.MILLISECONDS
+                , new LinkedBlockingQueue<>(properties.getQueueCapacity())
+                , new CustomizableThreadFactory("race-job-"));
+    }
+
+    /**
+     * Looked up reflectively so that the library still targets Java 11.
+     */
+    private ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) executors.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pers.clare.racejob.impl;
+
+import org.springframework.lang.NonNull;
+import pers.clare.racejob.RaceJobTimeout;
+import pers.clare.racejob.RaceJobTimer;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules every job as its own {@link ScheduledExecutorService} task.
+ */
+public class ExecutorRaceJobTimer implements RaceJobTimer {
+
+    private final ScheduledExecutorService executor;
+
+    public ExecutorRaceJobTimer(@NonNull ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public RaceJobTimeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return new FutureTimeout(executor.schedule(task, delay, unit));
+    }
+
+    @Override
+    public int size() {
+        if (executor instanceof ScheduledThreadPoolExecutor) {
+            return ((ScheduledThreadPoolExecutor) executor).getQueue().size();
+        }
+        return 0;
+    }
+
+    @Override
+    public void stop() {
+        // The executor is owned by the caller.
+    }
+
+    private static class FutureTimeout implements RaceJobTimeout {
+        private final ScheduledFuture<?> future;
+
+        FutureTimeout(ScheduledFuture<?> future) {
+            this.future = future;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public boolean cancel() {
+            return future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,773 @@
+package pers.clare.racejob.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.constant.RaceJobFileSync;
+import pers.clare.racejob.exception.RaceJobException;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobData;
+import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Single node store that persists the state of {@link MemoryRaceJobStoreImpl} in a memory-mapped append-only log.
+ * <p>
+ * Every change is applied under one write lock and appended as a redo record, so replaying the log in order on startup
+ * rebuilds the same state. Runtime transitions such as compete, claim and finish are fixed-size records keyed by a job id
+ * interned in the log, definitions and group changes are variable-size. Reads do not lock.
+ * <p>
+ * A record is {@code [length][type, payload][crc32]}, replay stops at the first incomplete record.
+ * Once the log grows past the compaction size, the whole state is written as a snapshot into the next generation of the log,
+ * which is valid only after its header is written, and the previous generation is deleted.
+ * <p>
+ * Records live in the page cache as soon as they are written and survive a process crash,
+ * {@link RaceJobFileSync} decides when they are flushed to survive an OS crash.
+ * Nodes, leases and the node that claimed a job are liveness state and are not persisted.
+ */
+@Log4j2
+public class FileRaceJobStoreImpl extends MemoryRaceJobStoreImpl implements InitializingBean, DisposableBean {
+    private static final int MAGIC = 0x524A4C31;
+
+    private static final int HEADER_SIZE = 4;
+
+    private static final int MAP_SIZE = 16 * 1024 * 1024;
+
+    private static final Pattern LOG_NAME = Pattern.compile("race-job-(\\d+)\\.log");
+
+    private static final byte KEY = 1;
+    private static final byte INSERT = 2;
+    private static final byte UPDATE = 3;
+    private static final byte UPSERT = 4;
+    private static final byte ENABLE_GROUP = 5;
+    private static final byte DISABLE_GROUP = 6;
+    private static final byte DELETE_GROUP = 7;
+    private static final byte DELETE_TOMBSTONES = 8;
+    private static final byte ROW = 9;
+    private static final byte TOMBSTONE = 10;
+
+    /*
+     * Fixed-size records: type, job id and three longs.
+     */
+    private static final byte UPDATE_ACTIVE = 20;
+    private static final byte DELETE = 21;
+    private static final byte ENABLE = 22;
+    private static final byte DISABLE = 23;
+    private static final byte RELEASE = 24;
+    private static final byte COMPETE = 25;
+    private static final byte CLAIM = 26;
+    private static final byte COMMAND = 27;
+    private static final byte FINISH = 28;
+
+    private static final ObjectMapper om = new ObjectMapper();
+
+    private final Path directory;
+
+    private final RaceJobFileSync sync;
+
+    private final Duration syncInterval;
+
+    private final long compactSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final CRC32 crc = new CRC32();
+
+    /*
+     * Job ids of the current generation, by instance and key, and by id.
+     */
+    private final Map<String, Map<RaceJobKey, Integer>> ids = new HashMap<>();
+    private final List<String> idInstances = new ArrayList<>();
+    private final List<RaceJobKey> idKeys = new ArrayList<>();
+
+    private ByteBuffer body = ByteBuffer.allocate(4096);
+
+    private long generation;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer mapped;
+
+    private long position;
+
+    private long snapshotSize;
+
+    private long revision;
+
+    private volatile boolean dirty;
+
+    private ScheduledExecutorService executor;
+
+    public FileRaceJobStoreImpl(Path directory) {
+        this(directory, RaceJobFileSync.INTERVAL, Duration.ofSeconds(1), 64L * 1024 * 1024, RaceJobMetrics.NOOP);
+    }
+
+    /**
+     * @param syncInterval flush interval of {@link RaceJobFileSync#INTERVAL}, also the compaction check interval
+     * @param compactSize  log size in bytes that triggers compaction, once it is also twice the last snapshot
+     */
+    public FileRaceJobStoreImpl(Path directory, RaceJobFileSync sync, Duration syncInterval, long compactSize, RaceJobMetrics metrics) {
+        super(metrics);
+        this.directory = directory;
+        this.sync = sync;
+        this.syncInterval = syncInterval;
+        this.compactSize = compactSize;
+    }
+
+    /**
+     * Open the latest generation of the log and replay it.
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } finally {
+            lock.unlock();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("race-job-file-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = Math.max(1, syncInterval.toMillis());
+        executor.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (executor != null) executor.shutdownNow();
+        lock.lock();
+        try {
+            if (channel == null) return;
+            if (sync != RaceJobFileSync.NONE) mapped.force();
+            // drop the mapped but unwritten tail
+            channel.truncate(position);
+            channel.close();
+            channel = null;
+            mapped = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected long revision() {
+        return revision;
+    }
+
+    @Override
+    public void insert(String instance, RaceJob job, long nextTime) {
+        String data = toJson(job.getData());
+        write(() -> {
+            super.insert(instance, job, nextTime);
+            appendJob(INSERT, instance, job, data, nextTime);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(String instance, RaceJob job, long nextTime) {
+        String data = toJson(job.getData());
+        write(() -> {
+            super.update(instance, job, nextTime);
+            appendJob(UPDATE, instance, job, data, nextTime);
+            return null;
+        });
+    }
+
+    @Override
+    public int upsert(String instance, List<RaceJob> jobs, long[] nextTimes) {
+        List<String> data = new ArrayList<>(jobs.size());
+        for (RaceJob job : jobs) {
+            data.add(toJson(job.getData()));
+        }
+        return write(() -> {
+            int count = 0;
+            for (int i = 0; i < jobs.size(); i++) {
+                RaceJob job = jobs.get(i);
+                if (super.upsert(instance, Collections.singletonList(job), new long[]{nextTimes[i]}) == 0) continue;
+                appendJob(UPSERT, instance, job, data.get(i), nextTimes[i]);
+                count++;
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public void updateActive(String instance, RaceJob job, long activeTime) {
+        updateActive(instance, Collections.singletonList(job.toKey()), activeTime);
+    }
+
+    @Override
+    public int updateActive(String instance, Collection<RaceJobKey> jobKeys, long activeTime) {
+        return write(() -> {
+            int count = 0;
+            for (RaceJobKey jobKey : jobKeys) {
+                if (super.updateActive(instance, Collections.singletonList(jobKey), activeTime) == 0) continue;
+                appendState(UPDATE_ACTIVE, instance, jobKey, activeTime, 0, 0);
+                count++;
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public void delete(String instance, RaceJobKey jobKey) {
+        delete(instance, Collections.singletonList(jobKey));
+    }
+
+    @Override
+    public int delete(String instance, Collection<RaceJobKey> jobKeys) {
+        return write(() -> {
+            int count = 0;
+            for (RaceJobKey jobKey : jobKeys) {
+                // the tombstone is recorded even if the job does not exist
+                count += super.delete(instance, Collections.singletonList(jobKey));
+                appendState(DELETE, instance, jobKey, revision, 0, 0);
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public void enable(String instance, RaceJobKey jobKey) {
+        write(() -> {
+            super.enable(instance, jobKey);
+            appendState(ENABLE, instance, jobKey, revision, 0, 0);
+            return null;
+        });
+    }
+
+    @Override
+    public void disable(String instance, RaceJobKey jobKey) {
+        write(() -> {
+            super.disable(instance, jobKey);
+            appendState(DISABLE, instance, jobKey, revision, 0, 0);
+            return null;
+        });
+    }
+
+    @Override
+    public int enableGroup(String instance, String group) {
+        return write(() -> appendGroup(ENABLE_GROUP, instance, group, super.enableGroup(instance, group)));
+    }
+
+    @Override
+    public int disableGroup(String instance, String group) {
+        return write(() -> appendGroup(DISABLE_GROUP, instance, group, super.disableGroup(instance, group)));
+    }
+
+    @Override
+    public int deleteGroup(String instance, String group) {
+        return write(() -> appendGroup(DELETE_GROUP, instance, group, super.deleteGroup(instance, group)));
+    }
+
+    @Override
+    public int deleteTombstones(String instance, long revision) {
+        return write(() -> {
+            int count = super.deleteTombstones(instance, revision);
+            if (count > 0) {
+                begin(DELETE_TOMBSTONES);
+                body.putLong(revision);
+                putString(instance);
+                append();
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int release(String instance, RaceJobKey jobKey, long nextTime) {
+        return write(() -> appendState(RELEASE, instance, jobKey, nextTime, 0, 0, super.release(instance, jobKey, nextTime)));
+    }
+
+    @Override
+    public int compete(String instance, RaceJobKey jobKey, long nextTime, long startTime) {
+        return write(() -> appendState(COMPETE, instance, jobKey, nextTime, startTime, 0, super.compete(instance, jobKey, nextTime, startTime)));
+    }
+
+    @Override
+    public RaceJobClaim tryClaim(String instance, RaceJobKey jobKey, long nextTime, long startTime, long staleBefore, String owner) {
+        return write(() -> {
+            RaceJobClaim claim = super.tryClaim(instance, jobKey, nextTime, startTime, staleBefore, owner);
+            if (claim == RaceJobClaim.WON || claim == RaceJobClaim.STALE) appendState(CLAIM, instance, jobKey, nextTime, startTime, staleBefore);
+            return claim;
+        });
+    }
+
+    /**
+     * Each claimed job is recorded as a claim with its computed next time, replay does not evaluate cron.
+     * The owner is not recorded, a replayed claim can be taken over by active time.
+     */
+    @Override
+    public List<RaceJob> claimDue(String instance, Collection<String> keys, long now, long staleBefore, int limit, String owner) {
+        return write(() -> {
+            List<RaceJob> jobs = super.claimDue(instance, keys, now, staleBefore, limit, owner);
+            for (RaceJob job : jobs) {
+                RaceJobStatus status = getStatus(instance, job.toKey());
+                appendState(CLAIM, instance, job.toKey(), status.getNextTime(), now, staleBefore);
+            }
+            return jobs;
+        });
+    }
+
+    /**
+     * Each released job is recorded as a release that always applies, replay does not know the nodes.
+     */
+    @Override
+    public int releaseOrphans(String instance, long aliveAfter) {
+        return write(() -> releaseOrphans(instance, aliveAfter, jobKey -> appendState(RELEASE, instance, jobKey, Long.MAX_VALUE, 0, 0)));
+    }
+
+    @Override
+    public int compete(String instance, RaceJobKey jobKey, long startTime) {
+        return write(() -> appendState(COMMAND, instance, jobKey, startTime, 0, 0, super.compete(instance, jobKey, startTime)));
+    }
+
+    @Override
+    public int finish(String instance, RaceJobKey jobKey, long endTime) {
+        return write(() -> appendState(FINISH, instance, jobKey, endTime, 0, 0, super.finish(instance, jobKey, endTime)));
+    }
+
+    /**
+     * Only a finish that applied is recorded, so replaying it without the owner rebuilds the same state.
+     */
+    @Override
+    public int finish(String instance, RaceJobKey jobKey, long endTime, String owner) {
+        return write(() -> appendState(FINISH, instance, jobKey, endTime, 0, 0, super.finish(instance, jobKey, endTime, owner)));
+    }
+
+    /**
+     * Apply a change and append its records under the write lock, with a revision that never goes back.
+     */
+    private <T> T write(Supplier<T> change) {
+        lock.lock();
+        try {
+            if (channel == null) throw new RaceJobException("File store is not open: " + directory);
+            revision = Math.max(revision, System.currentTimeMillis());
+            return change.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        TreeMap<Long, Path> logs = new TreeMap<>(Collections.reverseOrder());
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = LOG_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) logs.put(Long.parseLong(matcher.group(1)), file);
+            });
+        }
+        Path file = null;
+        for (Map.Entry<Long, Path> entry : logs.entrySet()) {
+            if (file == null && hasHeader(entry.getValue())) {
+                generation = entry.getKey();
+                file = entry.getValue();
+            } else {
+                // an unfinished snapshot or a compacted generation
+                Files.delete(entry.getValue());
+            }
+        }
+        if (file == null) {
+            open(0);
+            mapped.putInt(0, MAGIC);
+            snapshotSize = position;
+            return;
+        }
+        long start = System.nanoTime();
+        int records = 0;
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) throw new RaceJobException("Log too large to replay: " + file);
+        ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        in.position(HEADER_SIZE);
+        position = HEADER_SIZE;
+        snapshotSize = HEADER_SIZE;
+        boolean snapshot = true;
+        while (in.remaining() >= 8) {
+            int length = in.getInt();
+            if (length <= 0 || length > in.remaining() - 4) break;
+            ByteBuffer record = in.slice();
+            record.limit(length);
+            crc.reset();
+            crc.update(record.duplicate());
+            in.position(in.position() + length);
+            if (in.getInt() != (int) crc.getValue()) break;
+            byte type = record.get(0);
+            replay(record);
+            records++;
+            position = in.position();
+            // the snapshot is the leading rows and tombstones
+            snapshot = snapshot && (type == ROW || type == TOMBSTONE);
+            if (snapshot) snapshotSize = position;
+        }
+        channel.truncate(position);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, MAP_SIZE);
+        log.info("Replayed {} records of {} in {} ms", records, file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private boolean hasHeader(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            return in.read(header, 0) == HEADER_SIZE && header.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Create a generation without a header, the header is written once its content is complete.
+     */
+    private void open(long generation) throws IOException {
+        this.generation = generation;
+        channel = FileChannel.open(logPath(generation), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, MAP_SIZE);
+        mapped.position(HEADER_SIZE);
+        position = HEADER_SIZE;
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve("race-job-" + generation + ".log");
+    }
+
+    private void replay(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case KEY: {
+                int id = in.getInt();
+                String instance = getString(in);
+                RaceJobKey jobKey = new RaceJobKey(getString(in), getString(in));
+                ids.computeIfAbsent(instance, k -> new HashMap<>()).put(jobKey, id);
+                idInstances.add(instance);
+                idKeys.add(jobKey);
+                return;
+            }
+            case INSERT:
+            case UPDATE:
+            case UPSERT: {
+                revision = in.getLong();
+                long nextTime = in.getLong();
+                String instance = getString(in);
+                RaceJob job = getJob(in);
+                if (type == INSERT) {
+                    super.insert(instance, job, nextTime);
+                } else if (type == UPDATE) {
+                    super.update(instance, job, nextTime);
+                } else {
+                    super.upsert(instance, Collections.singletonList(job), new long[]{nextTime});
+                }
+                return;
+            }
+            case ENABLE_GROUP:
+            case DISABLE_GROUP:
+            case DELETE_GROUP: {
+                revision = in.getLong();
+                String instance = getString(in);
+                String group = getString(in);
+                if (type == ENABLE_GROUP) {
+                    super.enableGroup(instance, group);
+                } else if (type == DISABLE_GROUP) {
+                    super.disableGroup(instance, group);
+                } else {
+                    super.deleteGroup(instance, group);
+                }
+                return;
+            }
+            case DELETE_TOMBSTONES: {
+                long before = in.getLong();
+                super.deleteTombstones(getString(in), before);
+                return;
+            }
+            case ROW: {
+                String instance = getString(in);
+                RaceJob job = getJob(in);
+                restoreRow(instance, job, in.getInt(), in.getLong(), in.getLong(), in.getLong(), in.getLong(), in.getLong(), in.getLong());
+                return;
+            }
+            case TOMBSTONE: {
+                String instance = getString(in);
+                restoreTombstone(instance, new RaceJobKey(getString(in), getString(in)), in.getLong());
+                return;
+            }
+        }
+        int id = in.getInt();
+        String instance = idInstances.get(id);
+        RaceJobKey jobKey = idKeys.get(id);
+        long a = in.getLong();
+        long b = in.getLong();
+        long c = in.getLong();
+        switch (type) {
+            case UPDATE_ACTIVE:
+                super.updateActive(instance, Collections.singletonList(jobKey), a);
+                break;
+            case DELETE:
+                revision = a;
+                super.delete(instance, Collections.singletonList(jobKey));
+                break;
+            case ENABLE:
+                revision = a;
+                super.enable(instance, jobKey);
+                break;
+            case DISABLE:
+                revision = a;
+                super.disable(instance, jobKey);
+                break;
+            case RELEASE:
+                super.release(instance, jobKey, a);
+                break;
+            case COMPETE:
+                super.compete(instance, jobKey, a, b);
+                break;
+            case CLAIM:
+                super.tryClaim(instance, jobKey, a, b, c, "");
+                break;
+            case COMMAND:
+                super.compete(instance, jobKey, a);
+                break;
+            case FINISH:
+                super.finish(instance, jobKey, a);
+                break;
+            default:
+                throw new RaceJobException("Unknown record type: " + type);
+        }
+    }
+
+    private void maintain() {
+        try {
+            MappedByteBuffer target = null;
+            lock.lock();
+            try {
+                if (channel == null) return;
+                if (position > compactSize && position > snapshotSize * 2) {
+                    compact();
+                } else if (sync == RaceJobFileSync.INTERVAL && dirty) {
+                    target = mapped;
+                }
+                dirty = false;
+            } finally {
+                lock.unlock();
+            }
+            if (target != null) target.force();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write the whole state into the next generation and delete the current one.
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        long oldGeneration = generation;
+        FileChannel oldChannel = channel;
+        MappedByteBuffer oldMapped = mapped;
+        long oldPosition = position;
+        try {
+            open(generation + 1);
+            forEachRow((instance, job, state, nextTime, prevTime, startTime, endTime, lastActiveTime, revision) -> {
+                String data = toJson(job.getData());
+                begin(ROW);
+                putString(instance);
+                putJob(job, data);
+                ensure(52);
+                body.putInt(state).putLong(nextTime).putLong(prevTime).putLong(startTime)
+                        .putLong(endTime).putLong(lastActiveTime).putLong(revision);
+                append();
+            });
+            forEachTombstone((instance, jobKey, revision) -> {
+                begin(TOMBSTONE);
+                putString(instance);
+                putString(jobKey.getGroup());
+                putString(jobKey.getName());
+                ensure(8);
+                body.putLong(revision);
+                append();
+            });
+            mapped.force();
+            mapped.putInt(0, MAGIC);
+            mapped.force();
+        } catch (RuntimeException | IOException e) {
+            // keep appending to the current generation
+            if (channel != oldChannel) channel.close();
+            Files.deleteIfExists(logPath(generation));
+            generation = oldGeneration;
+            channel = oldChannel;
+            mapped = oldMapped;
+            position = oldPosition;
+            throw e;
+        }
+        snapshotSize = position;
+        ids.clear();
+        idInstances.clear();
+        idKeys.clear();
+        oldChannel.close();
+        Files.delete(logPath(oldGeneration));
+        log.info("Compacted {} bytes into {} bytes in {} ms", oldPosition, snapshotSize, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void appendJob(byte type, String instance, RaceJob job, String data, long nextTime) {
+        begin(type);
+        body.putLong(revision).putLong(nextTime);
+        putString(instance);
+        putJob(job, data);
+        append();
+    }
+
+    private int appendGroup(byte type, String instance, String group, int count) {
+        if (count == 0) return count;
+        begin(type);
+        body.putLong(revision);
+        putString(instance);
+        putString(group);
+        append();
+        return count;
+    }
+
+    /**
+     * Append the record if the change affected a row.
+     */
+    private int appendState(byte type, String instance, RaceJobKey jobKey, long a, long b, long c, int count) {
+        if (count > 0) appendState(type, instance, jobKey, a, b, c);
+        return count;
+    }
+
+    private void appendState(byte type, String instance, RaceJobKey jobKey, long a, long b, long c) {
+        int id = id(instance, jobKey);
+        begin(type);
+        body.putInt(id).putLong(a).putLong(b).putLong(c);
+        append();
+    }
+
+    /**
+     * Id of the job in the current generation, assigned with a KEY record on first use.
+     */
+    private int id(String instance, RaceJobKey jobKey) {
+        Map<RaceJobKey, Integer> keys = ids.computeIfAbsent(instance, k -> new HashMap<>());
+        Integer id = keys.get(jobKey);
+        if (id != null) return id;
+        id = idKeys.size();
+        keys.put(jobKey, id);
+        idInstances.add(instance);
+        idKeys.add(jobKey);
+        begin(KEY);
+        body.putInt(id);
+        putString(instance);
+        putString(jobKey.getGroup());
+        putString(jobKey.getName());
+        append();
+        return id;
+    }
+
+    private void begin(byte type) {
+        body.clear();
+        ensure(29);
+        body.put(type);
+    }
+
+    private void append() {
+        body.flip();
+        int length = body.remaining();
+        crc.reset();
+        crc.update(body.duplicate());
+        int size = length + 8;
+        try {
+            if (mapped.remaining() < size) {
+                if (sync != RaceJobFileSync.NONE) mapped.force();
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(MAP_SIZE, size));
+            }
+        } catch (IOException e) {
+            throw new RaceJobException(e);
+        }
+        mapped.putInt(length);
+        mapped.put(body);
+        mapped.putInt((int) crc.getValue());
+        position += size;
+        if (sync == RaceJobFileSync.ALWAYS) {
+            mapped.force();
+        } else {
+            dirty = true;
+        }
+    }
+
+    private void putJob(RaceJob job, String data) {
+        putString(job.getGroup());
+        putString(job.getName());
+        putString(job.getKey());
+        ensure(4);
+        body.putInt(job.getVersion());
+        putString(job.getTimezone());
+        putString(job.getDescription());
+        putString(job.getCron());
+        putString(job.getDependsKey());
+        ensure(1);
+        body.put((byte) (job.getEnabled() ? 1 : 0));
+        putString(data);
+    }
+
+    private RaceJob getJob(ByteBuffer in) {
+        return new RaceJob(getString(in), getString(in), getString(in), in.getInt(), getString(in), getString(in)
+                , getString(in), getString(in), in.get() == 1, new RaceJobData(getString(in)));
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        body.putInt(bytes.length);
+        body.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int size) {
+        if (body.remaining() >= size) return;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(body.capacity() * 2, body.position() + size));
+        body.flip();
+        larger.put(body);
+        body = larger;
+    }
+
+    private static String toJson(Map<String, Object> data) {
+        if (data instanceof RaceJobData && !((RaceJobData) data).isParsed()) {
+            return ((RaceJobData) data).getRaw();
+        }
+        try {
+            return om.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new RaceJobException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.Nullable;
+import pers.clare.racejob.RaceJobHistoryStore;
+import pers.clare.racejob.constant.RaceJobDialect;
+import pers.clare.racejob.exception.RaceJobException;
+import pers.clare.racejob.util.DataSourceSchemaUtil;
+import pers.clare.racejob.vo.RaceJobExecution;
+import pers.clare.racejob.vo.RaceJobKey;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Log4j2
+public class JdbcRaceJobHistoryStoreImpl implements RaceJobHistoryStore, InitializingBean {
+    private static final String INSERT = "INSERT INTO race_job_execution(`instance`,`group`,`name`,`key`,node_id,start_time,end_time,success,error) values(?,?,?,?,?,?,?,?,?)";
+
+    private static final String FIND = "SELECT `group`,`name`,`key`,node_id,start_time,end_time,success,error FROM race_job_execution WHERE `instance` = ? AND `group` = ? AND `name` = ? ORDER BY start_time DESC LIMIT ?";
+
+    private final DataSource dataSource;
+
+    /**
+     * Configured dialect, detected from the DataSource when null.
+     */
+    private final RaceJobDialect configuredDialect;
+
+    private RaceJobSqlDialect dialect = RaceJobSqlDialect.of(RaceJobDialect.MYSQL);
+
+    public JdbcRaceJobHistoryStoreImpl(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * @param dialect SQL dialect, detected from the DataSource when null
+     */
+    public JdbcRaceJobHistoryStoreImpl(DataSource dataSource, @Nullable RaceJobDialect dialect) {
+        this.dataSource = dataSource;
+        this.configuredDialect = dialect;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            DataSourceSchemaUtil.init(dataSource);
+        } catch (SQLException e) {
+            log.error(e);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            dialect = RaceJobSqlDialect.of(configuredDialect == null ? RaceJobSqlDialect.detect(connection.getMetaData()) : configuredDialect);
+        } catch (SQLException e) {
+            log.error(e);
+        }
+    }
+
+    /**
+     * One batch in one transaction.
+     */
+    @Override
+    public void insert(String instance, List<RaceJobExecution> executions) {
+        if (executions.isEmpty()) return;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(dialect.sql(INSERT))) {
+                for (RaceJobExecution execution : executions) {
+                    ps.setString(1, instance);
+                    ps.setString(2, execution.getGroup());
+                    ps.setString(3, execution.getName());
+                    ps.setString(4, execution.getKey());
+                    ps.setString(5, execution.getNodeId());
+                    ps.setLong(6, execution.getStartTime());
+                    ps.setLong(7, execution.getEndTime());
+                    ps.setBoolean(8, execution.isSuccess());
+                    ps.setString(9, execution.getError());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RaceJobException(e);
+        }
+    }
+
+    @Override
+    public List<RaceJobExecution> find(String instance, RaceJobKey jobKey, int limit) {
+        if (limit <= 0) return Collections.emptyList();
+        List<RaceJobExecution> result = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(dialect.sql(FIND))) {
+            ps.setString(1, instance);
+            ps.setString(2, jobKey.getGroup());
+            ps.setString(3, jobKey.getName());
+            ps.setInt(4, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new RaceJobExecution(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)
+                            , rs.getLong(5), rs.getLong(6), rs.getBoolean(7), rs.getString(8)));
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new RaceJobException(e);
+        }
+    }
+
+    @Override
+    public int deleteBefore(String instance, long startTime, int limit) {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(dialect.deleteExecutionsBefore())) {
+            ps.setString(1, instance);
+            ps.setLong(2, startTime);
+            ps.setInt(3, limit);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RaceJobException(e);
+        }
+    }
+}
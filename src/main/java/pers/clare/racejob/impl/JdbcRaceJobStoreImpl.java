@@ -1,27 +1,45 @@
 package pers.clare.racejob.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.Nullable;
+import pers.clare.racejob.RaceJobMetrics;
 import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.constant.RaceJobDialect;
 import pers.clare.racejob.constant.RaceJobState;
 import pers.clare.racejob.exception.RaceJobException;
+import pers.clare.racejob.impl.RaceJobJdbcExecutor.Binder;
+import pers.clare.racejob.impl.RaceJobJdbcExecutor.RowHandler;
+import pers.clare.racejob.impl.RaceJobJdbcExecutor.Session;
+import pers.clare.racejob.impl.RaceJobJdbcExecutor.SessionCallback;
 import pers.clare.racejob.util.DataSourceSchemaUtil;
+import pers.clare.racejob.util.JobUtil;
 import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobChanges;
+import pers.clare.racejob.vo.RaceJobData;
 import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobNode;
 import pers.clare.racejob.vo.RaceJobStatus;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Log4j2
 public class JdbcRaceJobStoreImpl implements RaceJobStore, InitializingBean {
@@ -32,35 +50,128 @@ public class JdbcRaceJobStoreImpl implements RaceJobStore, InitializingBean {
 
     private static final String FIND = "SELECT `group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,enabled,`data` FROM race_job WHERE `instance` = ? AND `group` = ? AND `name` = ?";
 
+    private static final String FIND_SAVED = "SELECT `group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,enabled,`data`,`revision` FROM race_job WHERE `instance` = ? AND `group` = ? AND `name` = ?";
+
+    private static final String FIND_KEYS = "SELECT `group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,enabled,`data` FROM race_job WHERE `instance` = ? AND (%s)";
+
+    private static final String FIND_KEYS_CONDITION = "(`group` = ? AND `name` = ?)";
+
+    /**
+     * Keys per statement of the batched find.
+     */
+    private static final int FIND_KEYS_CHUNK = 100;
+
+    private static final String FIND_CHANGED = "SELECT `group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,enabled,`data` FROM race_job WHERE `instance` = ? AND `revision` > ?";
+
+    private static final String FIND_TOMBSTONES = "SELECT `group`,`name` FROM race_job_tombstone WHERE `instance` = ? AND `revision` > ?";
+
     private static final String FIND_STATUS = "SELECT state, next_time, last_active_time, enabled FROM race_job WHERE `instance` = ? AND `group` = ? AND `name` = ?";
 
-    private static final String INSERT = "INSERT INTO race_job(`instance`,`group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,next_time,enabled,`data`) values(?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String INSERT = "INSERT INTO race_job(`instance`,`group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,next_time,enabled,`data`,`revision`) values(?,?,?,?,?,?,?,?,?,?,?,?,?)";
 
-    private static final String UPDATE = "UPDATE race_job SET `key`=?,`version`=?,`timezone`=?,description=?,cron=?,next_time=?,depends_key=?,`data`=? WHERE `instance` = ? AND `group` = ? AND `name` = ? AND `version` < ?";
+    private static final String UPDATE = "UPDATE race_job SET `key`=?,`version`=?,`timezone`=?,description=?,cron=?,next_time=?,depends_key=?,`data`=?,`revision`=? WHERE `instance` = ? AND `group` = ? AND `name` = ? AND `version` < ?";
 
     private static final String UPDATE_ACTIVE = "UPDATE race_job SET last_active_time=? WHERE `instance` = ? AND `group` = ? AND `name` = ?";
 
-    private static final String UPDATE_RELEASE = "UPDATE race_job SET state=? WHERE `instance` = ? AND `group` = ? AND `name` = ? AND state = ? AND next_time<?";
+    private static final String UPDATE_RELEASE = "UPDATE race_job SET state=?,`owner`='' WHERE `instance` = ? AND `group` = ? AND `name` = ? AND state = ? AND next_time<?";
 
     private static final String UPDATE_EXECUTING = "UPDATE race_job SET state=?,prev_time=start_time,next_time=?,start_time=?,end_time=0, last_active_time=? WHERE `instance` = ? AND `group` = ? AND `name` = ? AND enabled = true AND state = ? AND next_time<?";
 
+    private static final String UPDATE_CLAIM = "UPDATE race_job SET state=?,prev_time=start_time,next_time=?,start_time=?,end_time=0, last_active_time=?,`owner`=? WHERE `instance` = ? AND `group` = ? AND `name` = ? AND enabled = true AND next_time<? AND state = ?";
+
+    private static final String UPDATE_CLAIM_STALE = "UPDATE race_job SET state=?,prev_time=start_time,next_time=?,start_time=?,end_time=0, last_active_time=?,`owner`=? WHERE `instance` = ? AND `group` = ? AND `name` = ? AND enabled = true AND next_time<? AND state = ? AND `owner` = '' AND last_active_time<=?";
+
+    private static final String FIND_DUE = "SELECT `group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,enabled,`data`,next_time FROM race_job WHERE `instance` = ? AND state = ? AND next_time <= ? AND enabled = true AND cron <> '' AND `key` IN (%s) ORDER BY next_time LIMIT ?";
+
+    private static final String FIND_STALE = "SELECT `group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,enabled,`data`,next_time FROM race_job WHERE `instance` = ? AND state = ? AND next_time <= ? AND `owner` = '' AND last_active_time <= ? AND enabled = true AND cron <> '' AND `key` IN (%s) ORDER BY next_time LIMIT ?";
+
+    private static final String UPDATE_DUE = "UPDATE race_job SET state=?,prev_time=start_time,next_time=?,start_time=?,end_time=0, last_active_time=?,`owner`=? WHERE `instance` = ? AND `group` = ? AND `name` = ? AND enabled = true AND next_time = ? AND (state = ? OR (state = ? AND `owner` = '' AND last_active_time<=?))";
+
+    private static final String UPDATE_NEXT_TIME = "UPDATE race_job SET next_time=? WHERE `instance` = ? AND `group` = ? AND `name` = ?";
+
     private static final String UPDATE_EXECUTING_BY_START_TIME = "UPDATE race_job SET prev_time=start_time,start_time=?,end_time=0 WHERE `instance` = ? AND `group` = ? AND `name` = ? AND start_time < ?";
 
-    private static final String UPDATE_STATE = "UPDATE race_job SET state=?, end_time=? WHERE `instance` = ? AND `group` = ? AND `name` = ?";
+    private static final String UPDATE_STATE = "UPDATE race_job SET state=?,`owner`='', end_time=? WHERE `instance` = ? AND `group` = ? AND `name` = ?";
+
+    private static final String UPDATE_OWNED_STATE = UPDATE_STATE + " AND `owner` IN (?, '')";
+
+    private static final String RELEASE_ORPHANS = "UPDATE race_job SET state=?,`owner`='' WHERE `instance` = ? AND state = ? AND `owner` <> '' AND `owner` NOT IN (SELECT node_id FROM race_job_node WHERE `instance` = ? AND heartbeat_time >= ?)";
 
-    private static final String UPDATE_ENABLED = "UPDATE race_job SET enabled = ? WHERE `instance` = ? AND `group` = ? AND `name` = ?";
+    private static final String UPDATE_ENABLED = "UPDATE race_job SET enabled = ?, `revision` = ? WHERE `instance` = ? AND `group` = ? AND `name` = ?";
+
+    private static final String UPDATE_GROUP_ENABLED = "UPDATE race_job SET enabled = ?, `revision` = ? WHERE `instance` = ? AND `group` = ? AND enabled <> ?";
+
+    private static final String DELETE_GROUP = "DELETE FROM race_job WHERE `instance` = ? AND `group` = ?";
+
+    private static final String UPDATE_GROUP_TOMBSTONE = "UPDATE race_job_tombstone SET `revision` = ? WHERE `instance` = ? AND `group` = ? AND `name` IN (SELECT `name` FROM race_job WHERE `instance` = ? AND `group` = ?)";
+
+    private static final String INSERT_GROUP_TOMBSTONE = "INSERT INTO race_job_tombstone(`instance`,`group`,`name`,`revision`) SELECT j.`instance`,j.`group`,j.`name`,? FROM race_job j WHERE j.`instance` = ? AND j.`group` = ? AND NOT EXISTS (SELECT 1 FROM race_job_tombstone t WHERE t.`instance` = j.`instance` AND t.`group` = j.`group` AND t.`name` = j.`name`)";
 
     private static final String DELETE = "DELETE FROM race_job WHERE `instance` = ? AND `group` = ? AND `name` = ?";
 
-    private static final TypeReference<Map<String, Object>> DATA_TYPE = new TypeReference<>() {
-    };
+    private static final String INSERT_TOMBSTONE = "INSERT INTO race_job_tombstone(`instance`,`group`,`name`,`revision`) values(?,?,?,?)";
+
+    private static final String UPDATE_TOMBSTONE = "UPDATE race_job_tombstone SET `revision` = ? WHERE `instance` = ? AND `group` = ? AND `name` = ?";
+
+    private static final String DELETE_TOMBSTONES = "DELETE FROM race_job_tombstone WHERE `instance` = ? AND `revision` < ?";
 
     private static final ObjectMapper om = new ObjectMapper();
 
+    private static final String FIND_NODES = "SELECT node_id,heartbeat_time,handler_keys,capacity FROM race_job_node WHERE `instance` = ? AND heartbeat_time >= ?";
+
+    private static final String INSERT_NODE = "INSERT INTO race_job_node(`instance`,node_id,heartbeat_time,handler_keys,capacity) values(?,?,?,?,?)";
+
+    private static final String UPDATE_NODE = "UPDATE race_job_node SET heartbeat_time = ?, handler_keys = ?, capacity = ? WHERE `instance` = ? AND node_id = ?";
+
+    private static final String INSERT_LEASE = "INSERT INTO race_job_lease(`instance`,`name`,`owner`,expire_time) values(?,?,?,?)";
+
+    private static final String UPDATE_LEASE = "UPDATE race_job_lease SET `owner` = ?, expire_time = ? WHERE `instance` = ? AND `name` = ? AND (`owner` = ? OR expire_time < ?)";
+
+    private static final String DELETE_LEASE = "DELETE FROM race_job_lease WHERE `instance` = ? AND `name` = ? AND `owner` = ?";
+
+    private static final String HANDLER_KEY_SPLIT = "\n";
+
+    private static final String DELETE_NODE = "DELETE FROM race_job_node WHERE `instance` = ? AND node_id = ?";
+
+    private static final String DELETE_STALE_NODES = "DELETE FROM race_job_node WHERE `instance` = ? AND heartbeat_time < ?";
+
     private final DataSource dataSource;
 
+    private final RaceJobJdbcExecutor executor;
+
+    private final RaceJobMetrics metrics;
+
+    /**
+     * Configured dialect, detected from the DataSource when null.
+     */
+    private final RaceJobDialect configuredDialect;
+
+    private RaceJobSqlDialect dialect = RaceJobSqlDialect.of(RaceJobDialect.MYSQL);
+
+    /**
+     * Whether the database supports SELECT ... FOR UPDATE SKIP LOCKED.
+     */
+    private boolean skipLocked = false;
+
     public JdbcRaceJobStoreImpl(DataSource dataSource) {
+        this(dataSource, RaceJobMetrics.NOOP);
+    }
+
+    /**
+     * @param metrics receives the fire lag and stale takeovers of {@link #claimDue}, only the store sees the due times
+     */
+    public JdbcRaceJobStoreImpl(DataSource dataSource, RaceJobMetrics metrics) {
+        this(dataSource, metrics, null);
+    }
+
+    /**
+     * @param dialect SQL dialect, detected from the DataSource when null
+     */
+    public JdbcRaceJobStoreImpl(DataSource dataSource, RaceJobMetrics metrics, @Nullable RaceJobDialect dialect) {
         this.dataSource = dataSource;
+        this.executor = new RaceJobJdbcExecutor(dataSource);
+        this.metrics = metrics;
+        this.configuredDialect = dialect;
     }
 
     @Override
@@ -70,77 +181,99 @@ public class JdbcRaceJobStoreImpl implements RaceJobStore, InitializingBean {
         } catch (SQLException e) {
             log.error(e);
         }
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            dialect = RaceJobSqlDialect.of(configuredDialect == null ? RaceJobSqlDialect.detect(metaData) : configuredDialect, metaData);
+            skipLocked = dialect.skipLocked(metaData);
+        } catch (SQLException e) {
+            log.error(e);
+        }
+    }
+
+    /**
+     * Store calls made by the operations share one connection and reuse their prepared statements.
+     */
+    @Override
+    public <T> T session(Supplier<T> operations) {
+        return execute(session -> operations.get());
     }
 
     @Override
     public List<RaceJob> findAll(String instance) {
         if (instance == null) return Collections.emptyList();
-        List<RaceJob> result = new ArrayList<>();
-        try (
-                Connection connection = dataSource.getConnection();
-                PreparedStatement ps = connection.prepareStatement(FIND_ALL)
-        ) {
-            ps.setString(1, instance);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                result.add(to(rs));
-            }
-            return result;
-        } catch (Exception e) {
-            throw new RaceJobException(e);
-        }
+        return execute(session -> session.list(sql(FIND_ALL), ps -> ps.setString(1, instance), this::to));
     }
 
     @Override
     public List<RaceJob> findAll(String instance, String group) {
         if (instance == null || group == null) return Collections.emptyList();
-        List<RaceJob> result = new ArrayList<>();
-        try (Connection connection = dataSource.getConnection(); PreparedStatement ps = connection.prepareStatement(FIND_ALL_BY_GROUP)) {
+        return execute(session -> session.list(sql(FIND_ALL_BY_GROUP), ps -> {
             ps.setString(1, instance);
             ps.setString(2, group);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                result.add(to(rs));
-            }
-            return result;
-        } catch (Exception e) {
-            throw new RaceJobException(e);
-        }
+        }, this::to));
     }
 
     @Override
     public RaceJob find(String instance, RaceJobKey jobKey) {
-        Connection connection = null;
-        try {
-            connection = dataSource.getConnection();
-            PreparedStatement ps = connection.prepareStatement(FIND);
-            setValue(ps, instance, jobKey.getGroup(), jobKey.getName());
-            ResultSet rs = ps.executeQuery();
-            return rs.next() ? to(rs) : null;
-        } catch (Exception e) {
-            throw new RaceJobException(e);
-        } finally {
-            close(connection);
-        }
+        return execute(session -> session.first(sql(FIND), ps -> setKey(ps, 1, instance, jobKey), this::to));
+    }
+
+    @Override
+    public List<RaceJob> find(String instance, Collection<RaceJobKey> jobKeys) {
+        if (jobKeys.isEmpty()) return Collections.emptyList();
+        return execute(session -> {
+            List<RaceJob> result = new ArrayList<>(jobKeys.size());
+            findByKeys(session, FIND_KEYS, instance, jobKeys, rs -> result.add(to(rs)));
+            return result;
+        });
+    }
+
+    @Override
+    public RaceJobChanges findChangedSince(String instance, long revision) {
+        Binder binder = ps -> {
+            ps.setString(1, instance);
+            ps.setLong(2, revision);
+        };
+        return execute(session -> new RaceJobChanges(
+                session.list(sql(FIND_CHANGED), binder, this::to)
+                , session.list(sql(FIND_TOMBSTONES), binder, rs -> new RaceJobKey(rs.getString(1), rs.getString(2)))
+        ));
+    }
+
+    @Override
+    public int deleteTombstones(String instance, long revision) {
+        return executeUpdate(DELETE_TOMBSTONES, ps -> {
+            ps.setString(1, instance);
+            ps.setLong(2, revision);
+        });
     }
 
     @Override
     public void insert(String instance, RaceJob entity, long nextTime) {
-        try {
-            String data = om.writeValueAsString(entity.getData());
-            executeUpdate(INSERT, instance, entity.getGroup(), entity.getName(), entity.getKey(), entity.getVersion(), entity.getTimezone(), entity.getDescription(), entity.getCron(), entity.getDependsKey(), nextTime, entity.getEnabled(), data);
-        } catch (RaceJobException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RaceJobException(e);
-        }
+        execute(session -> {
+            String data = toJson(entity.getData());
+            return session.update(sql(INSERT), ps -> bindInsert(ps, instance, entity, nextTime, data, System.currentTimeMillis()));
+        });
     }
 
     @Override
     public void update(String instance, RaceJob entity, long nextTime) {
+        execute(session -> {
+            String data = toJson(entity.getData());
+            return session.update(sql(UPDATE), ps -> bindUpdate(ps, instance, entity, nextTime, data, System.currentTimeMillis()));
+        });
+    }
+
+    @Override
+    public RaceJob save(String instance, RaceJob job, long nextTime) {
         try {
-            String data = om.writeValueAsString(entity.getData());
-            executeUpdate(UPDATE, entity.getKey(), entity.getVersion(), entity.getTimezone(), entity.getDescription(), entity.getCron(), nextTime, entity.getDependsKey(), data, instance, entity.getGroup(), entity.getName(), entity.getVersion());
+            try {
+                return executor.execute(session -> doSave(session, instance, job, nextTime));
+            } catch (SQLException e) {
+                // The MERGE of H2 fails when another node inserts the row at the same time, it is updated on retry.
+                log.debug(e.getMessage());
+                return executor.execute(session -> doSave(session, instance, job, nextTime));
+            }
         } catch (RaceJobException e) {
             throw e;
         } catch (Exception e) {
@@ -148,10 +281,32 @@ public class JdbcRaceJobStoreImpl implements RaceJobStore, InitializingBean {
         }
     }
 
+    /**
+     * One upsert, returning the written row where the database can. Otherwise the row is read back and
+     * only counts as saved if it carries this revision, MySQL reports an unchanged row as found by default.
+     */
+    private RaceJob doSave(Session session, String instance, RaceJob job, long nextTime) throws SQLException, JsonProcessingException {
+        String data = toJson(job.getData());
+        long revision = System.currentTimeMillis();
+        Binder binder = ps -> bindInsert(ps, instance, job, nextTime, data, revision);
+        String returning = dialect.saveReturning();
+        if (returning != null) return session.first(returning, binder, this::to);
+        if (session.update(dialect.upsert, binder) == 0) return null;
+        return session.first(sql(FIND_SAVED), ps -> setKey(ps, 1, instance, job.toKey())
+                , rs -> rs.getLong(11) == revision && rs.getInt(4) == job.getVersion() ? to(rs) : null);
+    }
+
     @Override
-    public void updateActive(String instance, RaceJob entity, long activeTime) {
+    public int upsert(String instance, List<RaceJob> jobs, long[] nextTimes) {
+        if (jobs.isEmpty()) return 0;
         try {
-            executeUpdate(UPDATE_ACTIVE, activeTime, instance, entity.getGroup(), entity.getName());
+            try {
+                return executor.transaction(session -> doUpsert(session, instance, jobs, nextTimes));
+            } catch (SQLException e) {
+                // Some rows were inserted by another node at the same time, they are updated on retry.
+                log.debug(e.getMessage());
+                return executor.transaction(session -> doUpsert(session, instance, jobs, nextTimes));
+            }
         } catch (RaceJobException e) {
             throw e;
         } catch (Exception e) {
@@ -159,127 +314,673 @@ public class JdbcRaceJobStoreImpl implements RaceJobStore, InitializingBean {
         }
     }
 
+    /**
+     * One batch of the native upsert, the version comparison happens in the database.
+     * Each written row counts once, MySQL counts an updated row twice.
+     */
+    private int doUpsert(Session session, String instance, List<RaceJob> jobs, long[] nextTimes) throws SQLException, JsonProcessingException {
+        PreparedStatement ps = session.prepare(dialect.upsert);
+        long revision = System.currentTimeMillis();
+        for (int i = 0; i < jobs.size(); i++) {
+            RaceJob job = jobs.get(i);
+            bindInsert(ps, instance, job, nextTimes[i], toJson(job.getData()), revision);
+            ps.addBatch();
+        }
+        int count = 0;
+        for (int c : ps.executeBatch()) {
+            if (c > 0 || c == Statement.SUCCESS_NO_INFO) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void updateActive(String instance, RaceJob entity, long activeTime) {
+        executeUpdate(UPDATE_ACTIVE, ps -> {
+            ps.setLong(1, activeTime);
+            setKey(ps, 2, instance, entity.toKey());
+        });
+    }
+
+    @Override
+    public int updateActive(String instance, Collection<RaceJobKey> jobKeys, long activeTime) {
+        if (jobKeys.isEmpty()) return 0;
+        return execute(session -> {
+            PreparedStatement ps = session.prepare(sql(UPDATE_ACTIVE));
+            for (RaceJobKey jobKey : jobKeys) {
+                ps.setLong(1, activeTime);
+                setKey(ps, 2, instance, jobKey);
+                ps.addBatch();
+            }
+            return sum(ps.executeBatch());
+        });
+    }
+
 
     @Override
     public void delete(String instance, RaceJobKey jobKey) {
-        executeUpdate(DELETE, instance, jobKey.getGroup(), jobKey.getName());
+        execute(session -> {
+            session.update(sql(DELETE), ps -> setKey(ps, 1, instance, jobKey));
+            saveTombstone(session, instance, jobKey, System.currentTimeMillis());
+            return null;
+        });
+    }
+
+    @Override
+    public int delete(String instance, Collection<RaceJobKey> jobKeys) {
+        if (jobKeys.isEmpty()) return 0;
+        return transaction(session -> {
+            PreparedStatement delete = session.prepare(sql(DELETE));
+            PreparedStatement updateTombstone = session.prepare(sql(UPDATE_TOMBSTONE));
+            long revision = System.currentTimeMillis();
+            for (RaceJobKey jobKey : jobKeys) {
+                setKey(delete, 1, instance, jobKey);
+                delete.addBatch();
+                updateTombstone.setLong(1, revision);
+                setKey(updateTombstone, 2, instance, jobKey);
+                updateTombstone.addBatch();
+            }
+            int count = sum(delete.executeBatch());
+            int[] counts = updateTombstone.executeBatch();
+            int index = 0;
+            PreparedStatement insertTombstone = null;
+            for (RaceJobKey jobKey : jobKeys) {
+                if (counts[index++] == 0) {
+                    if (insertTombstone == null) insertTombstone = session.prepare(sql(INSERT_TOMBSTONE));
+                    setKey(insertTombstone, 1, instance, jobKey);
+                    insertTombstone.setLong(4, revision);
+                    insertTombstone.addBatch();
+                }
+            }
+            if (insertTombstone != null) insertTombstone.executeBatch();
+            return count;
+        });
     }
 
     @Override
     public void enable(String instance, RaceJobKey jobKey) {
-        executeUpdate(UPDATE_ENABLED, true, instance, jobKey.getGroup(), jobKey.getName());
+        setEnabled(instance, jobKey, true);
     }
 
     @Override
     public void disable(String instance, RaceJobKey jobKey) {
-        executeUpdate(UPDATE_ENABLED, false, instance, jobKey.getGroup(), jobKey.getName());
+        setEnabled(instance, jobKey, false);
+    }
+
+    private void setEnabled(String instance, RaceJobKey jobKey, boolean enabled) {
+        executeUpdate(UPDATE_ENABLED, ps -> {
+            ps.setBoolean(1, enabled);
+            ps.setLong(2, System.currentTimeMillis());
+            setKey(ps, 3, instance, jobKey);
+        });
+    }
+
+    @Override
+    public int enableGroup(String instance, String group) {
+        return setGroupEnabled(instance, group, true);
+    }
+
+    @Override
+    public int disableGroup(String instance, String group) {
+        return setGroupEnabled(instance, group, false);
+    }
+
+    private int setGroupEnabled(String instance, String group, boolean enabled) {
+        return executeUpdate(UPDATE_GROUP_ENABLED, ps -> {
+            ps.setBoolean(1, enabled);
+            ps.setLong(2, System.currentTimeMillis());
+            ps.setString(3, instance);
+            ps.setString(4, group);
+            ps.setBoolean(5, enabled);
+        });
+    }
+
+    @Override
+    public int deleteGroup(String instance, String group) {
+        return transaction(session -> {
+            long revision = System.currentTimeMillis();
+            session.update(sql(UPDATE_GROUP_TOMBSTONE), ps -> {
+                ps.setLong(1, revision);
+                ps.setString(2, instance);
+                ps.setString(3, group);
+                ps.setString(4, instance);
+                ps.setString(5, group);
+            });
+            session.update(sql(INSERT_GROUP_TOMBSTONE), ps -> {
+                ps.setLong(1, revision);
+                ps.setString(2, instance);
+                ps.setString(3, group);
+            });
+            return session.update(sql(DELETE_GROUP), ps -> {
+                ps.setString(1, instance);
+                ps.setString(2, group);
+            });
+        });
     }
 
     @Override
     public int release(String instance, RaceJobKey jobKey, long nextTime) {
-        return executeUpdate(UPDATE_RELEASE, RaceJobState.WAITING, instance, jobKey.getGroup(), jobKey.getName(), RaceJobState.EXECUTING, nextTime);
+        return executeUpdate(UPDATE_RELEASE, ps -> {
+            ps.setInt(1, RaceJobState.WAITING);
+            setKey(ps, 2, instance, jobKey);
+            ps.setInt(5, RaceJobState.EXECUTING);
+            ps.setLong(6, nextTime);
+        });
     }
 
     @Override
     public int compete(String instance, RaceJobKey jobKey, long nextTime, long startTime) {
-        Connection connection = null;
         try {
-            connection = dataSource.getConnection();
-            PreparedStatement ps = connection.prepareStatement(UPDATE_EXECUTING);
-            setValue(ps, RaceJobState.EXECUTING, nextTime, startTime, startTime, instance, jobKey.getGroup(), jobKey.getName(), RaceJobState.WAITING, nextTime);
-            return ps.executeUpdate();
+            return executor.update(sql(UPDATE_EXECUTING), ps -> {
+                ps.setInt(1, RaceJobState.EXECUTING);
+                ps.setLong(2, nextTime);
+                ps.setLong(3, startTime);
+                ps.setLong(4, startTime);
+                setKey(ps, 5, instance, jobKey);
+                ps.setInt(8, RaceJobState.WAITING);
+                ps.setLong(9, nextTime);
+            });
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw new RaceJobException(e);
-        } finally {
-            close(connection);
         }
     }
 
+    @Override
+    public RaceJobClaim tryClaim(String instance, RaceJobKey jobKey, long nextTime, long startTime, long staleBefore) {
+        return tryClaim(instance, jobKey, nextTime, startTime, staleBefore, "");
+    }
+
+    /**
+     * A failed claim reads the row back on the same connection to tell why, and takes the job over if its owner went stale.
+     * A node losing the race runs two statements, a stale takeover three.
+     */
+    @Override
+    public RaceJobClaim tryClaim(String instance, RaceJobKey jobKey, long nextTime, long startTime, long staleBefore, String owner) {
+        return execute(session -> {
+            if (session.update(sql(UPDATE_CLAIM), ps -> {
+                bindClaim(ps, instance, jobKey, nextTime, startTime, owner);
+                ps.setInt(10, RaceJobState.WAITING);
+            }) > 0) {
+                return RaceJobClaim.WON;
+            }
+            RaceJobStatus status = session.first(sql(FIND_STATUS), ps -> setKey(ps, 1, instance, jobKey), this::toStatus);
+            if (status == null || !status.getEnabled()) return RaceJobClaim.DISABLED;
+            if (status.getNextTime() >= nextTime) return RaceJobClaim.LOST;
+            if (status.getState() == RaceJobState.EXECUTING && status.getLastActiveTime() <= staleBefore) {
+                int taken = session.update(sql(UPDATE_CLAIM_STALE), ps -> {
+                    bindClaim(ps, instance, jobKey, nextTime, startTime, owner);
+                    ps.setInt(10, RaceJobState.EXECUTING);
+                    ps.setLong(11, staleBefore);
+                });
+                if (taken > 0) return RaceJobClaim.STALE;
+            }
+            return RaceJobClaim.HELD;
+        });
+    }
+
+    private static void bindClaim(PreparedStatement ps, String instance, RaceJobKey jobKey, long nextTime, long startTime, String owner) throws SQLException {
+        ps.setInt(1, RaceJobState.EXECUTING);
+        ps.setLong(2, nextTime);
+        ps.setLong(3, startTime);
+        ps.setLong(4, startTime);
+        ps.setString(5, owner);
+        setKey(ps, 6, instance, jobKey);
+        ps.setLong(9, nextTime);
+    }
+
+    @Override
+    public List<RaceJob> claimDue(String instance, Collection<String> keys, long now, long staleBefore, int limit) {
+        return claimDue(instance, keys, now, staleBefore, limit, "");
+    }
+
+    @Override
+    public List<RaceJob> claimDue(String instance, Collection<String> keys, long now, long staleBefore, int limit, String owner) {
+        if (keys.isEmpty() || limit <= 0) return Collections.emptyList();
+        String claim = dialect.claimDue(keys.size());
+        if (claim != null) return transaction(session -> claimDue(session, claim, instance, keys, now, staleBefore, limit, owner));
+        return transaction(session -> {
+            List<RaceJob> jobs = new ArrayList<>();
+            List<Long> dueTimes = new ArrayList<>();
+            findDue(session, FIND_DUE, keys, limit, jobs, dueTimes, ps -> {
+                ps.setString(1, instance);
+                ps.setInt(2, RaceJobState.WAITING);
+                ps.setLong(3, now);
+            }, 4);
+            int staleFrom = jobs.size();
+            if (jobs.size() < limit) {
+                findDue(session, FIND_STALE, keys, limit - jobs.size(), jobs, dueTimes, ps -> {
+                    ps.setString(1, instance);
+                    ps.setInt(2, RaceJobState.EXECUTING);
+                    ps.setLong(3, now);
+                    ps.setLong(4, staleBefore);
+                }, 5);
+            }
+            return claimDue(session, instance, now, staleBefore, owner, jobs, dueTimes, staleFrom);
+        });
+    }
+
+    /**
+     * @param binder binds the parameters before the key list
+     * @param index  index of the first key parameter
+     */
+    private void findDue(
+            Session session, String sql, Collection<String> keys, int limit
+            , List<RaceJob> jobs, List<Long> dueTimes, Binder binder, int index
+    ) throws SQLException {
+        sql = String.format(sql(sql), String.join(",", Collections.nCopies(keys.size(), "?")));
+        if (skipLocked) sql += " FOR UPDATE SKIP LOCKED";
+        session.query(sql, ps -> {
+            binder.bind(ps);
+            int i = index;
+            for (String key : keys) {
+                ps.setString(i++, key);
+            }
+            ps.setInt(i, limit);
+        }, rs -> {
+            jobs.add(to(rs));
+            dueTimes.add(rs.getLong(11));
+        });
+    }
+
+    /**
+     * Without row locks the update only succeeds if next_time is still the one that was read.
+     *
+     * @param staleFrom index of the first job read by {@link #FIND_STALE}
+     */
+    private List<RaceJob> claimDue(
+            Session session, String instance, long now, long staleBefore, String owner
+            , List<RaceJob> jobs, List<Long> dueTimes, int staleFrom
+    ) throws SQLException {
+        if (jobs.isEmpty()) return Collections.emptyList();
+        List<RaceJob> candidates = new ArrayList<>(jobs.size());
+        List<Integer> candidateIndexes = new ArrayList<>(jobs.size());
+        PreparedStatement ps = session.prepare(sql(UPDATE_DUE));
+        for (int i = 0; i < jobs.size(); i++) {
+            RaceJob job = jobs.get(i);
+            long nextTime;
+            try {
+                nextTime = JobUtil.getNextTime(job.getCron(), job.getTimezone());
+            } catch (Exception e) {
+                log.warn("{} {}", job, e.getMessage());
+                continue;
+            }
+            ps.setInt(1, RaceJobState.EXECUTING);
+            ps.setLong(2, nextTime);
+            ps.setLong(3, now);
+            ps.setLong(4, now);
+            ps.setString(5, owner);
+            setKey(ps, 6, instance, job.toKey());
+            ps.setLong(9, dueTimes.get(i));
+            ps.setInt(10, RaceJobState.WAITING);
+            ps.setInt(11, RaceJobState.EXECUTING);
+            ps.setLong(12, staleBefore);
+            ps.addBatch();
+            candidates.add(job);
+            candidateIndexes.add(i);
+        }
+        if (candidates.isEmpty()) return candidates;
+        int[] counts = ps.executeBatch();
+        List<RaceJob> result = new ArrayList<>(candidates.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                int index = candidateIndexes.get(i);
+                result.add(candidates.get(i));
+                metrics.recordFireLag(now - dueTimes.get(index));
+                metrics.recordClaim(index >= staleFrom ? RaceJobClaim.STALE : RaceJobClaim.WON);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Claim with one locking statement, then set the next times computed from the crons of the claimed rows.
+     * A row with an invalid cron is released again.
+     */
+    private List<RaceJob> claimDue(
+            Session session, String claim, String instance, Collection<String> keys, long now, long staleBefore, int limit, String owner
+    ) throws SQLException {
+        List<RaceJob> jobs = new ArrayList<>();
+        List<Long> dueTimes = new ArrayList<>();
+        List<Boolean> stales = new ArrayList<>();
+        session.query(claim, ps -> {
+            int i = 1;
+            ps.setString(i++, instance);
+            ps.setLong(i++, now);
+            for (String key : keys) {
+                ps.setString(i++, key);
+            }
+            ps.setInt(i++, RaceJobState.WAITING);
+            ps.setInt(i++, RaceJobState.EXECUTING);
+            ps.setLong(i++, staleBefore);
+            ps.setInt(i++, limit);
+            ps.setInt(i++, RaceJobState.EXECUTING);
+            ps.setLong(i++, now);
+            ps.setLong(i++, now);
+            ps.setString(i, owner);
+        }, rs -> {
+            jobs.add(to(rs));
+            dueTimes.add(rs.getLong(11));
+            stales.add(rs.getInt(12) == RaceJobState.EXECUTING);
+        });
+        if (jobs.isEmpty()) return Collections.emptyList();
+
+        List<Integer> order = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer, Boolean>comparing(stales::get).thenComparing(dueTimes::get));
+        PreparedStatement update = session.prepare(sql(UPDATE_NEXT_TIME));
+        List<RaceJob> result = new ArrayList<>(jobs.size());
+        for (int index : order) {
+            RaceJob job = jobs.get(index);
+            try {
+                update.setLong(1, JobUtil.getNextTime(job.getCron(), job.getTimezone()));
+            } catch (Exception e) {
+                log.warn("{} {}", job, e.getMessage());
+                session.update(sql(UPDATE_STATE), ps -> {
+                    ps.setInt(1, RaceJobState.WAITING);
+                    ps.setLong(2, now);
+                    setKey(ps, 3, instance, job.toKey());
+                });
+                continue;
+            }
+            setKey(update, 2, instance, job.toKey());
+            update.addBatch();
+            result.add(job);
+            metrics.recordFireLag(now - dueTimes.get(index));
+            metrics.recordClaim(stales.get(index) ? RaceJobClaim.STALE : RaceJobClaim.WON);
+        }
+        if (!result.isEmpty()) update.executeBatch();
+        return result;
+    }
+
     @Override
     public int compete(String instance, RaceJobKey jobKey, long startTime) {
-        Connection connection = null;
         try {
-            connection = dataSource.getConnection();
-            PreparedStatement ps = connection.prepareStatement(UPDATE_EXECUTING_BY_START_TIME);
-            setValue(ps, startTime, instance, jobKey.getGroup(), jobKey.getName(), startTime);
-            return ps.executeUpdate();
+            return executor.update(sql(UPDATE_EXECUTING_BY_START_TIME), ps -> {
+                ps.setLong(1, startTime);
+                setKey(ps, 2, instance, jobKey);
+                ps.setLong(5, startTime);
+            });
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw new RaceJobException(e);
-        } finally {
-            close(connection);
         }
     }
 
     @Override
     public int finish(String instance, RaceJobKey jobKey, long endTime) {
-        Connection connection = null;
         try {
-            connection = dataSource.getConnection();
-            PreparedStatement ps = connection.prepareStatement(UPDATE_STATE);
-            setValue(ps, RaceJobState.WAITING, endTime, instance, jobKey.getGroup(), jobKey.getName());
-            return ps.executeUpdate();
+            return executor.update(sql(UPDATE_STATE), ps -> {
+                ps.setInt(1, RaceJobState.WAITING);
+                ps.setLong(2, endTime);
+                setKey(ps, 3, instance, jobKey);
+            });
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw new RaceJobException(e);
-        } finally {
-            close(connection);
         }
     }
 
-    public RaceJobStatus getStatus(String instance, RaceJobKey jobKey) {
-        Connection connection = null;
+    @Override
+    public int finish(String instance, RaceJobKey jobKey, long endTime, String owner) {
         try {
-            connection = dataSource.getConnection();
-            PreparedStatement ps = connection.prepareStatement(FIND_STATUS);
-            setValue(ps, instance, jobKey.getGroup(), jobKey.getName());
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return new RaceJobStatus(rs.getInt(1), rs.getLong(2), rs.getLong(3), rs.getBoolean(4));
-            }
-            return null;
+            return executor.update(sql(UPDATE_OWNED_STATE), ps -> {
+                ps.setInt(1, RaceJobState.WAITING);
+                ps.setLong(2, endTime);
+                setKey(ps, 3, instance, jobKey);
+                ps.setString(6, owner);
+            });
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw new RaceJobException(e);
-        } finally {
-            close(connection);
         }
     }
 
-    private int executeUpdate(String sql, Object... parameters) {
-        log.debug(sql);
-        Connection connection = null;
+    public RaceJobStatus getStatus(String instance, RaceJobKey jobKey) {
         try {
-            connection = dataSource.getConnection();
-            PreparedStatement ps = connection.prepareStatement(sql);
-            setValue(ps, parameters);
-            return ps.executeUpdate();
+            return executor.first(sql(FIND_STATUS), ps -> setKey(ps, 1, instance, jobKey)
+                    , this::toStatus);
         } catch (Exception e) {
+            log.error(e.getMessage(), e);
             throw new RaceJobException(e);
-        } finally {
-            close(connection);
         }
     }
 
-    private void setValue(PreparedStatement ps, Object... parameters) throws SQLException {
-        int index = 1;
-        for (Object parameter : parameters) {
-            ps.setObject(index++, parameter);
+    @Override
+    public int releaseOrphans(String instance, long aliveAfter) {
+        return executeUpdate(RELEASE_ORPHANS, ps -> {
+            ps.setInt(1, RaceJobState.WAITING);
+            ps.setString(2, instance);
+            ps.setInt(3, RaceJobState.EXECUTING);
+            ps.setString(4, instance);
+            ps.setLong(5, aliveAfter);
+        });
+    }
+
+    @Override
+    public void heartbeat(String instance, RaceJobNode node) {
+        String handlerKeys = String.join(HANDLER_KEY_SPLIT, node.getHandlerKeys());
+        Binder update = ps -> {
+            ps.setLong(1, node.getHeartbeatTime());
+            ps.setString(2, handlerKeys);
+            ps.setInt(3, node.getCapacity());
+            ps.setString(4, instance);
+            ps.setString(5, node.getNodeId());
+        };
+        execute(session -> {
+            if (session.update(sql(UPDATE_NODE), update) > 0) return null;
+            try {
+                session.update(sql(INSERT_NODE), ps -> {
+                    ps.setString(1, instance);
+                    ps.setString(2, node.getNodeId());
+                    ps.setLong(3, node.getHeartbeatTime());
+                    ps.setString(4, handlerKeys);
+                    ps.setInt(5, node.getCapacity());
+                });
+            } catch (SQLException e) {
+                session.update(sql(UPDATE_NODE), update);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<RaceJobNode> findNodes(String instance, long aliveAfter) {
+        return execute(session -> session.list(sql(FIND_NODES), ps -> {
+            ps.setString(1, instance);
+            ps.setLong(2, aliveAfter);
+        }, rs -> {
+            String handlerKeys = rs.getString(3);
+            return new RaceJobNode(rs.getString(1), rs.getLong(2), handlerKeys == null || handlerKeys.isEmpty()
+                    ? Collections.emptySet()
+                    : new HashSet<>(Arrays.asList(handlerKeys.split(HANDLER_KEY_SPLIT))), rs.getInt(4));
+        }));
+    }
+
+    @Override
+    public int deleteNode(String instance, String nodeId) {
+        return executeUpdate(DELETE_NODE, ps -> {
+            ps.setString(1, instance);
+            ps.setString(2, nodeId);
+        });
+    }
+
+    @Override
+    public int deleteNodes(String instance, long heartbeatBefore) {
+        return executeUpdate(DELETE_STALE_NODES, ps -> {
+            ps.setString(1, instance);
+            ps.setLong(2, heartbeatBefore);
+        });
+    }
+
+    @Override
+    public boolean acquireLease(String instance, String name, String owner, long now, long expireTime) {
+        return execute(session -> {
+            if (session.update(sql(UPDATE_LEASE), ps -> {
+                ps.setString(1, owner);
+                ps.setLong(2, expireTime);
+                ps.setString(3, instance);
+                ps.setString(4, name);
+                ps.setString(5, owner);
+                ps.setLong(6, now);
+            }) > 0) return true;
+            try {
+                return session.update(sql(INSERT_LEASE), ps -> {
+                    ps.setString(1, instance);
+                    ps.setString(2, name);
+                    ps.setString(3, owner);
+                    ps.setLong(4, expireTime);
+                }) > 0;
+            } catch (SQLException e) {
+                // held by another node
+                return false;
+            }
+        });
+    }
+
+    @Override
+    public int releaseLease(String instance, String name, String owner) {
+        return executeUpdate(DELETE_LEASE, ps -> {
+            ps.setString(1, instance);
+            ps.setString(2, name);
+            ps.setString(3, owner);
+        });
+    }
+
+    /**
+     * Run the query once per chunk of keys, the template takes one key condition list.
+     */
+    private void findByKeys(
+            Session session, String template, String instance, Collection<RaceJobKey> jobKeys, RowHandler handler
+    ) throws SQLException {
+        List<RaceJobKey> keys = jobKeys instanceof List ? (List<RaceJobKey>) jobKeys : new ArrayList<>(jobKeys);
+        for (int from = 0; from < keys.size(); from += FIND_KEYS_CHUNK) {
+            List<RaceJobKey> chunk = keys.subList(from, Math.min(keys.size(), from + FIND_KEYS_CHUNK));
+            String sql = String.format(sql(template), String.join(" OR ", Collections.nCopies(chunk.size(), sql(FIND_KEYS_CONDITION))));
+            session.query(sql, ps -> {
+                int index = 1;
+                ps.setString(index++, instance);
+                for (RaceJobKey jobKey : chunk) {
+                    ps.setString(index++, jobKey.getGroup());
+                    ps.setString(index++, jobKey.getName());
+                }
+            }, handler);
         }
     }
 
-    private void close(Connection connection) {
-        if (connection == null) return;
+    private void saveTombstone(Session session, String instance, RaceJobKey jobKey, long revision) throws SQLException {
+        Binder update = ps -> {
+            ps.setLong(1, revision);
+            setKey(ps, 2, instance, jobKey);
+        };
+        if (session.update(sql(UPDATE_TOMBSTONE), update) > 0) return;
         try {
-            connection.close();
+            session.update(sql(INSERT_TOMBSTONE), ps -> {
+                setKey(ps, 1, instance, jobKey);
+                ps.setLong(4, revision);
+            });
         } catch (SQLException e) {
-            log.error(e.getMessage(), e);
+            // inserted by another node at the same time
+            session.update(sql(UPDATE_TOMBSTONE), update);
+        }
+    }
+
+    private <T> T execute(SessionCallback<T> callback) {
+        try {
+            return executor.execute(callback);
+        } catch (RaceJobException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RaceJobException(e);
         }
     }
 
-    private RaceJob to(ResultSet rs) throws SQLException, JsonProcessingException {
+    private <T> T transaction(SessionCallback<T> callback) {
+        try {
+            return executor.transaction(callback);
+        } catch (RaceJobException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RaceJobException(e);
+        }
+    }
+
+    private int executeUpdate(String sql, Binder binder) {
+        return execute(session -> session.update(sql(sql), binder));
+    }
+
+    private String sql(String template) {
+        return dialect.sql(template);
+    }
+
+    private int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                total += count;
+            } else if (count == Statement.SUCCESS_NO_INFO) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Bind instance, group and name from the given index.
+     */
+    private static void setKey(PreparedStatement ps, int index, String instance, RaceJobKey jobKey) throws SQLException {
+        ps.setString(index, instance);
+        ps.setString(index + 1, jobKey.getGroup());
+        ps.setString(index + 2, jobKey.getName());
+    }
+
+    private static void bindInsert(PreparedStatement ps, String instance, RaceJob job, long nextTime, String data, long revision) throws SQLException {
+        ps.setString(1, instance);
+        ps.setString(2, job.getGroup());
+        ps.setString(3, job.getName());
+        ps.setString(4, job.getKey());
+        ps.setInt(5, job.getVersion());
+        ps.setString(6, job.getTimezone());
+        ps.setString(7, job.getDescription());
+        ps.setString(8, job.getCron());
+        ps.setString(9, job.getDependsKey());
+        ps.setLong(10, nextTime);
+        ps.setBoolean(11, job.getEnabled());
+        ps.setString(12, data);
+        ps.setLong(13, revision);
+    }
+
+    private static void bindUpdate(PreparedStatement ps, String instance, RaceJob job, long nextTime, String data, long revision) throws SQLException {
+        ps.setString(1, job.getKey());
+        ps.setInt(2, job.getVersion());
+        ps.setString(3, job.getTimezone());
+        ps.setString(4, job.getDescription());
+        ps.setString(5, job.getCron());
+        ps.setLong(6, nextTime);
+        ps.setString(7, job.getDependsKey());
+        ps.setString(8, data);
+        ps.setLong(9, revision);
+        setKey(ps, 10, instance, job.toKey());
+        ps.setInt(13, job.getVersion());
+    }
+
+    /**
+     * An unparsed payload is written back as is.
+     */
+    private String toJson(Map<String, Object> data) throws JsonProcessingException {
+        if (data instanceof RaceJobData && !((RaceJobData) data).isParsed()) {
+            return ((RaceJobData) data).getRaw();
+        }
+        return om.writeValueAsString(data);
+    }
+
+    private RaceJobStatus toStatus(ResultSet rs) throws SQLException {
+        return new RaceJobStatus(rs.getInt(1), rs.getLong(2), rs.getLong(3), rs.getBoolean(4));
+    }
+
+    private RaceJob to(ResultSet rs) throws SQLException {
         int index = 1;
-        return new RaceJob(rs.getString(index++), rs.getString(index++), rs.getString(index++), rs.getInt(index++), rs.getString(index++), rs.getString(index++), rs.getString(index++), rs.getString(index++), rs.getBoolean(index++), om.readValue(rs.getString(index), DATA_TYPE));
+        return new RaceJob(rs.getString(index++), rs.getString(index++), rs.getString(index++), rs.getInt(index++), rs.getString(index++), rs.getString(index++), rs.getString(index++), rs.getString(index++), rs.getBoolean(index++), new RaceJobData(rs.getString(index)));
     }
-}
\ No newline at end of file
+}
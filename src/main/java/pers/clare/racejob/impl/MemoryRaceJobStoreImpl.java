@@ -0,0 +1,566 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.constant.RaceJobState;
+import pers.clare.racejob.exception.RaceJobException;
+import pers.clare.racejob.util.JobUtil;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobChanges;
+import pers.clare.racejob.vo.RaceJobData;
+import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobNode;
+import pers.clare.racejob.vo.RaceJobStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Store backed by concurrent maps, visible only to schedulers in this JVM.
+ * <p>
+ * Rows are immutable and every conditional update is a compare-and-set of the whole row,
+ * with the same predicates as the statements of {@link JdbcRaceJobStoreImpl}.
+ * Jobs are returned as copies, callers may modify them freely.
+ */
+@Log4j2
+public class MemoryRaceJobStoreImpl implements RaceJobStore {
+    private final ConcurrentMap<String, Instance> instances = new ConcurrentHashMap<>();
+
+    private final RaceJobMetrics metrics;
+
+    public MemoryRaceJobStoreImpl() {
+        this(RaceJobMetrics.NOOP);
+    }
+
+    /**
+     * @param metrics receives the fire lag and stale takeovers of {@link #claimDue}
+     */
+    public MemoryRaceJobStoreImpl(RaceJobMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<RaceJob> findAll(String instance) {
+        if (instance == null) return Collections.emptyList();
+        List<RaceJob> result = new ArrayList<>();
+        for (Row row : get(instance).jobs.values()) {
+            result.add(row.toJob());
+        }
+        return result;
+    }
+
+    @Override
+    public List<RaceJob> findAll(String instance, String group) {
+        if (instance == null || group == null) return Collections.emptyList();
+        List<RaceJob> result = new ArrayList<>();
+        for (Row row : get(instance).jobs.values()) {
+            if (group.equals(row.job.getGroup())) result.add(row.toJob());
+        }
+        return result;
+    }
+
+    @Override
+    public RaceJob find(String instance, RaceJobKey jobKey) {
+        Row row = get(instance).jobs.get(jobKey);
+        return row == null ? null : row.toJob();
+    }
+
+    @Override
+    public List<RaceJob> find(String instance, Collection<RaceJobKey> jobKeys) {
+        if (jobKeys.isEmpty()) return Collections.emptyList();
+        Map<RaceJobKey, Row> jobs = get(instance).jobs;
+        List<RaceJob> result = new ArrayList<>(jobKeys.size());
+        for (RaceJobKey jobKey : jobKeys) {
+            Row row = jobs.get(jobKey);
+            if (row != null) result.add(row.toJob());
+        }
+        return result;
+    }
+
+    @Override
+    public RaceJobChanges findChangedSince(String instance, long revision) {
+        Instance data = get(instance);
+        List<RaceJob> jobs = new ArrayList<>();
+        for (Row row : data.jobs.values()) {
+            if (row.revision > revision) jobs.add(row.toJob());
+        }
+        List<RaceJobKey> removedKeys = new ArrayList<>();
+        data.tombstones.forEach((jobKey, tombstone) -> {
+            if (tombstone > revision) removedKeys.add(jobKey);
+        });
+        return new RaceJobChanges(jobs, removedKeys);
+    }
+
+    @Override
+    public int deleteTombstones(String instance, long revision) {
+        Map<RaceJobKey, Long> tombstones = get(instance).tombstones;
+        int count = 0;
+        for (Map.Entry<RaceJobKey, Long> entry : tombstones.entrySet()) {
+            if (entry.getValue() < revision && tombstones.remove(entry.getKey(), entry.getValue())) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void insert(String instance, RaceJob job, long nextTime) {
+        if (get(instance).jobs.putIfAbsent(job.toKey(), Row.insert(job, nextTime, revision())) != null) {
+            throw new RaceJobException("Duplicate job: " + job);
+        }
+    }
+
+    @Override
+    public void update(String instance, RaceJob job, long nextTime) {
+        long revision = revision();
+        cas(get(instance), job.toKey(), row -> row.job.getVersion() < job.getVersion(), row -> row.update(job, nextTime, revision));
+    }
+
+    @Override
+    public int upsert(String instance, List<RaceJob> jobs, long[] nextTimes) {
+        Instance data = get(instance);
+        long revision = revision();
+        int count = 0;
+        for (int i = 0; i < jobs.size(); i++) {
+            RaceJob job = jobs.get(i);
+            long nextTime = nextTimes[i];
+            if (data.jobs.putIfAbsent(job.toKey(), Row.insert(job, nextTime, revision)) == null) {
+                count++;
+                continue;
+            }
+            count += cas(data, job.toKey(), row -> row.job.getVersion() < job.getVersion(), row -> row.update(job, nextTime, revision));
+        }
+        return count;
+    }
+
+    @Override
+    public void updateActive(String instance, RaceJob job, long activeTime) {
+        cas(get(instance), job.toKey(), row -> true, row -> row.active(activeTime));
+    }
+
+    @Override
+    public int updateActive(String instance, Collection<RaceJobKey> jobKeys, long activeTime) {
+        Instance data = get(instance);
+        int count = 0;
+        for (RaceJobKey jobKey : jobKeys) {
+            count += cas(data, jobKey, row -> true, row -> row.active(activeTime));
+        }
+        return count;
+    }
+
+    @Override
+    public void delete(String instance, RaceJobKey jobKey) {
+        Instance data = get(instance);
+        data.jobs.remove(jobKey);
+        data.tombstones.put(jobKey, revision());
+    }
+
+    @Override
+    public int delete(String instance, Collection<RaceJobKey> jobKeys) {
+        Instance data = get(instance);
+        long revision = revision();
+        int count = 0;
+        for (RaceJobKey jobKey : jobKeys) {
+            if (data.jobs.remove(jobKey) != null) count++;
+            data.tombstones.put(jobKey, revision);
+        }
+        return count;
+    }
+
+    @Override
+    public void enable(String instance, RaceJobKey jobKey) {
+        long revision = revision();
+        cas(get(instance), jobKey, row -> true, row -> row.enabled(true, revision));
+    }
+
+    @Override
+    public void disable(String instance, RaceJobKey jobKey) {
+        long revision = revision();
+        cas(get(instance), jobKey, row -> true, row -> row.enabled(false, revision));
+    }
+
+    @Override
+    public int enableGroup(String instance, String group) {
+        return setGroupEnabled(get(instance), group, true);
+    }
+
+    @Override
+    public int disableGroup(String instance, String group) {
+        return setGroupEnabled(get(instance), group, false);
+    }
+
+    private int setGroupEnabled(Instance data, String group, boolean enabled) {
+        long revision = revision();
+        int count = 0;
+        for (RaceJobKey jobKey : data.jobs.keySet()) {
+            if (!group.equals(jobKey.getGroup())) continue;
+            count += cas(data, jobKey, row -> row.enabled != enabled, row -> row.enabled(enabled, revision));
+        }
+        return count;
+    }
+
+    @Override
+    public int deleteGroup(String instance, String group) {
+        Instance data = get(instance);
+        long revision = revision();
+        int count = 0;
+        for (RaceJobKey jobKey : data.jobs.keySet()) {
+            if (!group.equals(jobKey.getGroup())) continue;
+            data.tombstones.put(jobKey, revision);
+            if (data.jobs.remove(jobKey) != null) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public RaceJobStatus getStatus(String instance, RaceJobKey jobKey) {
+        Row row = get(instance).jobs.get(jobKey);
+        return row == null ? null : new RaceJobStatus(row.state, row.nextTime, row.lastActiveTime, row.enabled);
+    }
+
+    @Override
+    public int release(String instance, RaceJobKey jobKey, long nextTime) {
+        return cas(get(instance), jobKey
+                , row -> row.state == RaceJobState.EXECUTING && row.nextTime < nextTime
+                , row -> row.finish(row.endTime));
+    }
+
+    @Override
+    public int compete(String instance, RaceJobKey jobKey, long nextTime, long startTime) {
+        return cas(get(instance), jobKey
+                , row -> row.enabled && row.state == RaceJobState.WAITING && row.nextTime < nextTime
+                , row -> row.claim(nextTime, startTime, ""));
+    }
+
+    @Override
+    public RaceJobClaim tryClaim(String instance, RaceJobKey jobKey, long nextTime, long startTime, long staleBefore) {
+        return tryClaim(instance, jobKey, nextTime, startTime, staleBefore, "");
+    }
+
+    @Override
+    public RaceJobClaim tryClaim(String instance, RaceJobKey jobKey, long nextTime, long startTime, long staleBefore, String owner) {
+        Instance data = get(instance);
+        while (true) {
+            Row row = data.jobs.get(jobKey);
+            if (row == null || !row.enabled) return RaceJobClaim.DISABLED;
+            if (row.nextTime >= nextTime) return RaceJobClaim.LOST;
+            if (!row.isClaimable(staleBefore)) return RaceJobClaim.HELD;
+            if (data.jobs.replace(jobKey, row, row.claim(nextTime, startTime, owner))) {
+                return row.state == RaceJobState.EXECUTING ? RaceJobClaim.STALE : RaceJobClaim.WON;
+            }
+        }
+    }
+
+    @Override
+    public List<RaceJob> claimDue(String instance, Collection<String> keys, long now, long staleBefore, int limit) {
+        return claimDue(instance, keys, now, staleBefore, limit, "");
+    }
+
+    /**
+     * Scans all jobs of the instance, suited to the job counts of a single node.
+     */
+    @Override
+    public List<RaceJob> claimDue(String instance, Collection<String> keys, long now, long staleBefore, int limit, String owner) {
+        if (keys.isEmpty() || limit <= 0) return Collections.emptyList();
+        Instance data = get(instance);
+        Set<String> handlerKeys = keys instanceof Set ? (Set<String>) keys : new HashSet<>(keys);
+        List<Row> due = new ArrayList<>();
+        List<Row> stale = new ArrayList<>();
+        for (Row row : data.jobs.values()) {
+            if (!row.enabled || row.job.getCron().isEmpty() || row.nextTime > now || !handlerKeys.contains(row.job.getKey())) continue;
+            if (row.state == RaceJobState.WAITING) {
+                due.add(row);
+            } else if (row.isClaimable(staleBefore)) {
+                stale.add(row);
+            }
+        }
+        due.sort(Comparator.comparingLong(row -> row.nextTime));
+        stale.sort(Comparator.comparingLong(row -> row.nextTime));
+        List<RaceJob> result = new ArrayList<>(Math.min(limit, due.size() + stale.size()));
+        for (int i = 0; i < due.size() + stale.size() && result.size() < limit; i++) {
+            boolean isStale = i >= due.size();
+            Row row = isStale ? stale.get(i - due.size()) : due.get(i);
+            long nextTime;
+            try {
+                nextTime = JobUtil.getNextTime(row.job.getCron(), row.job.getTimezone());
+            } catch (Exception e) {
+                log.warn("{} {}", row.job, e.getMessage());
+                continue;
+            }
+            // Same as the JDBC batch update, the row must still have the due time that was read.
+            if (!row.isClaimable(staleBefore) || !data.jobs.replace(row.job.toKey(), row, row.claim(nextTime, now, owner))) continue;
+            result.add(row.toJob());
+            metrics.recordFireLag(now - row.nextTime);
+            metrics.recordClaim(isStale ? RaceJobClaim.STALE : RaceJobClaim.WON);
+        }
+        return result;
+    }
+
+    @Override
+    public int compete(String instance, RaceJobKey jobKey, long startTime) {
+        return cas(get(instance), jobKey, row -> row.startTime < startTime, row -> row.start(startTime));
+    }
+
+    @Override
+    public int finish(String instance, RaceJobKey jobKey, long endTime) {
+        return cas(get(instance), jobKey, row -> true, row -> row.finish(endTime));
+    }
+
+    @Override
+    public int finish(String instance, RaceJobKey jobKey, long endTime, String owner) {
+        return cas(get(instance), jobKey, row -> row.owner.isEmpty() || row.owner.equals(owner), row -> row.finish(endTime));
+    }
+
+    @Override
+    public int releaseOrphans(String instance, long aliveAfter) {
+        return releaseOrphans(instance, aliveAfter, jobKey -> {
+        });
+    }
+
+    /**
+     * @param released receives each released job
+     */
+    int releaseOrphans(String instance, long aliveAfter, Consumer<RaceJobKey> released) {
+        Instance data = get(instance);
+        int count = 0;
+        for (RaceJobKey jobKey : data.jobs.keySet()) {
+            if (cas(data, jobKey, row -> row.state == RaceJobState.EXECUTING && !row.owner.isEmpty() && !isAlive(data, row.owner, aliveAfter)
+                    , row -> row.finish(row.endTime)) == 0) continue;
+            released.accept(jobKey);
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean isAlive(Instance data, String nodeId, long aliveAfter) {
+        RaceJobNode node = data.nodes.get(nodeId);
+        return node != null && node.getHeartbeatTime() >= aliveAfter;
+    }
+
+    @Override
+    public void heartbeat(String instance, RaceJobNode node) {
+        get(instance).nodes.put(node.getNodeId(), new RaceJobNode(node.getNodeId(), node.getHeartbeatTime(), Set.copyOf(node.getHandlerKeys()), node.getCapacity()));
+    }
+
+    @Override
+    public List<RaceJobNode> findNodes(String instance, long aliveAfter) {
+        List<RaceJobNode> result = new ArrayList<>();
+        for (RaceJobNode node : get(instance).nodes.values()) {
+            if (node.getHeartbeatTime() >= aliveAfter) result.add(node);
+        }
+        return result;
+    }
+
+    @Override
+    public int deleteNode(String instance, String nodeId) {
+        return get(instance).nodes.remove(nodeId) == null ? 0 : 1;
+    }
+
+    @Override
+    public int deleteNodes(String instance, long heartbeatBefore) {
+        ConcurrentMap<String, RaceJobNode> nodes = get(instance).nodes;
+        int count = 0;
+        for (RaceJobNode node : nodes.values()) {
+            if (node.getHeartbeatTime() < heartbeatBefore && nodes.remove(node.getNodeId(), node)) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean acquireLease(String instance, String name, String owner, long now, long expireTime) {
+        ConcurrentMap<String, Lease> leases = get(instance).leases;
+        Lease lease = new Lease(owner, expireTime);
+        while (true) {
+            Lease current = leases.get(name);
+            if (current == null) {
+                if (leases.putIfAbsent(name, lease) == null) return true;
+            } else if (current.owner.equals(owner) || current.expireTime < now) {
+                if (leases.replace(name, current, lease)) return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public int releaseLease(String instance, String name, String owner) {
+        ConcurrentMap<String, Lease> leases = get(instance).leases;
+        Lease current = leases.get(name);
+        if (current == null || !current.owner.equals(owner)) return 0;
+        return leases.remove(name, current) ? 1 : 0;
+    }
+
+    /**
+     * Revision of jobs and tombstones changed now.
+     */
+    protected long revision() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Visit every job with its runtime columns, for stores that persist the state.
+     */
+    void forEachRow(RowVisitor visitor) {
+        instances.forEach((instance, data) -> data.jobs.values().forEach(row -> visitor.visit(instance, row.toJob()
+                , row.state, row.nextTime, row.prevTime, row.startTime, row.endTime, row.lastActiveTime, row.revision)));
+    }
+
+    void forEachTombstone(TombstoneVisitor visitor) {
+        instances.forEach((instance, data) -> data.tombstones.forEach((jobKey, revision) -> visitor.visit(instance, jobKey, revision)));
+    }
+
+    /**
+     * Put a row as it was visited, replacing any existing one. The job is kept as is, the caller must not modify it.
+     */
+    void restoreRow(String instance, RaceJob job, int state, long nextTime, long prevTime, long startTime, long endTime, long lastActiveTime, long revision) {
+        get(instance).jobs.put(job.toKey(), new Row(job, job.getEnabled(), state, nextTime, prevTime, startTime, endTime, lastActiveTime, revision, ""));
+    }
+
+    void restoreTombstone(String instance, RaceJobKey jobKey, long revision) {
+        get(instance).tombstones.put(jobKey, revision);
+    }
+
+    interface RowVisitor {
+        void visit(String instance, RaceJob job, int state, long nextTime, long prevTime, long startTime, long endTime, long lastActiveTime, long revision);
+    }
+
+    interface TombstoneVisitor {
+        void visit(String instance, RaceJobKey jobKey, long revision);
+    }
+
+    private Instance get(String instance) {
+        return instances.computeIfAbsent(instance, k -> new Instance());
+    }
+
+    /**
+     * Replace the row while the condition holds.
+     *
+     * @return 1 if replaced, 0 if the row does not exist or the condition does not hold
+     */
+    private int cas(Instance data, RaceJobKey jobKey, Predicate<Row> condition, UnaryOperator<Row> update) {
+        while (true) {
+            Row row = data.jobs.get(jobKey);
+            if (row == null || !condition.test(row)) return 0;
+            if (data.jobs.replace(jobKey, row, update.apply(row))) return 1;
+        }
+    }
+
+    private static class Instance {
+        private final ConcurrentMap<RaceJobKey, Row> jobs = new ConcurrentHashMap<>();
+        private final ConcurrentMap<RaceJobKey, Long> tombstones = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, RaceJobNode> nodes = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Compared by identity, a compare-and-set fails if any field changed since the read.
+     */
+    private static class Lease {
+        private final String owner;
+        private final long expireTime;
+
+        Lease(String owner, long expireTime) {
+            this.owner = owner;
+            this.expireTime = expireTime;
+        }
+    }
+
+    /**
+     * Immutable job row, compared by identity. {@link #job} holds the definition columns, enabled is kept in the row.
+     */
+    private static class Row {
+        private final RaceJob job;
+        private final boolean enabled;
+        private final int state;
+        private final long nextTime;
+        private final long prevTime;
+        private final long startTime;
+        private final long endTime;
+        private final long lastActiveTime;
+        private final long revision;
+        /**
+         * Node that claimed the job, empty when waiting or claimed without a node.
+         */
+        private final String owner;
+
+        private Row(RaceJob job, boolean enabled, int state, long nextTime, long prevTime, long startTime, long endTime, long lastActiveTime, long revision, String owner) {
+            this.job = job;
+            this.enabled = enabled;
+            this.state = state;
+            this.nextTime = nextTime;
+            this.prevTime = prevTime;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.lastActiveTime = lastActiveTime;
+            this.revision = revision;
+            this.owner = owner;
+        }
+
+        static Row insert(RaceJob job, long nextTime, long revision) {
+            return new Row(copy(job), job.getEnabled(), RaceJobState.WAITING, nextTime, 0, 0, 0, 0, revision, "");
+        }
+
+        /**
+         * Definition columns only, like the JDBC update the enabled flag is left alone.
+         */
+        Row update(RaceJob job, long nextTime, long revision) {
+            return new Row(copy(job), enabled, state, nextTime, prevTime, startTime, endTime, lastActiveTime, revision, owner);
+        }
+
+        Row enabled(boolean enabled, long revision) {
+            return new Row(job, enabled, state, nextTime, prevTime, startTime, endTime, lastActiveTime, revision, owner);
+        }
+
+        Row active(long activeTime) {
+            return new Row(job, enabled, state, nextTime, prevTime, startTime, endTime, activeTime, revision, owner);
+        }
+
+        Row claim(long nextTime, long startTime, String owner) {
+            return new Row(job, enabled, RaceJobState.EXECUTING, nextTime, this.startTime, startTime, 0, startTime, revision, owner);
+        }
+
+        Row start(long startTime) {
+            return new Row(job, enabled, state, nextTime, this.startTime, startTime, 0, lastActiveTime, revision, owner);
+        }
+
+        Row finish(long endTime) {
+            return new Row(job, enabled, RaceJobState.WAITING, nextTime, prevTime, startTime, endTime, lastActiveTime, revision, "");
+        }
+
+        /**
+         * A job claimed by a node is only claimable after it was released as an orphan.
+         */
+        boolean isClaimable(long staleBefore) {
+            return state == RaceJobState.WAITING || (state == RaceJobState.EXECUTING && owner.isEmpty() && lastActiveTime <= staleBefore);
+        }
+
+        RaceJob toJob() {
+            RaceJob copy = copy(job);
+            copy.setEnabled(enabled);
+            return copy;
+        }
+
+        /**
+         * Job data is read-only, {@link RaceJobData} is shared and other maps are copied.
+         */
+        private static RaceJob copy(RaceJob job) {
+            Map<String, Object> data = job.getData();
+            if (!(data instanceof RaceJobData)) {
+                data = Collections.unmodifiableMap(new LinkedHashMap<>(data));
+            }
+            return job.toBuilder().data(data).build();
+        }
+    }
+}
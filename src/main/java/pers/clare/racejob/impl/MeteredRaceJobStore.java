@@ -0,0 +1,234 @@
+package pers.clare.racejob.impl;
+
+import org.springframework.lang.NonNull;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobChanges;
+import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobNode;
+import pers.clare.racejob.vo.RaceJobStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records the latency of every store call, tagged with the statement it runs.
+ * Overloads running other statements get their own statement names, the variants recording the claim owner share theirs.
+ */
+public class MeteredRaceJobStore implements RaceJobStore {
+    private final RaceJobStore delegate;
+
+    private final RaceJobMetrics metrics;
+
+    public MeteredRaceJobStore(@NonNull RaceJobStore delegate, @NonNull RaceJobMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<RaceJob> findAll(String instance) {
+        return time("findAll", () -> delegate.findAll(instance));
+    }
+
+    @Override
+    public List<RaceJob> findAll(String instance, String group) {
+        return time("findAllByGroup", () -> delegate.findAll(instance, group));
+    }
+
+    @Override
+    public RaceJob find(String instance, RaceJobKey jobKey) {
+        return time("find", () -> delegate.find(instance, jobKey));
+    }
+
+    @Override
+    public List<RaceJob> find(String instance, Collection<RaceJobKey> jobKeys) {
+        return time("findByKeys", () -> delegate.find(instance, jobKeys));
+    }
+
+    @Override
+    public RaceJobChanges findChangedSince(String instance, long revision) {
+        return time("findChangedSince", () -> delegate.findChangedSince(instance, revision));
+    }
+
+    @Override
+    public int deleteTombstones(String instance, long revision) {
+        return time("deleteTombstones", () -> delegate.deleteTombstones(instance, revision));
+    }
+
+    @Override
+    public void insert(String instance, RaceJob job, long nextTime) {
+        run("insert", () -> delegate.insert(instance, job, nextTime));
+    }
+
+    @Override
+    public void update(String instance, RaceJob job, long nextTime) {
+        run("update", () -> delegate.update(instance, job, nextTime));
+    }
+
+    @Override
+    public RaceJob save(String instance, RaceJob job, long nextTime) {
+        return time("save", () -> delegate.save(instance, job, nextTime));
+    }
+
+    @Override
+    public int upsert(String instance, List<RaceJob> jobs, long[] nextTimes) {
+        return time("upsert", () -> delegate.upsert(instance, jobs, nextTimes));
+    }
+
+    @Override
+    public void updateActive(String instance, RaceJob job, long activeTime) {
+        run("updateActive", () -> delegate.updateActive(instance, job, activeTime));
+    }
+
+    @Override
+    public int updateActive(String instance, Collection<RaceJobKey> jobKeys, long activeTime) {
+        return time("updateActiveBatch", () -> delegate.updateActive(instance, jobKeys, activeTime));
+    }
+
+    @Override
+    public void delete(String instance, RaceJobKey jobKey) {
+        run("delete", () -> delegate.delete(instance, jobKey));
+    }
+
+    @Override
+    public int delete(String instance, Collection<RaceJobKey> jobKeys) {
+        return time("deleteBatch", () -> delegate.delete(instance, jobKeys));
+    }
+
+    @Override
+    public void enable(String instance, RaceJobKey jobKey) {
+        run("enable", () -> delegate.enable(instance, jobKey));
+    }
+
+    @Override
+    public void disable(String instance, RaceJobKey jobKey) {
+        run("disable", () -> delegate.disable(instance, jobKey));
+    }
+
+    @Override
+    public int enableGroup(String instance, String group) {
+        return time("enableGroup", () -> delegate.enableGroup(instance, group));
+    }
+
+    @Override
+    public int disableGroup(String instance, String group) {
+        return time("disableGroup", () -> delegate.disableGroup(instance, group));
+    }
+
+    @Override
+    public int deleteGroup(String instance, String group) {
+        return time("deleteGroup", () -> delegate.deleteGroup(instance, group));
+    }
+
+    @Override
+    public RaceJobStatus getStatus(String instance, RaceJobKey jobKey) {
+        return time("getStatus", () -> delegate.getStatus(instance, jobKey));
+    }
+
+    @Override
+    public int release(String instance, RaceJobKey jobKey, long nextTime) {
+        return time("release", () -> delegate.release(instance, jobKey, nextTime));
+    }
+
+    @Override
+    public int compete(String instance, RaceJobKey jobKey, long nextTime, long startTime) {
+        return time("compete", () -> delegate.compete(instance, jobKey, nextTime, startTime));
+    }
+
+    @Override
+    public RaceJobClaim tryClaim(String instance, RaceJobKey jobKey, long nextTime, long startTime, long staleBefore) {
+        return time("tryClaim", () -> delegate.tryClaim(instance, jobKey, nextTime, startTime, staleBefore));
+    }
+
+    @Override
+    public List<RaceJob> claimDue(String instance, Collection<String> keys, long now, long staleBefore, int limit) {
+        return time("claimDue", () -> delegate.claimDue(instance, keys, now, staleBefore, limit));
+    }
+
+    @Override
+    public RaceJobClaim tryClaim(String instance, RaceJobKey jobKey, long nextTime, long startTime, long staleBefore, String owner) {
+        return time("tryClaim", () -> delegate.tryClaim(instance, jobKey, nextTime, startTime, staleBefore, owner));
+    }
+
+    @Override
+    public List<RaceJob> claimDue(String instance, Collection<String> keys, long now, long staleBefore, int limit, String owner) {
+        return time("claimDue", () -> delegate.claimDue(instance, keys, now, staleBefore, limit, owner));
+    }
+
+    @Override
+    public int releaseOrphans(String instance, long aliveAfter) {
+        return time("releaseOrphans", () -> delegate.releaseOrphans(instance, aliveAfter));
+    }
+
+    @Override
+    public int compete(String instance, RaceJobKey jobKey, long startTime) {
+        return time("competeCommand", () -> delegate.compete(instance, jobKey, startTime));
+    }
+
+    @Override
+    public int finish(String instance, RaceJobKey jobKey, long endTime) {
+        return time("finish", () -> delegate.finish(instance, jobKey, endTime));
+    }
+
+    @Override
+    public int finish(String instance, RaceJobKey jobKey, long endTime, String owner) {
+        return time("finish", () -> delegate.finish(instance, jobKey, endTime, owner));
+    }
+
+    @Override
+    public void heartbeat(String instance, RaceJobNode node) {
+        run("heartbeat", () -> delegate.heartbeat(instance, node));
+    }
+
+    @Override
+    public List<RaceJobNode> findNodes(String instance, long aliveAfter) {
+        return time("findNodes", () -> delegate.findNodes(instance, aliveAfter));
+    }
+
+    @Override
+    public int deleteNode(String instance, String nodeId) {
+        return time("deleteNode", () -> delegate.deleteNode(instance, nodeId));
+    }
+
+    @Override
+    public int deleteNodes(String instance, long heartbeatBefore) {
+        return time("deleteNodes", () -> delegate.deleteNodes(instance, heartbeatBefore));
+    }
+
+    @Override
+    public boolean acquireLease(String instance, String name, String owner, long now, long expireTime) {
+        return time("acquireLease", () -> delegate.acquireLease(instance, name, owner, now, expireTime));
+    }
+
+    @Override
+    public int releaseLease(String instance, String name, String owner) {
+        return time("releaseLease", () -> delegate.releaseLease(instance, name, owner));
+    }
+
+    @Override
+    public <T> T session(Supplier<T> operations) {
+        return delegate.session(operations);
+    }
+
+    private <T> T time(String statement, Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            metrics.recordStatement(statement, System.nanoTime() - start, success);
+        }
+    }
+
+    private void run(String statement, Runnable call) {
+        time(statement, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
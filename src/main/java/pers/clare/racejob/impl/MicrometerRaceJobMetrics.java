@@ -0,0 +1,152 @@
+package pers.clare.racejob.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.lang.NonNull;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.constant.RaceJobClaim;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Micrometer meters, all named {@code race.job.*} and tagged with the scheduler instance.
+ * Meters with dynamic tags are cached, the execution path only does a map lookup.
+ */
+public class MicrometerRaceJobMetrics implements RaceJobMetrics {
+    private final MeterRegistry registry;
+
+    private final Tags tags;
+
+    private final Timer fireLag;
+
+    private final Map<RaceJobClaim, Counter> claims = new EnumMap<>(RaceJobClaim.class);
+
+    private final Counter orphansReleased;
+
+    private final Counter historyDropped;
+
+    private final Map<String, Timer> executionTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> statementTimers = new ConcurrentHashMap<>();
+
+    public MicrometerRaceJobMetrics(@NonNull MeterRegistry registry, @NonNull String instance) {
+        this.registry = registry;
+        this.tags = Tags.of("instance", instance);
+        this.fireLag = Timer.builder("race.job.fire.lag")
+                .description("Actual start minus the scheduled time")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+        for (RaceJobClaim claim : RaceJobClaim.values()) {
+            claims.put(claim, competeCounter(claim.name().toLowerCase(Locale.ROOT)));
+        }
+        this.orphansReleased = Counter.builder("race.job.orphans.released")
+                .description("Executing jobs released because their node stopped heartbeating")
+                .tags(tags)
+                .register(registry);
+        this.historyDropped = Counter.builder("race.job.history.dropped")
+                .description("Execution history records dropped under backpressure or on write failure")
+                .tags(tags)
+                .register(registry);
+    }
+
+    @Override
+    public void bindScheduler(IntSupplier executingCount, IntSupplier timerSize) {
+        Gauge.builder("race.job.executing", executingCount, IntSupplier::getAsInt)
+                .description("Jobs executing on this node")
+                .tags(tags)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("race.job.timer.size", timerSize, IntSupplier::getAsInt)
+                .description("Schedules waiting in the timer")
+                .tags(tags)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    @Override
+    public void recordFireLag(long lag) {
+        fireLag.record(Math.max(0, lag), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordCompete(boolean won) {
+        claims.get(won ? RaceJobClaim.WON : RaceJobClaim.LOST).increment();
+    }
+
+    @Override
+    public void recordClaim(RaceJobClaim claim) {
+        claims.get(claim).increment();
+    }
+
+    @Override
+    @Deprecated
+    public void recordStaleTakeover(int count) {
+        claims.get(RaceJobClaim.STALE).increment(count);
+    }
+
+    @Override
+    public void recordOrphansReleased(int count) {
+        orphansReleased.increment(count);
+    }
+
+    @Override
+    public void recordExecution(String group, String key, long duration, boolean success) {
+        executionTimers.computeIfAbsent(group + '\n' + key + '\n' + success, k -> Timer.builder("race.job.execution")
+                .description("Handler duration")
+                .tags(tags)
+                .tags("group", group, "key", key, "outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+        ).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordReload(boolean full, long duration, int rows) {
+        Tag type = Tag.of("type", full ? "full" : "delta");
+        Timer.builder("race.job.reload")
+                .description("Reload duration")
+                .tags(tags).tags(Tags.of(type))
+                .register(registry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("race.job.reload.rows")
+                .description("Rows read by a reload")
+                .tags(tags).tags(Tags.of(type))
+                .register(registry)
+                .record(rows);
+    }
+
+    @Override
+    public void recordStatement(String statement, long duration, boolean success) {
+        statementTimers.computeIfAbsent(statement + '\n' + success, k -> Timer.builder("race.job.store")
+                .description("Store statement latency")
+                .tags(tags)
+                .tags("statement", statement, "outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+        ).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordHistoryDropped(long count) {
+        historyDropped.increment(count);
+    }
+
+    private Counter competeCounter(String result) {
+        return Counter.builder("race.job.compete")
+                .description("Firings and commands competed for")
+                .tags(tags)
+                .tag("result", result)
+                .register(registry);
+    }
+}
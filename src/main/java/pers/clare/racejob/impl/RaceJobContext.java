@@ -3,22 +3,31 @@ package pers.clare.racejob.impl;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.lang.NonNull;
+import pers.clare.racejob.RaceJobTimeout;
 import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobData;
 
 import java.util.Objects;
-import java.util.concurrent.ScheduledFuture;
 
 @Log4j2
 @Getter
 class RaceJobContext {
     private RaceJob job;
-    private ScheduledFuture<?> future;
+    private RaceJobTimeout timeout;
     private volatile String cron;
     private volatile String timezone;
     private volatile boolean running = false;
     private volatile long scheduleVersion = 0;
+    /**
+     * Exponential moving average of the handler duration in nanoseconds.
+     */
+    private volatile double averageDuration = 0;
 
     void updateJob(@NonNull RaceJob job) {
+        // Keep the already parsed data while the payload is unchanged.
+        if (this.job != null && job.getData() instanceof RaceJobData && ((RaceJobData) job.getData()).isSameRaw(this.job.getData())) {
+            job.setData(this.job.getData());
+        }
         this.job = job;
         if (Objects.equals(this.cron, this.job.getCron())
             && Objects.equals(this.timezone, this.job.getTimezone())
@@ -33,22 +42,24 @@ class RaceJobContext {
     }
 
     boolean needSchedule() {
-        if (this.job == null || !this.job.getEnabled() || this.cron == null || this.cron.isEmpty()) return false;
-        return this.future == null;
+        RaceJob job = this.job;
+        String cron = this.cron;
+        if (job == null || !job.getEnabled() || cron == null || cron.isEmpty()) return false;
+        return this.timeout == null;
     }
 
     void stop() {
-        ScheduledFuture<?> temp;
+        RaceJobTimeout temp;
         synchronized (this) {
-            temp = this.future;
-            this.future = null;
+            temp = this.timeout;
+            this.timeout = null;
             this.cron = null;
             this.timezone = null;
         }
         if (temp == null) return;
 
         try {
-            temp.cancel(false);
+            temp.cancel();
         } catch (Exception e) {
             log.warn(e.getMessage(), e);
         } finally {
@@ -56,8 +67,21 @@ class RaceJobContext {
         }
     }
 
-    void setFuture(ScheduledFuture<?> future) {
-        this.future = future;
+    /**
+     * Cancel the pending firing but keep cron and timezone, so the job can be scheduled again.
+     */
+    void cancelSchedule() {
+        RaceJobTimeout temp;
+        synchronized (this) {
+            temp = this.timeout;
+            this.timeout = null;
+            this.scheduleVersion = Math.max(this.scheduleVersion + 1, System.currentTimeMillis());
+        }
+        if (temp != null) temp.cancel();
+    }
+
+    void setTimeout(RaceJobTimeout timeout) {
+        this.timeout = timeout;
     }
 
     void start() {
@@ -67,4 +91,8 @@ class RaceJobContext {
     void end() {
         running = false;
     }
+
+    void recordDuration(long duration) {
+        averageDuration = averageDuration == 0 ? duration : averageDuration * 0.8 + duration * 0.2;
+    }
 }
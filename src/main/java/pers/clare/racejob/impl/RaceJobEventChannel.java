@@ -0,0 +1,21 @@
+package pers.clare.racejob.impl;
+
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * Typed view of an event bus, adapts {@link pers.clare.racejob.RaceJobEventBus} or {@link pers.clare.racejob.RaceJobBinaryEventBus}.
+ */
+public interface RaceJobEventChannel {
+
+    void publish(RaceJobEvent event);
+
+    void listen(Consumer<RaceJobEvent> listener);
+
+    /**
+     * Flush buffered events and release resources.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,66 @@
+package pers.clare.racejob.impl;
+
+import pers.clare.racejob.vo.RaceJobKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent hash ring with virtual nodes.
+ * <p>
+ * A job belongs to the first virtual node clockwise from its hash,
+ * so adding or removing a node only moves the jobs of the arcs that node gains or loses.
+ */
+class RaceJobHashRing {
+    private final long[] hashes;
+
+    private final String[] owners;
+
+    RaceJobHashRing(Collection<String> nodes, int virtualNodes) {
+        int replicas = Math.max(1, virtualNodes);
+        String[] names = new TreeSet<>(nodes).toArray(new String[0]);
+        long[][] points = new long[names.length * replicas][];
+        int index = 0;
+        for (int i = 0; i < names.length; i++) {
+            for (int replica = 0; replica < replicas; replica++) {
+                points[index++] = new long[]{hash(names[i] + '#' + replica), i};
+            }
+        }
+        Arrays.sort(points, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.hashes = new long[points.length];
+        this.owners = new String[points.length];
+        for (int i = 0; i < points.length; i++) {
+            hashes[i] = points[i][0];
+            owners[i] = names[(int) points[i][1]];
+        }
+    }
+
+    /**
+     * @return owner node id, null if the ring is empty
+     */
+    String owner(RaceJobKey jobKey) {
+        if (hashes.length == 0) return null;
+        int index = Arrays.binarySearch(hashes, hash(jobKey.getGroup() + '\n' + jobKey.getName()));
+        if (index < 0) index = -index - 1;
+        return owners[index == hashes.length ? 0 : index];
+    }
+
+    /**
+     * 64-bit FNV-1a with a murmur3 finalizer for an even spread of short similar keys.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53ae1b3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
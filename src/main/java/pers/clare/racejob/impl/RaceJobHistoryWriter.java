@@ -0,0 +1,182 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import pers.clare.racejob.RaceJobHistory;
+import pers.clare.racejob.RaceJobHistoryStore;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.vo.RaceJobExecution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers executions in a bounded ring and inserts them in batches from a single background thread.
+ * Recording never blocks: when the ring is full or a batch fails, the executions are dropped and counted.
+ */
+@Log4j2
+public class RaceJobHistoryWriter implements RaceJobHistory, DisposableBean {
+    private static final int PRUNE_LIMIT = 10000;
+
+    private final String instance;
+
+    private final RaceJobHistoryStore historyStore;
+
+    private final RaceJobMetrics metrics;
+
+    private final int batchSize;
+
+    private final long retention;
+
+    private final AtomicReferenceArray<RaceJobExecution> ring;
+
+    private final int mask;
+
+    /**
+     * Next slot to claim, advanced by producers.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Next slot to drain, only written by the writer thread.
+     */
+    private volatile long head = 0;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private long reportedDropped = 0;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param bufferSize    buffered executions, rounded up to a power of two
+     * @param batchSize     executions per insert
+     * @param flushInterval max delay of a buffered execution
+     * @param retention     executions started before now minus retention are pruned
+     * @param pruneInterval interval of pruning
+     */
+    public RaceJobHistoryWriter(
+            @NonNull String instance
+            , @NonNull RaceJobHistoryStore historyStore
+            , int bufferSize
+            , int batchSize
+            , @NonNull Duration flushInterval
+            , @NonNull Duration retention
+            , @NonNull Duration pruneInterval
+            , @NonNull RaceJobMetrics metrics
+    ) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be greater than 0");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        this.instance = instance;
+        this.historyStore = historyStore;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.retention = retention.toMillis();
+        int capacity = 1 << (32 - Integer.numberOfLeadingZeros(bufferSize - 1));
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("race-job-history-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = Math.max(1, flushInterval.toMillis());
+        this.executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        if (!retention.isZero() && !retention.isNegative()) {
+            long prune = Math.max(1, pruneInterval.toMillis());
+            this.executor.scheduleWithFixedDelay(this::prune, prune, prune, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void record(RaceJobExecution execution) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.lazySet((int) (t & mask), execution);
+    }
+
+    /**
+     * Executions dropped since start.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    synchronized void flush() {
+        List<RaceJobExecution> batch;
+        while (!(batch = drain()).isEmpty()) {
+            try {
+                historyStore.insert(instance, batch);
+            } catch (RuntimeException e) {
+                dropped.add(batch.size());
+                log.warn(e.getMessage());
+            }
+        }
+        long count = dropped.sum();
+        if (count > reportedDropped) {
+            metrics.recordHistoryDropped(count - reportedDropped);
+            reportedDropped = count;
+        }
+    }
+
+    /**
+     * A claimed slot is published shortly after its claim, draining stops at the first unpublished one.
+     */
+    private List<RaceJobExecution> drain() {
+        long h = head;
+        long end = Math.min(tail.get(), h + batchSize);
+        List<RaceJobExecution> batch = new ArrayList<>((int) (end - h));
+        for (; h < end; h++) {
+            int index = (int) (h & mask);
+            RaceJobExecution execution = ring.get(index);
+            if (execution == null) break;
+            ring.lazySet(index, null);
+            batch.add(execution);
+        }
+        head = h;
+        return batch;
+    }
+
+    void prune() {
+        long before = System.currentTimeMillis() - retention;
+        try {
+            int count;
+            do {
+                count = historyStore.deleteBefore(instance, before, PRUNE_LIMIT);
+            } while (count >= PRUNE_LIMIT);
+        } catch (RuntimeException e) {
+            log.warn(e.getMessage());
+        }
+    }
+}
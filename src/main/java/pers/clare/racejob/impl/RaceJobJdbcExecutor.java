@@ -0,0 +1,166 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs statements with typed binders and closes every connection, statement and result set it opens.
+ * Calls on a thread that already holds a session join it, so related operations share one connection,
+ * and a statement is prepared once per session no matter how often it runs.
+ */
+@Log4j2
+class RaceJobJdbcExecutor {
+    private final DataSource dataSource;
+
+    private final ThreadLocal<Session> current = new ThreadLocal<>();
+
+    RaceJobJdbcExecutor(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Run on the session held by this thread, or on a new one that is closed afterwards.
+     */
+    <T> T execute(SessionCallback<T> callback) throws Exception {
+        Session session = current.get();
+        if (session != null) return callback.doInSession(session);
+        try (Session opened = new Session(dataSource.getConnection())) {
+            current.set(opened);
+            return callback.doInSession(opened);
+        } finally {
+            current.remove();
+        }
+    }
+
+    /**
+     * Run in one transaction, joining the transaction of this thread if there is one.
+     */
+    <T> T transaction(SessionCallback<T> callback) throws Exception {
+        return execute(session -> {
+            if (session.transactional) return callback.doInSession(session);
+            Connection connection = session.connection;
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            session.transactional = true;
+            try {
+                T result = callback.doInSession(session);
+                connection.commit();
+                return result;
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                session.transactional = false;
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    int update(String sql, Binder binder) throws Exception {
+        return execute(session -> session.update(sql, binder));
+    }
+
+    <T> T first(String sql, Binder binder, RowMapper<T> mapper) throws Exception {
+        return execute(session -> session.first(sql, binder, mapper));
+    }
+
+    <T> List<T> list(String sql, Binder binder, RowMapper<T> mapper) throws Exception {
+        return execute(session -> session.list(sql, binder, mapper));
+    }
+
+    static class Session implements AutoCloseable {
+        private final Connection connection;
+
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private boolean transactional = false;
+
+        private Session(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * The statement is owned by the session, callers must not close it.
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                log.debug(sql);
+                ps = connection.prepareStatement(sql);
+                statements.put(sql, ps);
+            }
+            return ps;
+        }
+
+        int update(String sql, Binder binder) throws SQLException {
+            PreparedStatement ps = prepare(sql);
+            binder.bind(ps);
+            return ps.executeUpdate();
+        }
+
+        void query(String sql, Binder binder, RowHandler handler) throws SQLException {
+            PreparedStatement ps = prepare(sql);
+            binder.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.accept(rs);
+                }
+            }
+        }
+
+        <T> T first(String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+            PreparedStatement ps = prepare(sql);
+            binder.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapper.map(rs) : null;
+            }
+        }
+
+        <T> List<T> list(String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+            List<T> result = new ArrayList<>();
+            query(sql, binder, rs -> result.add(mapper.map(rs)));
+            return result;
+        }
+
+        @Override
+        public void close() {
+            for (PreparedStatement ps : statements.values()) {
+                try {
+                    ps.close();
+                } catch (SQLException e) {
+                    log.warn(e.getMessage());
+                }
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    interface SessionCallback<T> {
+        T doInSession(Session session) throws Exception;
+    }
+
+    interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    interface RowHandler {
+        void accept(ResultSet rs) throws SQLException;
+    }
+}
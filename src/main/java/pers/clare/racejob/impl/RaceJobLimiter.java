@@ -0,0 +1,114 @@
+package pers.clare.racejob.impl;
+
+import com.sun.management.OperatingSystemMXBean;
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limiter.
+ * <p>
+ * The limit grows by one after every healthy execution and is multiplied by {@link #BACKOFF_RATIO}
+ * when the sampled CPU load exceeds the threshold or a handler runs much slower than its own average.
+ * {@link #tryAcquire()} never blocks, a job over the limit is left to other nodes or retried later.
+ */
+@Log4j2
+class RaceJobLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * A duration above average * tolerance counts as a latency spike.
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double cpuThreshold;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double limit;
+
+    private volatile double cpuLoad = 0;
+
+    private volatile Runnable releaseListener = () -> {
+    };
+
+    RaceJobLimiter(int minLimit, int maxLimit, double cpuThreshold) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.cpuThreshold = cpuThreshold;
+        this.limit = this.maxLimit;
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+
+    double getCpuLoad() {
+        return cpuLoad;
+    }
+
+    /**
+     * Called on the releasing thread after every release, for work waiting on a free permit.
+     */
+    void onRelease(Runnable listener) {
+        this.releaseListener = listener;
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) return false;
+            if (inflight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Release without a sample, the job was not executed.
+     */
+    void release() {
+        inflight.decrementAndGet();
+        releaseListener.run();
+    }
+
+    /**
+     * @param duration        handler duration in nanoseconds
+     * @param averageDuration the handler's average duration before this execution, 0 if unknown
+     */
+    void release(long duration, double averageDuration) {
+        inflight.decrementAndGet();
+        if (cpuLoad > cpuThreshold
+            || (averageDuration > 0 && duration > averageDuration * LATENCY_TOLERANCE)) {
+            backoff();
+        } else {
+            increase();
+        }
+        releaseListener.run();
+    }
+
+    /**
+     * Sample the system CPU load, called periodically off the execution path.
+     */
+    void sampleCpu() {
+        double load = ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getSystemCpuLoad();
+        cpuLoad = load < 0 ? 0 : load;
+        if (cpuLoad > cpuThreshold) backoff();
+    }
+
+    private synchronized void increase() {
+        limit = Math.min(maxLimit, limit + 1);
+    }
+
+    private synchronized void backoff() {
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        log.debug("concurrency limit {}", limit);
+    }
+}
@@ -0,0 +1,48 @@
+package pers.clare.racejob.impl;
+
+import pers.clare.racejob.vo.RaceJobKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Snapshot of the live nodes and the handler keys each of them serves.
+ * <p>
+ * A job is owned through the ring of the nodes that registered its handler,
+ * the rings share node points so a membership change moves as few jobs as a single ring would.
+ */
+class RaceJobPartition {
+    private final Map<String, Set<String>> handlerKeysByNode;
+
+    private final int virtualNodes;
+
+    private final ConcurrentMap<String, RaceJobHashRing> rings = new ConcurrentHashMap<>();
+
+    RaceJobPartition(Map<String, Set<String>> handlerKeysByNode, int virtualNodes) {
+        this.handlerKeysByNode = handlerKeysByNode;
+        this.virtualNodes = virtualNodes;
+    }
+
+    Map<String, Set<String>> getHandlerKeysByNode() {
+        return handlerKeysByNode;
+    }
+
+    /**
+     * @return owner node id, null if no live node serves the handler key
+     */
+    String owner(RaceJobKey jobKey, String handlerKey) {
+        return rings.computeIfAbsent(handlerKey, this::newRing).owner(jobKey);
+    }
+
+    private RaceJobHashRing newRing(String handlerKey) {
+        List<String> nodes = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : handlerKeysByNode.entrySet()) {
+            if (entry.getValue().contains(handlerKey)) nodes.add(entry.getKey());
+        }
+        return new RaceJobHashRing(nodes, virtualNodes);
+    }
+}
@@ -1,6 +1,5 @@
 package pers.clare.racejob.impl;
 
-import com.sun.management.OperatingSystemMXBean;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
@@ -9,30 +8,55 @@ import org.springframework.lang.NonNull;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.StringUtils;
 import pers.clare.racejob.RaceJobEventBus;
+import pers.clare.racejob.RaceJobExecutorFactory;
+import pers.clare.racejob.RaceJobHistory;
+import pers.clare.racejob.RaceJobMetrics;
 import pers.clare.racejob.RaceJobProperties;
 import pers.clare.racejob.RaceJobScheduler;
 import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.RaceJobTimer;
 import pers.clare.racejob.constant.RaceEventType;
-import pers.clare.racejob.constant.RaceJobState;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.constant.RaceJobMode;
 import pers.clare.racejob.exception.RaceJobException;
 import pers.clare.racejob.function.RaceJobHandler;
 import pers.clare.racejob.util.JobUtil;
 import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobChanges;
+import pers.clare.racejob.vo.RaceJobEvent;
+import pers.clare.racejob.vo.RaceJobExecution;
 import pers.clare.racejob.vo.RaceJobKey;
-import pers.clare.racejob.vo.RaceJobStatus;
+import pers.clare.racejob.vo.RaceJobNode;
 
-import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Log4j2
 @SuppressWarnings("unused")
 public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean, DisposableBean, CommandLineRunner {
-    protected static final String EVENT_SPLIT = "\n";
+    private static final String DISPATCHER_LEASE = "dispatcher";
+
+    private static final int ERROR_SUMMARY_LENGTH = 255;
+
+    /**
+     * Nodes without a heartbeat for this many node timeouts crashed long ago, their rows are deleted.
+     */
+    private static final int NODE_PRUNE_TIMEOUTS = 10;
 
     private final ConcurrentMap<RaceJobKey, RaceJobContext> jobContextMap = new ConcurrentHashMap<>();
 
@@ -42,66 +66,273 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
 
     private final AtomicInteger executingCount = new AtomicInteger();
 
+    /**
+     * Keys of received CHANGE events waiting to be reloaded together.
+     */
+    private final Set<RaceJobKey> pendingChanges = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean changeReloadScheduled = new AtomicBoolean();
+
+    /**
+     * Executions declined by the concurrency limiter, resumed one per released permit.
+     */
+    private final Queue<DeferredExecution> deferredExecutions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Jobs this node claimed and has not finished yet, including claimed jobs still queued in the job executor.
+     */
+    private final Set<RaceJobKey> claimedJobKeys = ConcurrentHashMap.newKeySet();
+
     private final RaceJobProperties properties;
 
     private final RaceJobStore jobStore;
 
-    private final RaceJobEventBus eventBus;
+    private final RaceJobEventChannel eventChannel;
+
+    private final RaceJobLimiter limiter;
+
+    private final RaceJobMetrics metrics;
+
+    private final RaceJobHistory history;
 
-    private ScheduledExecutorService executor;
+    private final RaceJobExecutorFactory executorFactory;
+
+    /**
+     * Runs timers, reloads and heartbeats.
+     */
+    private ScheduledExecutorService controlExecutor;
+
+    /**
+     * Runs job handlers.
+     */
+    private ExecutorService jobExecutor;
+
+    private RaceJobTimer timer;
+
+    private final String nodeId;
+
+    /**
+     * PARTITION mode snapshot of live nodes.
+     */
+    private volatile RaceJobPartition partition;
+
+    private final AtomicBoolean membershipRefreshScheduled = new AtomicBoolean();
+
+    private final AtomicBoolean claimRequested = new AtomicBoolean();
+
+    /**
+     * DISPATCH mode capacity of live nodes, used while this node holds the dispatcher lease.
+     */
+    private final RaceJobWorkerPool workerPool = new RaceJobWorkerPool();
+
+    /**
+     * DISPATCH mode expire time of the dispatcher lease held by this node, 0 if not held.
+     */
+    private volatile long leaseExpireTime = 0;
 
     private volatile boolean destroyed = false;
 
+    /**
+     * Start time of the last reload, guarded by {@link #reload()}.
+     */
+    private long reloadTime = 0;
+
+    private long fullReloadTime = 0;
+
     public RaceJobSchedulerImpl(@NonNull RaceJobProperties properties, @NonNull RaceJobStore jobStore) {
         this(properties, jobStore, null);
     }
 
     public RaceJobSchedulerImpl(@NonNull RaceJobProperties properties, @NonNull RaceJobStore jobStore, RaceJobEventBus eventBus) {
+        this(properties, jobStore, eventBus, new DefaultRaceJobExecutorFactory());
+    }
+
+    public RaceJobSchedulerImpl(@NonNull RaceJobProperties properties, @NonNull RaceJobStore jobStore, RaceJobEventBus eventBus, @NonNull RaceJobExecutorFactory executorFactory) {
+        this(properties, jobStore, eventBus == null ? null : new TextRaceJobEventChannel(eventBus), executorFactory);
+    }
+
+    public RaceJobSchedulerImpl(@NonNull RaceJobProperties properties, @NonNull RaceJobStore jobStore, RaceJobEventChannel eventChannel, @NonNull RaceJobExecutorFactory executorFactory) {
+        this(properties, jobStore, eventChannel, executorFactory, RaceJobMetrics.NOOP);
+    }
+
+    public RaceJobSchedulerImpl(@NonNull RaceJobProperties properties, @NonNull RaceJobStore jobStore, RaceJobEventChannel eventChannel, @NonNull RaceJobExecutorFactory executorFactory, @NonNull RaceJobMetrics metrics) {
+        this(properties, jobStore, eventChannel, executorFactory, metrics, RaceJobHistory.NOOP);
+    }
+
+    public RaceJobSchedulerImpl(@NonNull RaceJobProperties properties, @NonNull RaceJobStore jobStore, RaceJobEventChannel eventChannel, @NonNull RaceJobExecutorFactory executorFactory, @NonNull RaceJobMetrics metrics, @NonNull RaceJobHistory history) {
         this.properties = properties;
         this.jobStore = jobStore;
-        this.eventBus = eventBus;
+        this.eventChannel = eventChannel;
+        this.executorFactory = executorFactory;
+        this.nodeId = StringUtils.hasText(properties.getNodeId()) ? properties.getNodeId() : UUID.randomUUID().toString();
+        this.limiter = new RaceJobLimiter(properties.getMinConcurrency(), properties.getMaxConcurrency(), properties.getCpuThreshold());
+        this.limiter.onRelease(this::resumeDeferred);
+        this.metrics = metrics;
+        this.history = history;
     }
 
     @Override
     public void afterPropertiesSet() {
-        if (eventBus != null) {
-            eventBus.listen(this::handleEvent);
+        if (eventChannel != null) {
+            eventChannel.listen(this::handleEvent);
         }
     }
 
     @Override
     public void destroy() {
         destroyed = true;
-        if (executor == null) return;
+        if (controlExecutor == null) {
+            if (eventChannel != null) eventChannel.close();
+            return;
+        }
         log.info("Shutdown...");
-        executor.shutdownNow();
+        if (isMembershipMode()) {
+            try {
+                if (leaseExpireTime > 0) jobStore.releaseLease(getInstance(), DISPATCHER_LEASE, nodeId);
+            } catch (Exception e) {
+                log.warn(e.getMessage());
+            }
+            leave();
+        }
+        timer.stop();
+        controlExecutor.shutdownNow();
+        deferredExecutions.clear();
+        Set<RaceJobKey> released = drain();
+        try {
+            jobStore.deleteNode(getInstance(), nodeId);
+        } catch (Exception e) {
+            log.warn(e.getMessage());
+        }
+        long now = System.currentTimeMillis();
+        for (RaceJobKey jobKey : released) {
+            publishEvent(RaceEventType.RELEASE, jobKey, now);
+        }
+        if (eventChannel != null) eventChannel.close();
         log.info("Shutdown completed");
     }
 
+    /**
+     * Heartbeat without handlers or capacity, peers stop routing jobs to this node
+     * while the jobs it still runs are not released as orphans.
+     */
+    private void leave() {
+        try {
+            jobStore.heartbeat(getInstance(), new RaceJobNode(nodeId, System.currentTimeMillis(), Collections.emptySet(), 0));
+        } catch (Exception e) {
+            log.warn(e.getMessage());
+        }
+    }
+
+    /**
+     * Let in-flight handlers finish within the drain timeout, heartbeating meanwhile, then give back the claims still held.
+     * Peers told about the returned jobs claim missed firings at once instead of waiting for the claims to be released.
+     *
+     * @return jobs whose handlers did not finish within the drain timeout or never started
+     */
+    private Set<RaceJobKey> drain() {
+        jobExecutor.shutdown();
+        long timeout = properties.getDrainTimeout().toMillis();
+        long deadline = System.currentTimeMillis() + timeout;
+        long slice = Math.max(1, properties.getNodeHeartbeatInterval().toMillis());
+        List<Runnable> unstarted = Collections.emptyList();
+        try {
+            if (!claimedJobKeys.isEmpty()) log.info("Draining {} claimed jobs", claimedJobKeys.size());
+            long remaining = timeout;
+            while (remaining > 0 && !jobExecutor.awaitTermination(Math.min(remaining, slice), TimeUnit.MILLISECONDS)) {
+                leave();
+                remaining = deadline - System.currentTimeMillis();
+            }
+            if (!jobExecutor.isTerminated()) unstarted = jobExecutor.shutdownNow();
+        } catch (InterruptedException e) {
+            unstarted = jobExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (!unstarted.isEmpty()) log.warn("Dropped {} queued executions", unstarted.size());
+        // Claims still held belong to interrupted handlers and to dropped executions.
+        Set<RaceJobKey> released = new HashSet<>(claimedJobKeys);
+        long now = System.currentTimeMillis();
+        for (RaceJobKey jobKey : released) {
+            try {
+                // An interrupted handler may finish it as well, finishing twice is harmless.
+                jobStore.finish(getInstance(), jobKey, now, getClaimOwner());
+            } catch (Exception e) {
+                log.warn(e.getMessage());
+            }
+        }
+        if (!released.isEmpty()) log.warn("Released {} jobs that did not finish within {}", released.size(), properties.getDrainTimeout());
+        return released;
+    }
+
     @Override
     public void run(String... args) {
         if (Boolean.FALSE.equals(properties.getExecutionEnabled())) return;
-        executor = Executors.newScheduledThreadPool(properties.getThreadCount(), new CustomizableThreadFactory("race-job-"));
-        executor.scheduleAtFixedRate(this::reload, 0, properties.getReloadInterval().toMillis(), TimeUnit.MILLISECONDS);
-        executor.scheduleAtFixedRate(this::updateActiveTime, properties.getUpdateActiveInterval().toMillis(), properties.getUpdateActiveInterval().toMillis(), TimeUnit.MILLISECONDS);
+        controlExecutor = Executors.newScheduledThreadPool(properties.getControlThreadCount(), new CustomizableThreadFactory("race-job-control-"));
+        jobExecutor = executorFactory.create(properties);
+        timer = newTimer();
+        metrics.bindScheduler(executingCount::get, timer::size);
+        if (properties.getMode() == RaceJobMode.PARTITION) {
+            partition = new RaceJobPartition(Collections.singletonMap(nodeId, Set.copyOf(jobHandlerMap.keySet())), properties.getVirtualNodes());
+        }
+        refreshMembership();
+        controlExecutor.scheduleAtFixedRate(this::refreshMembership, properties.getNodeHeartbeatInterval().toMillis(), properties.getNodeHeartbeatInterval().toMillis(), TimeUnit.MILLISECONDS);
+        if (properties.getMode() == RaceJobMode.DISPATCH) {
+            // Dispatched claims have no owner, they are taken over once their active time goes stale.
+            controlExecutor.scheduleAtFixedRate(this::updateActiveTime, properties.getUpdateActiveInterval().toMillis(), properties.getUpdateActiveInterval().toMillis(), TimeUnit.MILLISECONDS);
+            long renewInterval = Math.max(1, properties.getLeaseDuration().toMillis() / 3);
+            controlExecutor.scheduleAtFixedRate(this::renewLease, 0, renewInterval, TimeUnit.MILLISECONDS);
+            controlExecutor.scheduleWithFixedDelay(this::dispatch, properties.getPollInterval().toMillis(), properties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        controlExecutor.scheduleAtFixedRate(this::reload, 0, properties.getReloadInterval().toMillis(), TimeUnit.MILLISECONDS);
+        controlExecutor.scheduleAtFixedRate(limiter::sampleCpu, 0, properties.getCpuSampleInterval().toMillis(), TimeUnit.MILLISECONDS);
+        if (properties.getMode() == RaceJobMode.POLL) {
+            controlExecutor.scheduleWithFixedDelay(this::poll, properties.getPollInterval().toMillis(), properties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private RaceJobTimer newTimer() {
+        switch (properties.getTimer()) {
+            case WHEEL:
+                return new TimingWheelRaceJobTimer(controlExecutor, properties.getTimerTickDuration(), properties.getTimerWheelSize());
+            case EXECUTOR:
+            default:
+                return new ExecutorRaceJobTimer(controlExecutor);
+        }
     }
 
     private boolean isScheduleUnavailable() {
         if (destroyed) return true;
-        if (executor == null || executor.isShutdown() || executor.isTerminated()) return true;
+        if (controlExecutor == null || controlExecutor.isShutdown() || controlExecutor.isTerminated()) return true;
         return false;
     }
 
+    /**
+     * Hand the task to the job executor.
+     *
+     * @return false if the executor is unavailable or its queue is full
+     */
+    private boolean submit(Runnable task) {
+        if (jobExecutor == null) return false;
+        try {
+            jobExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug(e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * register job executor
      */
     public RaceJobHandler registerHandler(String key, RaceJobHandler handler) {
         jobHandlerMap.put(key, handler);
+        requestMembershipRefresh();
         return handler;
     }
 
     public void unregisterHandler(String key) {
         jobHandlerMap.remove(key);
+        requestMembershipRefresh();
     }
 
     @Override
@@ -126,28 +357,43 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
 
     public void add(RaceJob job) {
         if (job == null) return;
-        long nextTime = getNextTime(job);
-        RaceJob oldJob = jobStore.find(getInstance(), job.toKey());
-        if (oldJob == null) {
-            try {
-                jobStore.insert(getInstance(), job, nextTime);
-            } catch (RaceJobException e) {
-                try {
-                    // retry update
-                    jobStore.update(getInstance(), job, nextTime);
-                } catch (RaceJobException ex) {
-                    throw e;
-                }
-            }
-        } else if (Integer.compare(job.getVersion(), oldJob.getVersion()) == 1) {
-            jobStore.update(getInstance(), job, nextTime);
-        } else {
-            return;
+        RaceJob saved = jobStore.save(getInstance(), job, getNextTime(job));
+        if (saved == null) return;
+        reload(saved);
+        publishJobChangeEvent(saved.toKey());
+    }
+
+    @Override
+    public void addAll(Collection<RaceJob> jobs) {
+        // The highest version wins among jobs with the same key.
+        Map<RaceJobKey, RaceJob> jobMap = new LinkedHashMap<>();
+        for (RaceJob job : jobs) {
+            if (job == null) continue;
+            jobMap.merge(job.toKey(), job, (a, b) -> b.getVersion() > a.getVersion() ? b : a);
         }
-        job = jobStore.find(getInstance(), job.toKey());
-        if (job == null) return;
-        reload(job);
-        publishJobChangeEvent(job.toKey());
+        if (jobMap.isEmpty()) return;
+        List<RaceJob> list = new ArrayList<>(jobMap.values());
+        long[] nextTimes = new long[list.size()];
+        for (int i = 0; i < nextTimes.length; i++) {
+            nextTimes[i] = getNextTime(list.get(i));
+        }
+        if (jobStore.upsert(getInstance(), list, nextTimes) == 0) return;
+        for (RaceJob job : jobStore.find(getInstance(), jobMap.keySet())) {
+            reload(job);
+        }
+        publishReloadEvent();
+    }
+
+    @Override
+    public void removeAll(Collection<RaceJobKey> jobKeys) {
+        Set<RaceJobKey> keys = new LinkedHashSet<>(jobKeys);
+        keys.remove(null);
+        if (keys.isEmpty()) return;
+        jobStore.delete(getInstance(), keys);
+        for (RaceJobKey jobKey : keys) {
+            clear(jobKey);
+        }
+        publishReloadEvent();
     }
 
     public void remove(RaceJobKey jobKey) {
@@ -177,22 +423,181 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
 
     @Override
     public void execute(RaceJobKey jobKey) {
-        if (eventBus == null) {
+        if (eventChannel == null) {
             handleLocalJobExecution(jobKey, System.currentTimeMillis());
         } else {
             publishJobExecutionEvent(jobKey);
         }
     }
 
+    @Override
+    public void enableGroup(String group) {
+        if (jobStore.enableGroup(getInstance(), group) == 0) return;
+        setGroupEnabled(group, true);
+        publishGroupEvent(RaceEventType.ENABLE_GROUP, group, 0);
+    }
+
+    @Override
+    public void disableGroup(String group) {
+        if (jobStore.disableGroup(getInstance(), group) == 0) return;
+        setGroupEnabled(group, false);
+        publishGroupEvent(RaceEventType.DISABLE_GROUP, group, 0);
+    }
+
+    @Override
+    public void removeGroup(String group) {
+        if (jobStore.deleteGroup(getInstance(), group) == 0) return;
+        clearGroup(group);
+        publishGroupEvent(RaceEventType.REMOVE_GROUP, group, 0);
+    }
+
+    @Override
+    public void executeGroup(String group) {
+        if (eventChannel == null) {
+            handleLocalGroupExecution(group, System.currentTimeMillis());
+        } else {
+            publishGroupEvent(RaceEventType.EXECUTE_GROUP, group, System.currentTimeMillis());
+        }
+    }
+
+    private void setGroupEnabled(String group, boolean enabled) {
+        for (Map.Entry<RaceJobKey, RaceJobContext> entry : jobContextMap.entrySet()) {
+            if (!group.equals(entry.getKey().getGroup())) continue;
+            RaceJobContext jobContext = entry.getValue();
+            RaceJob job = jobContext.getJob();
+            if (job == null || job.getEnabled() == enabled) continue;
+            jobContext.updateJob(job.toBuilder().enabled(enabled).build());
+            addSchedule(jobContext);
+        }
+    }
+
+    private void clearGroup(String group) {
+        for (RaceJobKey jobKey : jobContextMap.keySet()) {
+            if (group.equals(jobKey.getGroup())) clear(jobKey);
+        }
+    }
+
+    private void handleLocalGroupExecution(String group, long time) {
+        for (RaceJobKey jobKey : jobContextMap.keySet()) {
+            if (group.equals(jobKey.getGroup())) handleLocalJobExecution(jobKey, time);
+        }
+    }
+
+    private boolean isMembershipMode() {
+        return properties.getMode() == RaceJobMode.PARTITION || properties.getMode() == RaceJobMode.DISPATCH;
+    }
+
+    /**
+     * Refresh this node's heartbeat, handler keys and free capacity, release the jobs of nodes that stopped heartbeating,
+     * and rebuild the partition when the live nodes or their handlers change.
+     */
+    private void refreshMembership() {
+        membershipRefreshScheduled.set(false);
+        try {
+            long now = System.currentTimeMillis();
+            long aliveAfter = now - properties.getNodeTimeout().toMillis();
+            Set<String> handlerKeys = Set.copyOf(jobHandlerMap.keySet());
+            int capacity = Math.max(0, limiter.getLimit() - limiter.getInflight());
+            List<RaceJobNode> liveNodes = jobStore.session(() -> {
+                jobStore.heartbeat(getInstance(), new RaceJobNode(nodeId, now, handlerKeys, capacity));
+                return partition == null ? null : jobStore.findNodes(getInstance(), aliveAfter);
+            });
+            releaseOrphans(aliveAfter);
+            pruneNodes(now - properties.getNodeTimeout().toMillis() * NODE_PRUNE_TIMEOUTS);
+            if (liveNodes == null) return;
+            Map<String, Set<String>> nodes = new HashMap<>();
+            for (RaceJobNode node : liveNodes) {
+                nodes.put(node.getNodeId(), node.getHandlerKeys());
+            }
+            nodes.put(nodeId, handlerKeys);
+            if (partition.getHandlerKeysByNode().equals(nodes)) return;
+            if (!partition.getHandlerKeysByNode().keySet().equals(nodes.keySet())) {
+                log.info("partition nodes {}", nodes.keySet());
+            }
+            partition = new RaceJobPartition(nodes, properties.getVirtualNodes());
+            rebalance();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Give back the jobs claimed by nodes without a heartbeat since the given time, in one statement.
+     * POLL and DISPATCH claim the missed firings at once, the other modes at the next firing.
+     */
+    private void releaseOrphans(long aliveAfter) {
+        try {
+            int released = jobStore.releaseOrphans(getInstance(), aliveAfter);
+            if (released == 0) return;
+            metrics.recordOrphansReleased(released);
+            log.warn("Released {} jobs of nodes without heartbeat", released);
+            if (properties.getMode() == RaceJobMode.POLL || properties.getMode() == RaceJobMode.DISPATCH) requestClaim();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete the rows of nodes that crashed without leaving, after their jobs were released.
+     */
+    private void pruneNodes(long heartbeatBefore) {
+        try {
+            int pruned = jobStore.deleteNodes(getInstance(), heartbeatBefore);
+            if (pruned > 0) log.info("Pruned {} nodes without heartbeat", pruned);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Refresh soon after the local handlers change, bursts of registrations share one refresh.
+     */
+    private void requestMembershipRefresh() {
+        ScheduledExecutorService executor = controlExecutor;
+        if (!isMembershipMode() || executor == null) return;
+        if (!membershipRefreshScheduled.compareAndSet(false, true)) return;
+        try {
+            executor.execute(this::refreshMembership);
+        } catch (RejectedExecutionException e) {
+            membershipRefreshScheduled.set(false);
+        }
+    }
+
+    /**
+     * Schedule the jobs this node gained and drop the timers of the jobs it lost.
+     */
+    private void rebalance() {
+        for (RaceJobContext jobContext : jobContextMap.values()) {
+            if (jobContext.getJob() == null) continue;
+            if (isOwner(jobContext)) {
+                addSchedule(jobContext);
+            } else {
+                jobContext.cancelSchedule();
+            }
+        }
+    }
+
+    private boolean isOwner(RaceJobContext jobContext) {
+        RaceJobPartition current = partition;
+        RaceJob job = jobContext.getJob();
+        if (current == null || job == null) return true;
+        return nodeId.equals(current.owner(job.toKey(), job.getKey()));
+    }
+
     /**
      * Update running job active time.
      */
     private void updateActiveTime() {
-        long now = System.currentTimeMillis();
+        List<RaceJobKey> jobKeys = new ArrayList<>();
         for (RaceJobContext jobContext : jobContextMap.values()) {
             if (!jobContext.isRunning()) continue;
-            var job = jobContext.getJob();
-            jobStore.updateActive(getInstance(), job, now);
+            jobKeys.add(jobContext.getJob().toKey());
+        }
+        if (jobKeys.isEmpty()) return;
+        try {
+            jobStore.updateActive(getInstance(), jobKeys, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
         }
     }
 
@@ -221,19 +626,135 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
         }
     }
 
+    /**
+     * Reload changed jobs, and all jobs every full reload interval.
+     */
     private void reload() {
+        reload(false);
+    }
+
+    /**
+     * Package-visible for the reload benchmark.
+     *
+     * @param forceFull reload all jobs even if the full reload interval has not elapsed
+     */
+    synchronized void reload(boolean forceFull) {
+        try {
+            long now = System.currentTimeMillis();
+            long start = System.nanoTime();
+            boolean full = forceFull || now - fullReloadTime >= properties.getFullReloadInterval().toMillis();
+            int rows;
+            if (full) {
+                rows = fullReload();
+                fullReloadTime = now;
+            } else {
+                rows = deltaReload();
+            }
+            reloadTime = now;
+            metrics.recordReload(full, System.nanoTime() - start, rows);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return number of jobs read
+     */
+    private int fullReload() {
         log.debug("reloading jobs");
+        List<RaceJob> jobs = jobStore.findAll(getInstance());
+        for (RaceJob job : jobs) {
+            reload(job);
+        }
+        clearNotExists(jobs);
+        // Tombstones older than a full reload are no longer needed by anyone.
+        jobStore.deleteTombstones(getInstance(), System.currentTimeMillis() - properties.getFullReloadInterval().toMillis() * 2);
+        return jobs.size();
+    }
+
+    /**
+     * @return number of changed jobs and tombstones read
+     */
+    private int deltaReload() {
+        // Overlap one interval to tolerate clock skew between nodes.
+        long revision = reloadTime - properties.getReloadInterval().toMillis();
+        log.debug("reloading jobs changed since {}", revision);
+        RaceJobChanges changes = jobStore.findChangedSince(getInstance(), revision);
+        Set<RaceJobKey> changedKeys = new HashSet<>();
+        for (RaceJob job : changes.getJobs()) {
+            reload(job);
+            changedKeys.add(job.toKey());
+        }
+        for (RaceJobKey jobKey : changes.getRemovedKeys()) {
+            if (changedKeys.contains(jobKey)) continue;
+            clear(jobKey);
+        }
+        // Reschedule unchanged jobs whose schedule was dropped.
+        for (RaceJobContext jobContext : jobContextMap.values()) {
+            addSchedule(jobContext);
+        }
+        return changes.getJobs().size() + changes.getRemovedKeys().size();
+    }
+
+    /**
+     * Buffer the changed key and reload all keys received within the coalesce window at once.
+     */
+    private void handleJobChange(RaceJobKey jobKey) {
+        ScheduledExecutorService executor = controlExecutor;
+        long window = properties.getChangeCoalesceWindow().toMillis();
+        if (executor == null || window <= 0) {
+            reload(jobKey);
+            return;
+        }
+        pendingChanges.add(jobKey);
+        if (!changeReloadScheduled.compareAndSet(false, true)) return;
         try {
-            List<RaceJob> jobs = jobStore.findAll(getInstance());
-            for (RaceJob job : jobs) {
+            executor.schedule(this::reloadChanges, window, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            changeReloadScheduled.set(false);
+        }
+    }
+
+    private void reloadChanges() {
+        changeReloadScheduled.set(false);
+        List<RaceJobKey> jobKeys = new ArrayList<>();
+        for (Iterator<RaceJobKey> iterator = pendingChanges.iterator(); iterator.hasNext(); ) {
+            jobKeys.add(iterator.next());
+            iterator.remove();
+        }
+        if (jobKeys.isEmpty()) return;
+        try {
+            if (jobKeys.size() > properties.getChangeReloadThreshold()) {
+                reload(true);
+                return;
+            }
+            log.debug("reloading {} changed jobs", jobKeys.size());
+            Set<RaceJobKey> removedKeys = new HashSet<>(jobKeys);
+            for (RaceJob job : jobStore.find(getInstance(), jobKeys)) {
+                removedKeys.remove(job.toKey());
                 reload(job);
             }
-            clearNotExists(jobs);
+            for (RaceJobKey jobKey : removedKeys) {
+                clear(jobKey);
+            }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
     }
 
+    private void handleReload() {
+        ScheduledExecutorService executor = controlExecutor;
+        if (executor == null) {
+            reload();
+            return;
+        }
+        try {
+            executor.execute(this::reload);
+        } catch (RejectedExecutionException e) {
+            log.debug(e.getMessage());
+        }
+    }
+
     private void reload(RaceJobKey jobKey) throws RaceJobException {
         RaceJob job = jobStore.find(getInstance(), jobKey);
         if (job == null) {
@@ -266,28 +787,43 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
      * add job to schedule
      */
     private void addSchedule(RaceJobContext jobContext) {
+        if (properties.getMode() != RaceJobMode.RACE && properties.getMode() != RaceJobMode.PARTITION) return;
         if (isScheduleUnavailable()) return;
+        if (!isOwner(jobContext)) return;
         if (!jobContext.needSchedule()) return;
         long version = jobContext.getScheduleVersion();
-        long delay = JobUtil.getNextDelay(jobContext.getCron(), jobContext.getTimezone());
-        var future = executor.schedule(() -> {
-            try {
-                if (discontinue(jobContext, version)) return;
-                boolean next = doExecute(jobContext);
-                if (!next) return;
-                if (discontinue(jobContext, version)) return;
-            } finally {
-                jobContext.setFuture(null);
-            }
+        // A concurrent stop clears the cron after needSchedule, read it once.
+        String cron = jobContext.getCron();
+        String timezone = jobContext.getTimezone();
+        if (cron == null || cron.isEmpty()) return;
+        long delay = JobUtil.getNextDelay(cron, timezone);
+        long fireTime = System.currentTimeMillis() + delay;
+        var timeout = timer.schedule(() -> {
+            boolean submitted = submit(() -> {
+                try {
+                    if (discontinue(jobContext, version)) return;
+                    boolean next = doExecute(jobContext, fireTime);
+                    if (!next) return;
+                    if (discontinue(jobContext, version)) return;
+                } finally {
+                    jobContext.setTimeout(null);
+                }
+                addSchedule(jobContext);
+            });
+            if (submitted) return;
+            // Job executor is saturated, skip this firing.
+            jobContext.setTimeout(null);
+            if (discontinue(jobContext, version)) return;
             addSchedule(jobContext);
         }, delay, TimeUnit.MILLISECONDS);
-        jobContext.setFuture(future);
+        jobContext.setTimeout(timeout);
     }
 
     private boolean discontinue(RaceJobContext jobContext, long version) {
         if (isScheduleUnavailable()) return true;
         RaceJobContext currentContext = jobContextMap.get(jobContext.getJob().toKey());
         if (currentContext == null) return true;
+        if (!isOwner(currentContext)) return true;
         if (!Objects.equals(currentContext.getScheduleVersion(), version)) {
             log.debug("Skip task execution.");
             return true;
@@ -295,70 +831,374 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
         return false;
     }
 
-    private boolean doExecute(RaceJobContext jobContext) {
-        return this.doExecute(jobContext, null);
+    private boolean doExecute(RaceJobContext jobContext, long fireTime) {
+        return this.doExecute(jobContext, null, fireTime);
+    }
+
+    private boolean doExecute(RaceJobContext jobContext, Long executeTime) {
+        return this.doExecute(jobContext, executeTime, 0);
     }
 
     /**
      * @param executeTime Execution command time. schedule job is null.
+     * @param fireTime    Scheduled time of the firing, 0 for commands.
      */
-    private boolean doExecute(RaceJobContext jobContext, Long executeTime) {
-        if (Boolean.FALSE.equals(properties.getExecutionEnabled())) return false;
+    private boolean doExecute(RaceJobContext jobContext, Long executeTime, long fireTime) {
+        return this.doExecute(jobContext, executeTime, fireTime, 0);
+    }
+
+    /**
+     * @param deadline give up when declined after this time, 0 until the execution is first declined
+     */
+    private boolean doExecute(RaceJobContext jobContext, Long executeTime, long fireTime, long deadline) {
+        if (destroyed || Boolean.FALSE.equals(properties.getExecutionEnabled())) return false;
         if (jobContext.isRunning()) return true;
         RaceJob job = jobContext.getJob();
         RaceJobHandler jobHandler = jobHandlerMap.get(job.getKey());
         if (jobHandler == null) return true;
 
-        delayExecute();
+        if (!limiter.tryAcquire()) {
+            // Other nodes may claim it meanwhile, a scheduled firing is given up at the next firing time.
+            if (deadline == 0) {
+                deadline = executeTime == null ? getNextTime(job) : System.currentTimeMillis() + properties.getDeferTimeout().toMillis();
+            }
+            defer(jobContext, executeTime, fireTime, deadline);
+            return true;
+        }
 
-        executingCount.getAndIncrement();
-        boolean executed = false;
+        boolean claimed = false;
         long startTime = System.currentTimeMillis();
         try {
             String instance = getInstance();
 
-            RaceJobStatus jobStatus = jobStore.getStatus(instance, job.toKey());
-            if (jobStatus == null) return false;
-
-            int compete;
             if (executeTime == null) {
                 long nextTime = getNextTime(job);
-                if (Objects.equals(RaceJobState.EXECUTING, jobStatus.getState())) {
-                    var activeInterval = properties.getUpdateActiveInterval().toMillis();
-                    var checkTime = jobStatus.getLastActiveTime() + (activeInterval * 1.5);
-                    if (startTime < checkTime) return true;
-                    int count = jobStore.release(instance, job.toKey(), nextTime);
-                    if (count == 0) return true;
-                }
-                compete = jobStore.compete(instance, job.toKey(), nextTime, startTime);
+                RaceJobClaim claim = jobStore.tryClaim(instance, job.toKey(), nextTime, startTime, getStaleBefore(startTime), getClaimOwner());
+                metrics.recordClaim(claim);
+                if (claim != RaceJobClaim.WON && claim != RaceJobClaim.STALE) return true;
+                if (fireTime > 0) metrics.recordFireLag(startTime - fireTime);
             } else {
-                compete = jobStore.compete(instance, job.toKey(), executeTime);
+                int compete = jobStore.compete(instance, job.toKey(), executeTime);
+                metrics.recordCompete(compete > 0);
+                if (compete == 0) return true;
             }
-            if (compete == 0) return true;
+            claimed = true;
+            claimedJobKeys.add(job.toKey());
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return false;
+        } finally {
+            if (!claimed) limiter.release();
+        }
+        return executeClaimed(jobContext, jobHandler, startTime);
+    }
 
-            jobContext.start();
+    /**
+     * Run the handler of a job claimed by this node, the caller holds a limiter permit.
+     */
+    private boolean executeClaimed(RaceJobContext jobContext, RaceJobHandler jobHandler, long startTime) {
+        RaceJob job = jobContext.getJob();
+        executingCount.getAndIncrement();
+        jobContext.start();
+        boolean executed = false;
+        Exception error = null;
+        long duration = -1;
+        try {
+            long start = System.nanoTime();
             try {
                 jobHandler.execute(job);
                 executed = true;
             } catch (Exception e) {
+                error = e;
                 if (Boolean.TRUE.equals(properties.getAbortOnError())) {
-                    jobHandlerMap.remove(job.getKey());
+                    unregisterHandler(job.getKey());
                 }
                 log.error(e.getMessage(), e);
             }
+            duration = System.nanoTime() - start;
 
-            jobStore.finish(instance, job.toKey(), System.currentTimeMillis());
+            jobStore.finish(getInstance(), job.toKey(), System.currentTimeMillis(), getClaimOwner());
+            claimedJobKeys.remove(job.toKey());
             return true;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         } finally {
             jobContext.end();
             executingCount.getAndDecrement();
+            if (duration < 0) {
+                limiter.release();
+            } else {
+                limiter.release(duration, jobContext.getAverageDuration());
+                jobContext.recordDuration(duration);
+                metrics.recordExecution(job.getGroup(), job.getKey(), duration, executed);
+                history.record(new RaceJobExecution(job.getGroup(), job.getName(), job.getKey(), nodeId, startTime, System.currentTimeMillis(), executed, toErrorSummary(error)));
+            }
             if (executed) handleJobCompletion(job.toKey(), startTime);
+            // Report the freed capacity to the dispatcher before the next heartbeat.
+            if (properties.getMode() == RaceJobMode.DISPATCH) requestMembershipRefresh();
         }
         return false;
     }
 
+    private static String toErrorSummary(Exception e) {
+        if (e == null) return "";
+        String summary = e.getMessage() == null ? e.getClass().getSimpleName() : e.getClass().getSimpleName() + ": " + e.getMessage();
+        return summary.length() > ERROR_SUMMARY_LENGTH ? summary.substring(0, ERROR_SUMMARY_LENGTH) : summary;
+    }
+
+    /**
+     * Claim due jobs in batches, used by POLL mode instead of timers.
+     */
+    private void poll() {
+        try {
+            // A backlog is drained batch after batch on one connection.
+            jobStore.session(() -> {
+                int claimed;
+                do {
+                    claimed = pollBatch();
+                } while (claimed == properties.getPollBatchSize());
+                return null;
+            });
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return number of claimed jobs
+     */
+    private int pollBatch() {
+        if (isScheduleUnavailable() || jobHandlerMap.isEmpty()) return 0;
+        int permits = 0;
+        while (permits < properties.getPollBatchSize() && limiter.tryAcquire()) {
+            permits++;
+        }
+        if (permits == 0) return 0;
+        try {
+            long now = System.currentTimeMillis();
+            List<RaceJob> jobs = jobStore.claimDue(getInstance(), new ArrayList<>(jobHandlerMap.keySet()), now, getStaleBefore(now), permits, getClaimOwner());
+            for (RaceJob job : jobs) {
+                permits--;
+                dispatchClaimed(job, now);
+            }
+            return jobs.size();
+        } finally {
+            for (; permits > 0; permits--) {
+                limiter.release();
+            }
+        }
+    }
+
+    /**
+     * Hand a claimed job to the job executor, or give the claim back.
+     */
+    private void dispatchClaimed(RaceJob job, long startTime) {
+        claimedJobKeys.add(job.toKey());
+        reload(job);
+        RaceJobContext jobContext = jobContextMap.get(job.toKey());
+        RaceJobHandler jobHandler = jobHandlerMap.get(job.getKey());
+        if (jobContext != null && jobHandler != null
+            && submit(() -> executeClaimed(jobContext, jobHandler, startTime))) {
+            return;
+        }
+        limiter.release();
+        log.warn("{} was claimed but could not be executed.", job);
+        jobStore.finish(getInstance(), job.toKey(), System.currentTimeMillis(), getClaimOwner());
+        claimedJobKeys.remove(job.toKey());
+    }
+
+    /**
+     * Take or renew the dispatcher lease, a node that fails to renew stops dispatching at the old expire time.
+     */
+    private void renewLease() {
+        long now = System.currentTimeMillis();
+        long expireTime = now + properties.getLeaseDuration().toMillis();
+        try {
+            boolean held = leaseExpireTime > now;
+            if (jobStore.acquireLease(getInstance(), DISPATCHER_LEASE, nodeId, now, expireTime)) {
+                if (!held) log.info("{} acquired the dispatcher lease", nodeId);
+                leaseExpireTime = expireTime;
+            } else {
+                if (held) log.info("{} lost the dispatcher lease", nodeId);
+                leaseExpireTime = 0;
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Claim due jobs for the live nodes in batches while this node holds the dispatcher lease.
+     */
+    private void dispatch() {
+        if (System.currentTimeMillis() >= leaseExpireTime) return;
+        try {
+            jobStore.session(() -> {
+                long now = System.currentTimeMillis();
+                workerPool.update(jobStore.findNodes(getInstance(), now - properties.getNodeTimeout().toMillis()));
+                int claimed;
+                do {
+                    claimed = dispatchBatch();
+                } while (claimed == properties.getPollBatchSize());
+                return null;
+            });
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return number of claimed jobs
+     */
+    private int dispatchBatch() {
+        long now = System.currentTimeMillis();
+        if (isScheduleUnavailable() || now >= leaseExpireTime) return 0;
+        int batchSize = properties.getPollBatchSize();
+        int claimed = 0;
+        // Claim each group of keys up to the capacity of the nodes serving it, so every claimed job has a place.
+        for (Set<String> handlerKeys : workerPool.getHandlerKeyGroups()) {
+            int limit = Math.min(batchSize - claimed, workerPool.getRemainingCapacity(handlerKeys));
+            if (limit <= 0) continue;
+            List<RaceJob> jobs = jobStore.claimDue(getInstance(), handlerKeys, now, getStaleBefore(now), limit);
+            for (RaceJob job : jobs) {
+                String target = workerPool.select(job.getKey());
+                if (target == null) {
+                    log.warn("{} was claimed but no live node has capacity left.", job);
+                    jobStore.finish(getInstance(), job.toKey(), System.currentTimeMillis(), getClaimOwner());
+                } else if (target.equals(nodeId) || eventChannel == null) {
+                    executeDispatched(job, now);
+                } else {
+                    eventChannel.publish(new RaceJobEvent(RaceEventType.DISPATCH, job.getGroup(), job.getName(), now, target));
+                }
+            }
+            claimed += jobs.size();
+            if (claimed >= batchSize) break;
+        }
+        return claimed;
+    }
+
+    /**
+     * Run a job dispatched to this node within the concurrency limit, or give the claim back.
+     */
+    private void executeDispatched(RaceJob job, long startTime) {
+        if (limiter.tryAcquire()) {
+            dispatchClaimed(job, startTime);
+            return;
+        }
+        log.warn("{} was dispatched but this node has no free permit.", job);
+        jobStore.finish(getInstance(), job.toKey(), System.currentTimeMillis(), getClaimOwner());
+    }
+
+    /**
+     * Run a job the dispatcher claimed for this node.
+     * A dispatch that never arrives is reclaimed by the dispatcher once its claim goes stale.
+     */
+    private void handleDispatch(RaceJobEvent event) {
+        if (!nodeId.equals(event.getTarget()) || isScheduleUnavailable()) return;
+        ScheduledExecutorService executor = controlExecutor;
+        if (executor == null) return;
+        RaceJobKey jobKey = event.toKey();
+        try {
+            executor.execute(() -> {
+                try {
+                    RaceJobContext jobContext = jobContextMap.get(jobKey);
+                    RaceJob job = jobContext == null ? null : jobContext.getJob();
+                    if (job == null) job = jobStore.find(getInstance(), jobKey);
+                    if (job == null) return;
+                    executeDispatched(job, event.getTime());
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug(e.getMessage());
+        }
+    }
+
+    /**
+     * A draining node gave back the claim of a job, claim the firing it missed without waiting for the next one.
+     * The claim only succeeds if the stored next time has already passed.
+     */
+    private void handleRelease(RaceJobKey jobKey) {
+        if (isScheduleUnavailable()) return;
+        if (properties.getMode() == RaceJobMode.POLL || properties.getMode() == RaceJobMode.DISPATCH) {
+            requestClaim();
+            return;
+        }
+        RaceJobContext jobContext = jobContextMap.get(jobKey);
+        if (jobContext == null || jobContext.getJob() == null || !isOwner(jobContext)) return;
+        submit(() -> doExecute(jobContext, null, 0));
+    }
+
+    /**
+     * Run a poll or dispatch on the control executor now, requests made before it starts are merged.
+     */
+    private void requestClaim() {
+        ScheduledExecutorService executor = controlExecutor;
+        if (executor == null || !claimRequested.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> {
+                claimRequested.set(false);
+                if (properties.getMode() == RaceJobMode.POLL) {
+                    poll();
+                } else {
+                    dispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            claimRequested.set(false);
+            log.debug(e.getMessage());
+        }
+    }
+
+    /**
+     * Node recorded on the claims this node makes, empty in DISPATCH mode where the dispatcher claims for other nodes.
+     */
+    private String getClaimOwner() {
+        return properties.getMode() == RaceJobMode.DISPATCH ? "" : nodeId;
+    }
+
+    private long getStaleBefore(long now) {
+        return now - (long) (properties.getUpdateActiveInterval().toMillis() * 1.5);
+    }
+
+    /**
+     * Queue a declined execution until a permit is released, without blocking the current thread.
+     */
+    private void defer(RaceJobContext jobContext, Long executeTime, long fireTime, long deadline) {
+        if (isScheduleUnavailable() || System.currentTimeMillis() >= deadline) return;
+        deferredExecutions.add(new DeferredExecution(jobContext, executeTime, fireTime, deadline, jobContext.getScheduleVersion()));
+        // A permit released before the add did not see it.
+        if (limiter.getInflight() < limiter.getLimit()) resumeDeferred();
+    }
+
+    /**
+     * Submit the oldest deferred execution still wanted, expired and discontinued ones are dropped.
+     */
+    private void resumeDeferred() {
+        DeferredExecution execution;
+        while ((execution = deferredExecutions.poll()) != null) {
+            if (System.currentTimeMillis() >= execution.deadline || isDiscontinued(execution)) continue;
+            DeferredExecution resumed = execution;
+            if (!submit(() -> {
+                if (isDiscontinued(resumed)) return;
+                doExecute(resumed.jobContext, resumed.executeTime, resumed.fireTime, resumed.deadline);
+            })) {
+                deferredExecutions.add(resumed);
+            }
+            return;
+        }
+    }
+
+    /**
+     * A scheduled firing stops with its schedule, a manual execution with its job.
+     */
+    private boolean isDiscontinued(DeferredExecution execution) {
+        RaceJobContext jobContext = execution.jobContext;
+        if (execution.executeTime == null) return discontinue(jobContext, execution.version);
+        return isScheduleUnavailable() || jobContextMap.get(jobContext.getJob().toKey()) != jobContext;
+    }
+
     private long getNextTime(RaceJob job) {
         if (StringUtils.hasLength(job.getCron())) {
             return JobUtil.getNextTime(job.getCron(), job.getTimezone());
@@ -369,11 +1209,11 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
     private void handleLocalJobExecution(RaceJobKey jobKey, Long time) {
         RaceJobContext jobContext = jobContextMap.get(jobKey);
         if (jobContext == null) return;
-        doExecute(jobContext, time);
+        submit(() -> doExecute(jobContext, time));
     }
 
     private void handleJobCompletion(RaceJobKey jobKey, Long time) {
-        if (eventBus == null) {
+        if (eventChannel == null) {
             handleLocalJobCompletion(jobKey, time);
         } else {
             publishJobCompletionEvent(jobKey, time);
@@ -389,73 +1229,90 @@ public class RaceJobSchedulerImpl implements RaceJobScheduler, InitializingBean,
         for (RaceJobKey value : map.values()) {
             RaceJobContext context = jobContextMap.get(value);
             if (context == null) continue;
-            executor.submit(() -> doExecute(context, time));
+            submit(() -> doExecute(context, time));
         }
     }
 
     private void publishJobChangeEvent(RaceJobKey jobKey) {
-        publishEvent(RaceEventType.CHANGE, jobKey.getGroup(), jobKey.getName());
+        publishEvent(RaceEventType.CHANGE, jobKey, 0);
+    }
+
+    private void publishGroupEvent(int type, String group, long time) {
+        if (eventChannel == null) return;
+        eventChannel.publish(new RaceJobEvent(type, group, null, time));
+    }
+
+    private void publishReloadEvent() {
+        if (eventChannel == null) return;
+        eventChannel.publish(new RaceJobEvent(RaceEventType.RELOAD, null, null, System.currentTimeMillis()));
     }
 
     private void publishJobExecutionEvent(RaceJobKey jobKey) {
-        publishEvent(RaceEventType.EXECUTE, jobKey.getGroup(), jobKey.getName(), String.valueOf(System.currentTimeMillis()));
+        publishEvent(RaceEventType.EXECUTE, jobKey, System.currentTimeMillis());
     }
 
     private void publishJobCompletionEvent(RaceJobKey key, Long time) {
-        publishEvent(RaceEventType.COMPLETE, key.getGroup(), key.getName(), String.valueOf(time));
-    }
-
-    private void handleEvent(String body) {
-        String[] result = body.split(EVENT_SPLIT);
-        String[] array = new String[4];
-        System.arraycopy(result, 0, array, 0, result.length);
-        int type = Integer.parseInt(array[0]);
-        String group = array[1];
-        String name = array[2];
-        RaceJobKey jobKey = new RaceJobKey(group, name);
-        switch (type) {
+        publishEvent(RaceEventType.COMPLETE, key, time);
+    }
+
+    private void handleEvent(RaceJobEvent event) {
+        RaceJobKey jobKey = event.toKey();
+        switch (event.getType()) {
             case RaceEventType.CHANGE:
-                reload(jobKey);
+                handleJobChange(jobKey);
                 break;
             case RaceEventType.EXECUTE:
-                handleLocalJobExecution(jobKey, Long.valueOf(array[3]));
+                handleLocalJobExecution(jobKey, event.getTime());
                 break;
             case RaceEventType.COMPLETE:
-                handleLocalJobCompletion(jobKey, Long.valueOf(array[3]));
+                handleLocalJobCompletion(jobKey, event.getTime());
+                break;
+            case RaceEventType.RELOAD:
+                handleReload();
+                break;
+            case RaceEventType.ENABLE_GROUP:
+                setGroupEnabled(event.getGroup(), true);
+                break;
+            case RaceEventType.DISABLE_GROUP:
+                setGroupEnabled(event.getGroup(), false);
+                break;
+            case RaceEventType.REMOVE_GROUP:
+                clearGroup(event.getGroup());
+                break;
+            case RaceEventType.EXECUTE_GROUP:
+                handleLocalGroupExecution(event.getGroup(), event.getTime());
+                break;
+            case RaceEventType.DISPATCH:
+                handleDispatch(event);
+                break;
+            case RaceEventType.RELEASE:
+                handleRelease(jobKey);
                 break;
             default:
         }
     }
 
-    /**
-     * Calculate the delay time based on the CPU usage rate and the number of currently executed tasks
-     */
-    private void delayExecute() {
-        int count = executingCount.get();
-        if (count == 0) return;
-        long delay = (long) (count * 10L + (getCpuUsage() * 100));
-        if (delay > 100) {
-            try {
-                Thread.sleep(delay);
-            } catch (InterruptedException e) {
-                log.error(e.getMessage(), e);
-            }
-        }
+    private void publishEvent(int type, RaceJobKey jobKey, long time) {
+        if (eventChannel == null) return;
+        eventChannel.publish(new RaceJobEvent(type, jobKey.getGroup(), jobKey.getName(), time));
     }
 
-    private double getCpuUsage() {
-        return ((OperatingSystemMXBean) ManagementFactory
-                .getOperatingSystemMXBean()).getSystemCpuLoad();
-    }
+    private static class DeferredExecution {
+        private final RaceJobContext jobContext;
+        private final Long executeTime;
+        private final long fireTime;
+        private final long deadline;
+        /**
+         * Schedule version when the execution was first declined.
+         */
+        private final long version;
 
-    private void publishEvent(int type, String... args) {
-        if (eventBus == null) return;
-        StringBuilder message = new StringBuilder();
-        message.append(type);
-        for (String arg : args) {
-            message.append(EVENT_SPLIT).append(arg);
+        DeferredExecution(RaceJobContext jobContext, Long executeTime, long fireTime, long deadline, long version) {
+            this.jobContext = jobContext;
+            this.executeTime = executeTime;
+            this.fireTime = fireTime;
+            this.deadline = deadline;
+            this.version = version;
         }
-        eventBus.send(message.toString());
     }
 }
-
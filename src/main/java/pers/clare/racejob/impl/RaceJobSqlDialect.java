@@ -0,0 +1,234 @@
+package pers.clare.racejob.impl;
+
+import pers.clare.racejob.constant.RaceJobDialect;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Statements that differ between databases. Shared statements are written with MySQL backtick quoting
+ * and translated by {@link #sql(String)}.
+ */
+abstract class RaceJobSqlDialect {
+    /**
+     * Parameter order of every upsert, the same as the plain insert.
+     */
+    static final String[] INSERT_COLUMNS = {"`instance`", "`group`", "`name`", "`key`", "`version`", "`timezone`", "description", "cron", "depends_key", "next_time", "enabled", "`data`", "`revision`"};
+
+    /**
+     * Columns a newer version overwrites, enabled and the runtime state are kept.
+     * The version goes last, MySQL assigns from left to right and the others compare with the stored version.
+     */
+    private static final String[] UPDATE_COLUMNS = {"`key`", "`timezone`", "description", "cron", "next_time", "depends_key", "`data`", "`revision`", "`version`"};
+
+    private static final String[] H2_TYPES = {"VARCHAR", "VARCHAR", "VARCHAR", "VARCHAR", "INT", "VARCHAR", "VARCHAR", "VARCHAR", "VARCHAR", "BIGINT", "BOOLEAN", "VARCHAR", "BIGINT"};
+
+    /**
+     * Columns read by {@link JdbcRaceJobStoreImpl} into a job.
+     */
+    private static final String JOB_COLUMNS = "`group`,`name`,`key`,`version`,`timezone`,description,cron,depends_key,enabled,`data`";
+
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)");
+
+    private static final String DELETE_EXECUTIONS_BEFORE = "DELETE FROM race_job_execution WHERE `instance` = ? AND start_time < ? LIMIT ?";
+
+    static RaceJobDialect detect(DatabaseMetaData metaData) throws SQLException {
+        String product = metaData.getDatabaseProductName().toLowerCase();
+        if (product.equals("postgresql")) return RaceJobDialect.POSTGRESQL;
+        if (product.equals("h2")) return RaceJobDialect.H2;
+        return RaceJobDialect.MYSQL;
+    }
+
+    /**
+     * The dialect for a connected database, MySQL from 8.0.19 upserts with a row alias.
+     */
+    static RaceJobSqlDialect of(RaceJobDialect dialect, DatabaseMetaData metaData) throws SQLException {
+        if (dialect == RaceJobDialect.MYSQL && supportsRowAlias(metaData)) return new MySqlRowAlias();
+        return of(dialect);
+    }
+
+    static boolean supportsRowAlias(DatabaseMetaData metaData) throws SQLException {
+        if (!metaData.getDatabaseProductName().equalsIgnoreCase("mysql")) return false;
+        Matcher matcher = VERSION.matcher(metaData.getDatabaseProductVersion());
+        if (!matcher.lookingAt()) return false;
+        int major = Integer.parseInt(matcher.group(1));
+        int minor = Integer.parseInt(matcher.group(2));
+        int patch = Integer.parseInt(matcher.group(3));
+        return major > 8 || (major == 8 && (minor > 0 || patch >= 19));
+    }
+
+    static RaceJobSqlDialect of(RaceJobDialect dialect) {
+        switch (dialect) {
+            case POSTGRESQL:
+                return new PostgreSql();
+            case H2:
+                return new H2();
+            default:
+                return new MySql();
+        }
+    }
+
+    final String upsert;
+
+    RaceJobSqlDialect() {
+        this.upsert = sql(buildUpsert());
+    }
+
+    String sql(String template) {
+        return template;
+    }
+
+    /**
+     * Insert the job, or update it when the stored version is lower. An unchanged row counts 0,
+     * except on MySQL connections reporting found rows where it counts 1.
+     */
+    abstract String buildUpsert();
+
+    /**
+     * The upsert returning the job columns of a written row, null if the database cannot.
+     */
+    String saveReturning() {
+        return null;
+    }
+
+    /**
+     * Claim due and stale jobs in one statement, waiting jobs first, returning the claimed rows, their due time
+     * and previous state. The next time is left to the caller. Null if the database cannot.
+     */
+    String claimDue(int keyCount) {
+        return null;
+    }
+
+    boolean skipLocked(DatabaseMetaData metaData) throws SQLException {
+        return false;
+    }
+
+    /**
+     * Delete at most limit executions of the instance started before a time, parameters instance, start_time, limit.
+     */
+    String deleteExecutionsBefore() {
+        return sql(DELETE_EXECUTIONS_BEFORE);
+    }
+
+    static String insertColumns() {
+        return String.join(",", INSERT_COLUMNS);
+    }
+
+    static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    static class MySql extends RaceJobSqlDialect {
+        @Override
+        String buildUpsert() {
+            StringBuilder sql = new StringBuilder("INSERT INTO race_job(").append(insertColumns()).append(") values(")
+                    .append(placeholders(INSERT_COLUMNS.length)).append(") ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < UPDATE_COLUMNS.length; i++) {
+                String column = UPDATE_COLUMNS[i];
+                if (i > 0) sql.append(',');
+                sql.append(column).append(" = CASE WHEN `version` < VALUES(`version`) THEN VALUES(").append(column)
+                        .append(") ELSE ").append(column).append(" END");
+            }
+            return sql.toString();
+        }
+
+        @Override
+        boolean skipLocked(DatabaseMetaData metaData) throws SQLException {
+            return metaData.getDatabaseProductName().equalsIgnoreCase("mysql") && metaData.getDatabaseMajorVersion() >= 8;
+        }
+    }
+
+    /**
+     * VALUES() in ON DUPLICATE KEY UPDATE is deprecated from MySQL 8.0.20, the inserted row is referenced by an alias instead.
+     */
+    static class MySqlRowAlias extends MySql {
+        @Override
+        String buildUpsert() {
+            StringBuilder sql = new StringBuilder("INSERT INTO race_job(").append(insertColumns()).append(") values(")
+                    .append(placeholders(INSERT_COLUMNS.length)).append(") AS excluded ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < UPDATE_COLUMNS.length; i++) {
+                String column = UPDATE_COLUMNS[i];
+                if (i > 0) sql.append(',');
+                sql.append(column).append(" = CASE WHEN `version` < excluded.`version` THEN excluded.").append(column)
+                        .append(" ELSE ").append(column).append(" END");
+            }
+            return sql.toString();
+        }
+    }
+
+    static class PostgreSql extends RaceJobSqlDialect {
+        private static final String CLAIM_DUE = "WITH due AS (SELECT `instance`,`group`,`name`,state FROM race_job"
+                                                + " WHERE `instance` = ? AND next_time <= ? AND enabled = true AND cron <> '' AND `key` IN (%s)"
+                                                + " AND (state = ? OR (state = ? AND `owner` = '' AND last_active_time <= ?))"
+                                                + " ORDER BY state, next_time LIMIT ? FOR UPDATE SKIP LOCKED)"
+                                                + " UPDATE race_job j SET state = ?, prev_time = j.start_time, start_time = ?, end_time = 0, last_active_time = ?, `owner` = ? FROM due"
+                                                + " WHERE j.`instance` = due.`instance` AND j.`group` = due.`group` AND j.`name` = due.`name`"
+                                                + " RETURNING j.`group`,j.`name`,j.`key`,j.`version`,j.`timezone`,j.description,j.cron,j.depends_key,j.enabled,j.`data`,j.next_time,due.state";
+
+        private static final Map<String, String> translated = new ConcurrentHashMap<>();
+
+        @Override
+        String sql(String template) {
+            return translated.computeIfAbsent(template, t -> t.replace('`', '"'));
+        }
+
+        @Override
+        String buildUpsert() {
+            StringBuilder sql = new StringBuilder("INSERT INTO race_job(").append(insertColumns()).append(") values(")
+                    .append(placeholders(INSERT_COLUMNS.length)).append(") ON CONFLICT (`instance`,`group`,`name`) DO UPDATE SET ");
+            for (int i = 0; i < UPDATE_COLUMNS.length; i++) {
+                if (i > 0) sql.append(',');
+                sql.append(UPDATE_COLUMNS[i]).append(" = excluded.").append(UPDATE_COLUMNS[i]);
+            }
+            return sql.append(" WHERE race_job.`version` < excluded.`version`").toString();
+        }
+
+        @Override
+        String saveReturning() {
+            return upsert + sql(" RETURNING " + JOB_COLUMNS);
+        }
+
+        @Override
+        String claimDue(int keyCount) {
+            return sql(String.format(CLAIM_DUE, placeholders(keyCount)));
+        }
+
+        @Override
+        boolean skipLocked(DatabaseMetaData metaData) {
+            return true;
+        }
+
+        @Override
+        String deleteExecutionsBefore() {
+            return sql("DELETE FROM race_job_execution WHERE id IN (SELECT id FROM race_job_execution WHERE `instance` = ? AND start_time < ? LIMIT ?)");
+        }
+    }
+
+    static class H2 extends RaceJobSqlDialect {
+        @Override
+        String buildUpsert() {
+            StringBuilder sql = new StringBuilder("MERGE INTO race_job j USING (SELECT ");
+            for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+                if (i > 0) sql.append(',');
+                sql.append("CAST(? AS ").append(H2_TYPES[i]).append(") ").append(INSERT_COLUMNS[i]);
+            }
+            sql.append(") s ON (j.`instance` = s.`instance` AND j.`group` = s.`group` AND j.`name` = s.`name`)")
+                    .append(" WHEN MATCHED AND j.`version` < s.`version` THEN UPDATE SET ");
+            for (int i = 0; i < UPDATE_COLUMNS.length; i++) {
+                if (i > 0) sql.append(',');
+                sql.append(UPDATE_COLUMNS[i]).append(" = s.").append(UPDATE_COLUMNS[i]);
+            }
+            sql.append(" WHEN NOT MATCHED THEN INSERT (").append(insertColumns()).append(") VALUES (");
+            for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+                if (i > 0) sql.append(',');
+                sql.append("s.").append(INSERT_COLUMNS[i]);
+            }
+            return sql.append(')').toString();
+        }
+    }
+}
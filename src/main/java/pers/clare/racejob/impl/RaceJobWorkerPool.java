@@ -0,0 +1,87 @@
+package pers.clare.racejob.impl;
+
+import pers.clare.racejob.vo.RaceJobNode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DISPATCH mode view of the live nodes on the dispatcher.
+ * <p>
+ * A node's remaining capacity is the capacity of its last heartbeat minus the jobs dispatched to it since then.
+ */
+class RaceJobWorkerPool {
+    private Map<String, Worker> workers = Collections.emptyMap();
+
+    synchronized void update(Collection<RaceJobNode> nodes) {
+        Map<String, Worker> current = new HashMap<>();
+        for (RaceJobNode node : nodes) {
+            Worker worker = workers.get(node.getNodeId());
+            if (worker == null || worker.heartbeatTime != node.getHeartbeatTime()) {
+                worker = new Worker(node);
+            }
+            current.put(node.getNodeId(), worker);
+        }
+        workers = current;
+    }
+
+    /**
+     * Handler keys grouped by the set of nodes serving them, every job of a group can be placed on any node of the group.
+     */
+    synchronized Collection<Set<String>> getHandlerKeyGroups() {
+        Map<String, Set<String>> nodesByKey = new HashMap<>();
+        for (Worker worker : workers.values()) {
+            for (String key : worker.node.getHandlerKeys()) {
+                nodesByKey.computeIfAbsent(key, k -> new HashSet<>()).add(worker.node.getNodeId());
+            }
+        }
+        Map<Set<String>, Set<String>> groups = new HashMap<>();
+        nodesByKey.forEach((key, nodes) -> groups.computeIfAbsent(nodes, k -> new HashSet<>()).add(key));
+        return groups.values();
+    }
+
+    /**
+     * Remaining capacity of the nodes serving any of the handler keys.
+     */
+    synchronized int getRemainingCapacity(Collection<String> handlerKeys) {
+        int capacity = 0;
+        for (Worker worker : workers.values()) {
+            if (worker.remaining > 0 && !Collections.disjoint(worker.node.getHandlerKeys(), handlerKeys)) {
+                capacity += worker.remaining;
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * Take one unit of capacity from the node serving the handler key with the most remaining.
+     *
+     * @return node id, null if no live node serving the key has capacity left
+     */
+    synchronized String select(String handlerKey) {
+        Worker selected = null;
+        for (Worker worker : workers.values()) {
+            if (worker.remaining <= 0 || !worker.node.getHandlerKeys().contains(handlerKey)) continue;
+            if (selected == null || worker.remaining > selected.remaining) selected = worker;
+        }
+        if (selected == null) return null;
+        selected.remaining--;
+        return selected.node.getNodeId();
+    }
+
+    private static class Worker {
+        private final RaceJobNode node;
+        private final long heartbeatTime;
+        private int remaining;
+
+        Worker(RaceJobNode node) {
+            this.node = node;
+            this.heartbeatTime = node.getHeartbeatTime();
+            this.remaining = node.getCapacity();
+        }
+    }
+}
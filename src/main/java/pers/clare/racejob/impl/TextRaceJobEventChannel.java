@@ -0,0 +1,40 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.lang.NonNull;
+import pers.clare.racejob.RaceJobEventBus;
+import pers.clare.racejob.util.RaceJobEventCodec;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * One legacy text message per event, compatible with nodes of earlier versions.
+ */
+@Log4j2
+public class TextRaceJobEventChannel implements RaceJobEventChannel {
+    private final RaceJobEventBus eventBus;
+
+    public TextRaceJobEventChannel(@NonNull RaceJobEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    @Override
+    public void publish(RaceJobEvent event) {
+        eventBus.send(RaceJobEventCodec.encodeText(event));
+    }
+
+    @Override
+    public void listen(Consumer<RaceJobEvent> listener) {
+        eventBus.listen(body -> {
+            RaceJobEvent event;
+            try {
+                event = RaceJobEventCodec.decodeText(body);
+            } catch (RuntimeException e) {
+                log.warn("Discard event: {}", e.getMessage());
+                return;
+            }
+            listener.accept(event);
+        });
+    }
+}
@@ -0,0 +1,292 @@
+package pers.clare.racejob.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import pers.clare.racejob.RaceJobTimeout;
+import pers.clare.racejob.RaceJobTimer;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel.
+ * <p>
+ * {@link #schedule} and {@link RaceJobTimeout#cancel()} only enqueue and never take a lock,
+ * a single tick thread places schedules into buckets and hands due tasks to the executor.
+ * Level {@code n} buckets span {@code wheelSize^n} ticks and are cascaded into lower levels when their time comes.
+ */
+@Log4j2
+public class TimingWheelRaceJobTimer implements RaceJobTimer {
+    private static final int LEVELS = 4;
+
+    private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+    private final Executor executor;
+
+    private final long tickNanos;
+
+    private final int bits;
+
+    private final int wheelSize;
+
+    private final long mask;
+
+    private final Bucket[][] wheels;
+
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final long startTime = System.nanoTime();
+
+    private final Thread worker;
+
+    /**
+     * Last processed tick, only accessed by the worker thread.
+     */
+    private long currentTick = 0;
+
+    private volatile boolean stopped = false;
+
+    /**
+     * @param executor     runs due tasks
+     * @param tickDuration timer precision
+     * @param wheelSize    buckets per level, rounded up to a power of two
+     */
+    public TimingWheelRaceJobTimer(@NonNull Executor executor, @NonNull Duration tickDuration, int wheelSize) {
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0");
+        }
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("wheelSize must be greater than 1");
+        }
+        this.executor = executor;
+        this.tickNanos = tickDuration.toNanos();
+        this.bits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.wheelSize = 1 << bits;
+        this.mask = this.wheelSize - 1;
+        this.wheels = new Bucket[LEVELS][this.wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("race-job-timer-");
+        threadFactory.setDaemon(true);
+        this.worker = threadFactory.newThread(this::run);
+        this.worker.start();
+    }
+
+    @Override
+    public RaceJobTimeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) throw new RejectedExecutionException("Timer has been stopped");
+        long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(delay, 0));
+        // Round up so that a schedule never fires early.
+        WheelTimeout timeout = new WheelTimeout(task, (deadline + tickNanos - 1) / tickNanos);
+        size.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!stopped) {
+            try {
+                removeCancelled();
+                transferPending();
+                long targetTick = (System.nanoTime() - startTime) / tickNanos;
+                while (currentTick < targetTick) {
+                    currentTick++;
+                    cascade();
+                    flush(wheels[0][(int) (currentTick & mask)]);
+                }
+                long sleep = (currentTick + 1) * tickNanos - (System.nanoTime() - startTime);
+                if (sleep > 0) LockSupport.parkNanos(this, sleep);
+            } catch (Throwable e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        pendingTimeouts.clear();
+        cancelledTimeouts.clear();
+    }
+
+    private void removeCancelled() {
+        WheelTimeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void transferPending() {
+        WheelTimeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state != WheelTimeout.INIT) continue;
+            place(timeout);
+        }
+    }
+
+    /**
+     * Put the schedule into the lowest level whose range covers its deadline.
+     */
+    private void place(WheelTimeout timeout) {
+        long deadline = timeout.deadline;
+        if (deadline <= currentTick) {
+            fire(timeout);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * bits;
+            long index = deadline >>> shift;
+            if (index - (currentTick >>> shift) < wheelSize) {
+                wheels[level][(int) (index & mask)].add(timeout);
+                return;
+            }
+        }
+        // Beyond the top level, park it in the last top-level bucket and place it again when cascaded.
+        int shift = (LEVELS - 1) * bits;
+        wheels[LEVELS - 1][(int) (((currentTick >>> shift) - 1) & mask)].add(timeout);
+    }
+
+    /**
+     * When a lower level completes a revolution, move the current bucket of the upper level down.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = level * bits;
+            if ((currentTick & ((1L << shift) - 1)) != 0) return;
+            flush(wheels[level][(int) ((currentTick >>> shift) & mask)]);
+        }
+    }
+
+    /**
+     * Place every schedule of the bucket again, the due ones fire.
+     */
+    private void flush(Bucket bucket) {
+        WheelTimeout timeout = bucket.clear();
+        while (timeout != null) {
+            WheelTimeout next = timeout.next;
+            timeout.next = null;
+            if (timeout.state == WheelTimeout.INIT) place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void fire(WheelTimeout timeout) {
+        if (!timeout.expire()) return;
+        size.decrementAndGet();
+        try {
+            executor.execute(timeout.task);
+        } catch (RejectedExecutionException e) {
+            log.debug(e.getMessage());
+        }
+    }
+
+    private static class Bucket {
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(WheelTimeout timeout) {
+            WheelTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Detach all schedules and return the first one, still linked by {@code next}.
+         */
+        WheelTimeout clear() {
+            WheelTimeout first = head;
+            for (WheelTimeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.prev = null;
+                timeout.bucket = null;
+            }
+            head = tail = null;
+            return first;
+        }
+    }
+
+    private class WheelTimeout implements RaceJobTimeout {
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private volatile int state = INIT;
+
+        private WheelTimeout prev;
+
+        private WheelTimeout next;
+
+        private Bucket bucket;
+
+        WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, INIT, CANCELLED)) return false;
+            size.decrementAndGet();
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        boolean expire() {
+            return STATE_UPDATER.compareAndSet(this, INIT, EXPIRED);
+        }
+    }
+}
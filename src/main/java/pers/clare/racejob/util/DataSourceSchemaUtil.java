@@ -4,32 +4,230 @@ package pers.clare.racejob.util;
 import lombok.experimental.UtilityClass;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.lang.NonNull;
+import org.springframework.util.StreamUtils;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Applies the versioned scripts under schema/race-job/&lt;product&gt;/ that are newer than the version recorded
+ * in race_job_schema, so a node starting on a current schema only reads one row.
+ * <p>
+ * Migrating nodes take turns on a lock row, version 0 of race_job_schema. A statement failing with anything but
+ * an already existing or already dropped object stops the migration, and its version is not recorded.
+ * Tables created before schema versioning are brought to the baseline by legacy.sql first.
+ */
 @Log4j2
 @UtilityClass
 public class DataSourceSchemaUtil {
 
+    /**
+     * Script names in order, the version of a script is its index plus one.
+     */
+    private static final String[] MIGRATIONS = {"baseline", "job_indexes", "job_owner", "node_heartbeat"};
+
+    static final int LATEST_VERSION = MIGRATIONS.length;
+
+    /**
+     * A lock older than this was left by a node that died while migrating.
+     */
+    private static final long LOCK_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private static final long LOCK_RETRY_INTERVAL = 500;
+
+    /**
+     * MySQL table exists, duplicate column, duplicate key name, drop of a missing column or key.
+     */
+    private static final Set<Integer> EXISTS_ERROR_CODES = Set.of(1050, 1060, 1061, 1091);
+
+    /**
+     * PostgreSQL duplicate table, duplicate column, duplicate object.
+     */
+    private static final Set<String> EXISTS_SQL_STATES = Set.of("42P07", "42701", "42710");
+
+    /**
+     * Table not found on MySQL and H2, on PostgreSQL.
+     */
+    private static final Set<String> MISSING_TABLE_SQL_STATES = Set.of("42S02", "42P01");
+
+    private static final String CREATE_SCHEMA_TABLE = "create table if not exists race_job_schema (version int not null, applied_time bigint not null, primary key (version))";
+
+    private static final String FIND_VERSION = "select max(version) from race_job_schema";
+
+    private static final String FIND_JOB_TABLE = "select 1 from race_job where 1 = 0";
+
+    private static final String INSERT_VERSION = "insert into race_job_schema(version, applied_time) values(?,?)";
+
+    private static final String DELETE_STALE_LOCK = "delete from race_job_schema where version = 0 and applied_time < ?";
+
+    private static final String DELETE_LOCK = "delete from race_job_schema where version = 0";
+
     public static void init(@NonNull DataSource dataSource) throws SQLException {
         try (Connection connection = dataSource.getConnection()) {
+            int version = findVersion(connection);
+            if (version >= LATEST_VERSION) return;
             String prefix = connection.getMetaData().getDatabaseProductName().toLowerCase();
-            commit(connection, "schema/race-job/" + prefix + ".sql");
+            boolean legacy = version == 0 && hasJobTable(connection);
+            execute(connection, CREATE_SCHEMA_TABLE);
+            if (!lock(connection)) return;
+            try {
+                version = findVersion(connection);
+                if (legacy && version == 0) {
+                    migrate(connection, "schema/race-job/" + prefix + "/legacy.sql", true);
+                }
+                for (int i = version; i < LATEST_VERSION; i++) {
+                    migrate(connection, "schema/race-job/" + prefix + "/V" + (i + 1) + "__" + MIGRATIONS[i] + ".sql", false);
+                    recordVersion(connection, i + 1);
+                }
+            } finally {
+                unlock(connection);
+            }
+        }
+    }
+
+    /**
+     * @return the applied version, 0 if the schema table does not exist yet
+     */
+    private static int findVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(FIND_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            rollback(connection);
+            if (isMissingTable(e)) return 0;
+            throw e;
         }
     }
 
-    private static void commit(Connection connection, String path) throws SQLException {
-        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
-        populator.addScript(new ClassPathResource(path));
-        populator.setContinueOnError(true);
-        populator.populate(connection);
+    private static boolean hasJobTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet ignored = statement.executeQuery(FIND_JOB_TABLE)) {
+            return true;
+        } catch (SQLException e) {
+            rollback(connection);
+            if (isMissingTable(e)) return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until this node holds the lock row or another node finished the migration.
+     *
+     * @return false if the schema is already current
+     */
+    private static boolean lock(Connection connection) throws SQLException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            try (PreparedStatement ps = connection.prepareStatement(DELETE_STALE_LOCK)) {
+                ps.setLong(1, now - LOCK_TIMEOUT);
+                if (ps.executeUpdate() > 0) log.warn("removed a stale race_job_schema lock");
+            }
+            commit(connection);
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_VERSION)) {
+                ps.setInt(1, 0);
+                ps.setLong(2, now);
+                ps.executeUpdate();
+                commit(connection);
+                return true;
+            } catch (SQLException e) {
+                rollback(connection);
+                if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) throw e;
+            }
+            if (findVersion(connection) >= LATEST_VERSION) return false;
+            try {
+                Thread.sleep(LOCK_RETRY_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the race_job_schema lock", e);
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) {
+        try {
+            rollback(connection);
+            execute(connection, DELETE_LOCK);
+        } catch (SQLException e) {
+            log.warn("release race_job_schema lock: {}", e.getMessage());
+        }
+    }
+
+    private static void recordVersion(Connection connection, int version) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_VERSION)) {
+            ps.setInt(1, version);
+            ps.setLong(2, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+        commit(connection);
+    }
+
+    /**
+     * Run the statements of a script one by one, each committed on its own because DDL commits implicitly on most databases.
+     *
+     * @param optional skip a script missing for the product
+     */
+    private static void migrate(Connection connection, String path, boolean optional) throws SQLException {
+        ClassPathResource resource = new ClassPathResource(path);
+        if (optional && !resource.exists()) return;
+        log.info("migrate {}", path);
+        String script;
+        try (InputStream in = resource.getInputStream()) {
+            script = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Cannot read " + path, e);
+        }
+        List<String> statements = new ArrayList<>();
+        ScriptUtils.splitSqlScript(script, ';', statements);
+        for (String sql : statements) {
+            try {
+                execute(connection, sql);
+            } catch (SQLException e) {
+                rollback(connection);
+                if (!isExists(e)) throw e;
+                log.debug("skip {}: {}", sql, e.getMessage());
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+        commit(connection);
+    }
+
+    private static boolean isExists(SQLException e) {
+        return EXISTS_ERROR_CODES.contains(e.getErrorCode()) || EXISTS_SQL_STATES.contains(e.getSQLState());
+    }
+
+    private static boolean isMissingTable(SQLException e) {
+        return MISSING_TABLE_SQL_STATES.contains(e.getSQLState());
+    }
+
+    private static void commit(Connection connection) throws SQLException {
         if (!connection.getAutoCommit()) {
             connection.commit();
         }
     }
 
+    private static void rollback(Connection connection) {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            log.warn(e.getMessage());
+        }
+    }
 }
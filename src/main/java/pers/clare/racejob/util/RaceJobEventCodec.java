@@ -0,0 +1,176 @@
+package pers.clare.racejob.util;
+
+import lombok.experimental.UtilityClass;
+import pers.clare.racejob.exception.RaceJobException;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event encodings.
+ * <p>
+ * Binary frame: {@code version, varint count, count * (varint type, string group, string name, varlong time, string target)},
+ * a string is a varint byte length followed by UTF-8 bytes, version 1 frames have no target.
+ * Text: {@code type\ngroup\nname[\ntime[\ntarget]]}, the format of {@link pers.clare.racejob.RaceJobEventBus}.
+ */
+@UtilityClass
+public class RaceJobEventCodec {
+    public static final byte VERSION = 2;
+
+    private static final char TEXT_SPLIT = '\n';
+
+    public static byte[] encode(RaceJobEvent event) {
+        return encode(Collections.singletonList(event));
+    }
+
+    public static byte[] encode(Collection<RaceJobEvent> events) {
+        Writer writer = new Writer(16 + events.size() * 32);
+        writer.writeByte(VERSION);
+        writer.writeVarLong(events.size());
+        for (RaceJobEvent event : events) {
+            writer.writeVarLong(event.getType());
+            writer.writeString(event.getGroup());
+            writer.writeString(event.getName());
+            writer.writeVarLong(event.getTime());
+            writer.writeString(event.getTarget());
+        }
+        return writer.toByteArray();
+    }
+
+    public static List<RaceJobEvent> decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+        int version = reader.readByte();
+        if (version != 1 && version != VERSION) {
+            throw new RaceJobException("Unsupported event frame version: " + version);
+        }
+        int count = (int) reader.readVarLong();
+        List<RaceJobEvent> events = new ArrayList<>(Math.min(count, bytes.length));
+        for (int i = 0; i < count; i++) {
+            int type = (int) reader.readVarLong();
+            String group = reader.readString();
+            String name = reader.readString();
+            long time = reader.readVarLong();
+            String target = version == 1 ? null : reader.readString();
+            events.add(new RaceJobEvent(type, group, name, time, target));
+        }
+        return events;
+    }
+
+    public static String encodeText(RaceJobEvent event) {
+        StringBuilder text = new StringBuilder(event.getGroup().length() + event.getName().length() + 24)
+                .append(event.getType())
+                .append(TEXT_SPLIT).append(event.getGroup())
+                .append(TEXT_SPLIT).append(event.getName());
+        if (event.getTime() != 0 || !event.getTarget().isEmpty()) {
+            text.append(TEXT_SPLIT).append(event.getTime());
+        }
+        if (!event.getTarget().isEmpty()) {
+            text.append(TEXT_SPLIT).append(event.getTarget());
+        }
+        return text.toString();
+    }
+
+    public static RaceJobEvent decodeText(String text) {
+        int typeEnd = text.indexOf(TEXT_SPLIT);
+        int groupEnd = typeEnd < 0 ? -1 : text.indexOf(TEXT_SPLIT, typeEnd + 1);
+        if (groupEnd < 0) {
+            throw new RaceJobException("Invalid event: " + text);
+        }
+        int nameEnd = text.indexOf(TEXT_SPLIT, groupEnd + 1);
+        int type = Integer.parseInt(text, 0, typeEnd, 10);
+        String group = text.substring(typeEnd + 1, groupEnd);
+        String name;
+        long time = 0;
+        String target = null;
+        if (nameEnd < 0) {
+            name = text.substring(groupEnd + 1);
+        } else {
+            name = text.substring(groupEnd + 1, nameEnd);
+            int timeEnd = text.indexOf(TEXT_SPLIT, nameEnd + 1);
+            if (timeEnd < 0) {
+                time = Long.parseLong(text, nameEnd + 1, text.length(), 10);
+            } else {
+                time = Long.parseLong(text, nameEnd + 1, timeEnd, 10);
+                target = text.substring(timeEnd + 1);
+            }
+        }
+        return new RaceJobEvent(type, group, name, time, target);
+    }
+
+    private static class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int length) {
+            if (position + length <= buffer.length) return;
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+        }
+    }
+
+    private static class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) throw new RaceJobException("Truncated event frame");
+            return buffer[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new RaceJobException("Malformed varint in event frame");
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > buffer.length) throw new RaceJobException("Truncated event frame");
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pers.clare.racejob.vo;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class RaceJobChanges {
+    /**
+     * Jobs created or modified after the revision.
+     */
+    private final List<RaceJob> jobs;
+
+    /**
+     * Jobs deleted after the revision.
+     */
+    private final List<RaceJobKey> removedKeys;
+
+    public RaceJobChanges(List<RaceJob> jobs, List<RaceJobKey> removedKeys) {
+        this.jobs = jobs;
+        this.removedKeys = removedKeys;
+    }
+}
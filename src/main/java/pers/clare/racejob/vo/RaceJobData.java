@@ -0,0 +1,101 @@
+package pers.clare.racejob.vo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pers.clare.racejob.exception.RaceJobException;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Job data read from the store, kept as the raw JSON column and parsed on first access.
+ * <p>
+ * Reloads only carry the raw string, a context keeps its previous instance while the raw string is unchanged,
+ * so each payload is parsed at most once per node and only on nodes that run the job.
+ * The instance is shared by every execution, so the parsed maps and lists are read-only.
+ */
+public class RaceJobData extends AbstractMap<String, Object> {
+    private static final TypeReference<LinkedHashMap<String, Object>> DATA_TYPE = new TypeReference<>() {
+    };
+
+    private static final ObjectMapper om = new ObjectMapper();
+
+    private final String raw;
+
+    private volatile Map<String, Object> parsed;
+
+    public RaceJobData(String raw) {
+        this.raw = raw;
+    }
+
+    public String getRaw() {
+        return raw;
+    }
+
+    /**
+     * Whether the payload has not been parsed yet, in which case the raw string is still authoritative.
+     */
+    public boolean isParsed() {
+        return parsed != null;
+    }
+
+    public boolean isSameRaw(Map<String, Object> data) {
+        return data instanceof RaceJobData && Objects.equals(raw, ((RaceJobData) data).raw);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return parse().entrySet();
+    }
+
+    @Override
+    public int size() {
+        return parse().size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return parse().containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return parse().get(key);
+    }
+
+    private Map<String, Object> parse() {
+        Map<String, Object> map = parsed;
+        if (map != null) return map;
+        synchronized (this) {
+            if (parsed != null) return parsed;
+            try {
+                map = raw == null || raw.isEmpty() ? new LinkedHashMap<>() : om.readValue(raw, DATA_TYPE);
+            } catch (JsonProcessingException e) {
+                throw new RaceJobException(e);
+            }
+            parsed = map == null ? Collections.emptyMap() : readOnly(map);
+            return parsed;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T readOnly(T value) {
+        if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            map.replaceAll((k, v) -> readOnly(v));
+            return (T) Collections.unmodifiableMap(map);
+        }
+        if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            list.replaceAll(RaceJobData::readOnly);
+            return (T) Collections.unmodifiableList(list);
+        }
+        return value;
+    }
+}
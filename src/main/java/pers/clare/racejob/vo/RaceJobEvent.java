@@ -0,0 +1,66 @@
+package pers.clare.racejob.vo;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+@Getter
+public class RaceJobEvent {
+    /**
+     * {@link pers.clare.racejob.constant.RaceEventType}
+     */
+    private final int type;
+
+    private final String group;
+
+    private final String name;
+
+    /**
+     * Execution or completion time, 0 if the type has none.
+     */
+    private final long time;
+
+    /**
+     * Node that should handle the event, empty for every node.
+     */
+    private final String target;
+
+    public RaceJobEvent(int type, String group, String name, long time) {
+        this(type, group, name, time, null);
+    }
+
+    public RaceJobEvent(int type, String group, String name, long time, String target) {
+        this.type = type;
+        this.group = group == null ? "" : group;
+        this.name = name == null ? "" : name;
+        this.time = time;
+        this.target = target == null ? "" : target;
+    }
+
+    public RaceJobKey toKey() {
+        return new RaceJobKey(group, name);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RaceJobEvent)) return false;
+        RaceJobEvent that = (RaceJobEvent) o;
+        return type == that.type && time == that.time && group.equals(that.group) && name.equals(that.name) && target.equals(that.target);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, group, name, time, target);
+    }
+
+    @Override
+    public String toString() {
+        return "RaceJobEvent{" +
+               "type=" + type +
+               ", group='" + group + '\'' +
+               ", name='" + name + '\'' +
+               ", time=" + time +
+               ", target='" + target + '\'' +
+               '}';
+    }
+}
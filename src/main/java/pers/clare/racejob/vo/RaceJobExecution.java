@@ -0,0 +1,53 @@
+package pers.clare.racejob.vo;
+
+import lombok.Getter;
+
+@Getter
+public class RaceJobExecution {
+    private final String group;
+
+    private final String name;
+
+    private final String key;
+
+    private final String nodeId;
+
+    /**
+     * Time the node claimed the job.
+     */
+    private final long startTime;
+
+    private final long endTime;
+
+    private final boolean success;
+
+    /**
+     * Exception class and message of a failed execution, empty on success.
+     */
+    private final String error;
+
+    public RaceJobExecution(String group, String name, String key, String nodeId, long startTime, long endTime, boolean success, String error) {
+        this.group = group;
+        this.name = name;
+        this.key = key;
+        this.nodeId = nodeId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.success = success;
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "RaceJobExecution{" +
+               "group='" + group + '\'' +
+               ", name='" + name + '\'' +
+               ", key='" + key + '\'' +
+               ", nodeId='" + nodeId + '\'' +
+               ", startTime=" + startTime +
+               ", endTime=" + endTime +
+               ", success=" + success +
+               ", error='" + error + '\'' +
+               '}';
+    }
+}
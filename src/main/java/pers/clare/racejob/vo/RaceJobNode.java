@@ -0,0 +1,39 @@
+package pers.clare.racejob.vo;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+@Getter
+public class RaceJobNode {
+    private final String nodeId;
+
+    private final long heartbeatTime;
+
+    /**
+     * Keys of the handlers registered on the node.
+     */
+    private final Set<String> handlerKeys;
+
+    /**
+     * Executions the node can take at heartbeat time.
+     */
+    private final int capacity;
+
+    public RaceJobNode(String nodeId, long heartbeatTime, Set<String> handlerKeys, int capacity) {
+        this.nodeId = nodeId;
+        this.heartbeatTime = heartbeatTime;
+        this.handlerKeys = handlerKeys;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "RaceJobNode{" +
+               "nodeId='" + nodeId + '\'' +
+               ", heartbeatTime=" + heartbeatTime +
+               ", handlerKeys=" + handlerKeys +
+               ", capacity=" + capacity +
+               '}';
+    }
+}
@@ -1,21 +0,0 @@
-create table if not exists race_job
-(
-    `instance`              varchar(100)    not null default '',
-    `group`                 varchar (100)   not null default '',
-    `name`                  varchar(100)    not null default '',
-    `key`                   varchar(100)    not null default '',
-    `version`               int             not null default 1,
-    `timezone`              varchar(10)     not null default '',
-    `description`           varchar(200)    not null default '',
-    `cron`                  varchar(200)    not null default '',
-    `depends_key`           varchar(100)    not null default '',
-    `prev_time`             bigint          not null default 0,
-    `next_time`             bigint          not null default 0,
-    `enabled`               tinyint         not null default 1,
-    `state`                 int             not null default 0,
-    `start_time`            bigint          not null default 0,
-    `end_time`              bigint          not null default 0,
-    `last_active_time`      bigint          not null default 0,
-    `data`                  text,
-    primary key (`instance`, `group`, `name`)
-);
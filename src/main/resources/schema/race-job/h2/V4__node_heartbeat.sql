@@ -0,0 +1 @@
+create index if not exists race_job_node_heartbeat on race_job_node (`instance`, `heartbeat_time`);
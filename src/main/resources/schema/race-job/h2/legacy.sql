@@ -0,0 +1 @@
+alter table race_job add column if not exists `revision` bigint not null default 0;
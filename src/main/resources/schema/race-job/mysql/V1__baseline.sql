@@ -0,0 +1,70 @@
+CREATE TABLE IF NOT EXISTS `race_job`
+(
+    `instance`              varchar(100)    NOT NULL DEFAULT '',
+    `group`                 varchar(100)    NOT NULL DEFAULT '',
+    `name`                  varchar(100)    NOT NULL DEFAULT '',
+    `key`                   varchar(100)    NOT NULL DEFAULT '',
+    `version`               int             NOT NULL DEFAULT 1,
+    `timezone`              varchar(10)     NOT NULL DEFAULT '',
+    `description`           varchar(200)    NOT NULL DEFAULT '',
+    `cron`                  varchar(200)    NOT NULL DEFAULT '',
+    `depends_key`           varchar(100)    NOT NULL DEFAULT '',
+    `prev_time`             bigint          NOT NULL DEFAULT 0,
+    `next_time`             bigint          NOT NULL DEFAULT 0,
+    `enabled`               tinyint         NOT NULL DEFAULT 1,
+    `state`                 int             NOT NULL DEFAULT 0,
+    `start_time`            bigint          NOT NULL DEFAULT 0,
+    `end_time`              bigint          NOT NULL DEFAULT 0,
+    `last_active_time`      bigint          NOT NULL DEFAULT 0,
+    `data`                  text            NULL,
+    `revision`              bigint          NOT NULL DEFAULT 0,
+    PRIMARY KEY (`instance`, `group`, `name`) USING BTREE,
+    INDEX `race_job_revision` (`instance`, `revision`) USING BTREE,
+    INDEX `race_job_due` (`instance`, `state`, `next_time`) USING BTREE
+) ENGINE = InnoDB ROW_FORMAT = Dynamic;
+
+CREATE TABLE IF NOT EXISTS `race_job_tombstone`
+(
+    `instance`              varchar(100)    NOT NULL DEFAULT '',
+    `group`                 varchar(100)    NOT NULL DEFAULT '',
+    `name`                  varchar(100)    NOT NULL DEFAULT '',
+    `revision`              bigint          NOT NULL DEFAULT 0,
+    PRIMARY KEY (`instance`, `group`, `name`) USING BTREE,
+    INDEX `race_job_tombstone_revision` (`instance`, `revision`) USING BTREE
+) ENGINE = InnoDB ROW_FORMAT = Dynamic;
+
+CREATE TABLE IF NOT EXISTS `race_job_node`
+(
+    `instance`              varchar(100)    NOT NULL DEFAULT '',
+    `node_id`               varchar(100)    NOT NULL DEFAULT '',
+    `heartbeat_time`        bigint          NOT NULL DEFAULT 0,
+    `handler_keys`          text            NULL,
+    `capacity`              int             NOT NULL DEFAULT 0,
+    PRIMARY KEY (`instance`, `node_id`) USING BTREE
+) ENGINE = InnoDB ROW_FORMAT = Dynamic;
+
+CREATE TABLE IF NOT EXISTS `race_job_lease`
+(
+    `instance`              varchar(100)    NOT NULL DEFAULT '',
+    `name`                  varchar(100)    NOT NULL DEFAULT '',
+    `owner`                 varchar(100)    NOT NULL DEFAULT '',
+    `expire_time`           bigint          NOT NULL DEFAULT 0,
+    PRIMARY KEY (`instance`, `name`) USING BTREE
+) ENGINE = InnoDB ROW_FORMAT = Dynamic;
+
+CREATE TABLE IF NOT EXISTS `race_job_execution`
+(
+    `id`                    bigint          NOT NULL AUTO_INCREMENT,
+    `instance`              varchar(100)    NOT NULL DEFAULT '',
+    `group`                 varchar(100)    NOT NULL DEFAULT '',
+    `name`                  varchar(100)    NOT NULL DEFAULT '',
+    `key`                   varchar(100)    NOT NULL DEFAULT '',
+    `node_id`               varchar(100)    NOT NULL DEFAULT '',
+    `start_time`            bigint          NOT NULL DEFAULT 0,
+    `end_time`              bigint          NOT NULL DEFAULT 0,
+    `success`               tinyint         NOT NULL DEFAULT 0,
+    `error`                 varchar(255)    NOT NULL DEFAULT '',
+    PRIMARY KEY (`id`) USING BTREE,
+    INDEX `race_job_execution_job` (`instance`, `group`, `name`, `start_time`) USING BTREE,
+    INDEX `race_job_execution_start` (`instance`, `start_time`) USING BTREE
+) ENGINE = InnoDB ROW_FORMAT = Dynamic;
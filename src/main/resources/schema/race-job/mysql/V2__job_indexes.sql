@@ -0,0 +1,5 @@
+ALTER TABLE `race_job` ADD INDEX `race_job_handler` (`instance`, `key`, `state`, `next_time`, `enabled`) USING BTREE;
+
+ALTER TABLE `race_job` ADD INDEX `race_job_depends` (`instance`, `depends_key`, `group`, `name`) USING BTREE;
+
+ALTER TABLE `race_job` DROP INDEX `race_job_due`;
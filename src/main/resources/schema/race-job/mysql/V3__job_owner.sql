@@ -0,0 +1,3 @@
+ALTER TABLE `race_job` ADD COLUMN `owner` varchar(100) NOT NULL DEFAULT '';
+
+ALTER TABLE `race_job` ADD INDEX `race_job_owner` (`instance`, `state`, `owner`) USING BTREE;
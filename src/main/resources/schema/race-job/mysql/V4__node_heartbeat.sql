@@ -0,0 +1 @@
+ALTER TABLE `race_job_node` ADD INDEX `race_job_node_heartbeat` (`instance`, `heartbeat_time`) USING BTREE;
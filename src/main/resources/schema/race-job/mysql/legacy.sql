@@ -0,0 +1,5 @@
+ALTER TABLE `race_job` ADD COLUMN `revision` bigint NOT NULL DEFAULT 0;
+
+ALTER TABLE `race_job` ADD INDEX `race_job_revision` (`instance`, `revision`) USING BTREE;
+
+ALTER TABLE `race_job` ADD INDEX `race_job_due` (`instance`, `state`, `next_time`) USING BTREE;
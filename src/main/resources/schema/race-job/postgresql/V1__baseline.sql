@@ -0,0 +1,75 @@
+create table if not exists race_job
+(
+    "instance"              varchar(100)    not null default '',
+    "group"                 varchar(100)    not null default '',
+    "name"                  varchar(100)    not null default '',
+    "key"                   varchar(100)    not null default '',
+    "version"               int             not null default 1,
+    "timezone"              varchar(10)     not null default '',
+    description             varchar(200)    not null default '',
+    cron                    varchar(200)    not null default '',
+    depends_key             varchar(100)    not null default '',
+    prev_time               bigint          not null default 0,
+    next_time               bigint          not null default 0,
+    enabled                 boolean         not null default true,
+    state                   int             not null default 0,
+    start_time              bigint          not null default 0,
+    end_time                bigint          not null default 0,
+    last_active_time        bigint          not null default 0,
+    "data"                  text,
+    "revision"              bigint          not null default 0,
+    primary key ("instance", "group", "name")
+);
+
+create index if not exists race_job_revision on race_job ("instance", "revision");
+
+create index if not exists race_job_due on race_job ("instance", state, next_time);
+
+create table if not exists race_job_tombstone
+(
+    "instance"              varchar(100)    not null default '',
+    "group"                 varchar(100)    not null default '',
+    "name"                  varchar(100)    not null default '',
+    "revision"              bigint          not null default 0,
+    primary key ("instance", "group", "name")
+);
+
+create index if not exists race_job_tombstone_revision on race_job_tombstone ("instance", "revision");
+
+create table if not exists race_job_node
+(
+    "instance"              varchar(100)    not null default '',
+    node_id                 varchar(100)    not null default '',
+    heartbeat_time          bigint          not null default 0,
+    handler_keys            text,
+    capacity                int             not null default 0,
+    primary key ("instance", node_id)
+);
+
+create table if not exists race_job_lease
+(
+    "instance"              varchar(100)    not null default '',
+    "name"                  varchar(100)    not null default '',
+    "owner"                 varchar(100)    not null default '',
+    expire_time             bigint          not null default 0,
+    primary key ("instance", "name")
+);
+
+create table if not exists race_job_execution
+(
+    id                      bigserial,
+    "instance"              varchar(100)    not null default '',
+    "group"                 varchar(100)    not null default '',
+    "name"                  varchar(100)    not null default '',
+    "key"                   varchar(100)    not null default '',
+    node_id                 varchar(100)    not null default '',
+    start_time              bigint          not null default 0,
+    end_time                bigint          not null default 0,
+    success                 boolean         not null default false,
+    error                   varchar(255)    not null default '',
+    primary key (id)
+);
+
+create index if not exists race_job_execution_job on race_job_execution ("instance", "group", "name", start_time);
+
+create index if not exists race_job_execution_start on race_job_execution ("instance", start_time);
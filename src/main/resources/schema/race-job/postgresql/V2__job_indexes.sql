@@ -0,0 +1,5 @@
+create index if not exists race_job_handler on race_job ("instance", "key", state, next_time, enabled);
+
+create index if not exists race_job_depends on race_job ("instance", depends_key, "group", "name");
+
+drop index if exists race_job_due;
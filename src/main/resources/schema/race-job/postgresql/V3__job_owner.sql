@@ -0,0 +1,3 @@
+alter table race_job add column if not exists "owner" varchar(100) not null default '';
+
+create index if not exists race_job_owner on race_job ("instance", state, "owner");
@@ -0,0 +1,99 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobBinaryEventBus;
+import pers.clare.racejob.constant.RaceEventType;
+import pers.clare.racejob.util.RaceJobEventCodec;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingRaceJobEventChannelTest {
+
+    private static class RecordingEventBus implements RaceJobBinaryEventBus {
+        private final List<byte[]> frames = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(byte[] body) {
+            frames.add(body);
+        }
+
+        @Override
+        public void listen(Consumer<byte[]> listener) {
+        }
+
+        List<List<RaceJobEvent>> decoded() {
+            List<List<RaceJobEvent>> result = new ArrayList<>();
+            for (byte[] frame : frames) {
+                result.add(RaceJobEventCodec.decode(frame));
+            }
+            return result;
+        }
+    }
+
+    private static RaceJobEvent event(int i) {
+        return new RaceJobEvent(RaceEventType.COMPLETE, "group", "job" + i, i);
+    }
+
+    @Test
+    void splitFramesAtBatchSize() {
+        RecordingEventBus eventBus = new RecordingEventBus();
+        BatchingRaceJobEventChannel channel = new BatchingRaceJobEventChannel(eventBus, 3, Duration.ofHours(1));
+        List<RaceJobEvent> events = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            events.add(event(i));
+            channel.publish(events.get(i));
+        }
+        List<List<RaceJobEvent>> frames = eventBus.decoded();
+        assertEquals(2, frames.size(), "the last event waits for the flush");
+        assertEquals(events.subList(0, 3), frames.get(0));
+        assertEquals(events.subList(3, 6), frames.get(1));
+
+        channel.close();
+        frames = eventBus.decoded();
+        assertEquals(3, frames.size());
+        assertEquals(events.subList(6, 7), frames.get(2));
+    }
+
+    @Test
+    void flushOnClose() {
+        RecordingEventBus eventBus = new RecordingEventBus();
+        BatchingRaceJobEventChannel channel = new BatchingRaceJobEventChannel(eventBus, 100, Duration.ofHours(1));
+        channel.publish(event(1));
+        channel.publish(event(2));
+        assertTrue(eventBus.frames.isEmpty());
+        channel.close();
+        assertEquals(1, eventBus.frames.size());
+        assertEquals(List.of(event(1), event(2)), eventBus.decoded().get(0));
+
+        channel.close();
+        assertEquals(1, eventBus.frames.size(), "an empty buffer sends nothing");
+    }
+
+    @Test
+    void flushAfterInterval() throws InterruptedException {
+        RecordingEventBus eventBus = new RecordingEventBus();
+        BatchingRaceJobEventChannel channel = new BatchingRaceJobEventChannel(eventBus, 100, Duration.ofMillis(50));
+        try {
+            channel.publish(event(1));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (eventBus.frames.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(List.of(event(1))), eventBus.decoded());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    void rejectInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchingRaceJobEventChannel(new RecordingEventBus(), 0, Duration.ofSeconds(1)));
+    }
+}
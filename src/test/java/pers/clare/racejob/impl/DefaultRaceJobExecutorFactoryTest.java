@@ -0,0 +1,74 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.constant.RaceJobExecutorType;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultRaceJobExecutorFactoryTest {
+
+    /**
+     * Stands in for a runtime with virtual threads.
+     */
+    public static class VirtualExecutors {
+        public static ExecutorService newVirtualThreadPerTaskExecutor() {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static RaceJobProperties properties(RaceJobExecutorType type) {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setExecutorType(type);
+        properties.setThreadCount(2);
+        return properties;
+    }
+
+    private static String runOn(ExecutorService executor) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return executor.submit(() -> Thread.currentThread().toString()).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void platformPool() throws Exception {
+        ExecutorService executor = new DefaultRaceJobExecutorFactory().create(properties(RaceJobExecutorType.PLATFORM));
+        assertTrue(executor instanceof ThreadPoolExecutor);
+        assertEquals(2, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        assertTrue(runOn(executor).contains("race-job-"));
+    }
+
+    @Test
+    void virtualOnBuildJdk() throws Exception {
+        ExecutorService executor = new DefaultRaceJobExecutorFactory().create(properties(RaceJobExecutorType.VIRTUAL));
+        boolean virtualThreads = Runtime.version().feature() >= 21;
+        assertEquals(!virtualThreads, executor instanceof ThreadPoolExecutor, "virtual threads on Java 21+, platform threads before");
+        String thread = runOn(executor);
+        if (virtualThreads) assertTrue(thread.startsWith("VirtualThread"), thread);
+    }
+
+    @Test
+    void fallbackWithoutVirtualThreadApi() throws Exception {
+        // Object declares no newVirtualThreadPerTaskExecutor, as Executors on Java 11
+        ExecutorService executor = new DefaultRaceJobExecutorFactory(Object.class).create(properties(RaceJobExecutorType.VIRTUAL));
+        assertTrue(executor instanceof ThreadPoolExecutor);
+        assertTrue(runOn(executor).contains("race-job-"));
+    }
+
+    @Test
+    void virtualWithVirtualThreadApi() throws Exception {
+        ExecutorService executor = new DefaultRaceJobExecutorFactory(VirtualExecutors.class).create(properties(RaceJobExecutorType.VIRTUAL));
+        assertFalse(executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).getMaximumPoolSize() == 2
+                , "the factory method found by reflection is used");
+        assertNotNull(runOn(executor));
+    }
+}
@@ -0,0 +1,198 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.constant.RaceJobFileSync;
+import pers.clare.racejob.constant.RaceJobState;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileRaceJobStoreImplTest extends RaceJobStoreConformanceTest {
+    private static final String INSTANCE = "file";
+
+    private static FileRaceJobStoreImpl store;
+
+    @Override
+    protected RaceJobStore createStore() {
+        if (store == null) {
+            try {
+                store = open(Files.createTempDirectory("race-job-conformance"), Long.MAX_VALUE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return store;
+    }
+
+    @AfterAll
+    static void close() throws IOException {
+        if (store != null) store.destroy();
+    }
+
+    private static FileRaceJobStoreImpl open(Path directory, long compactSize) throws IOException {
+        FileRaceJobStoreImpl store = new FileRaceJobStoreImpl(directory, RaceJobFileSync.NONE, Duration.ofMillis(50), compactSize, RaceJobMetrics.NOOP);
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    private static RaceJob job(int n) {
+        return RaceJob.builder()
+                .group("g" + n % 10)
+                .name(String.valueOf(n))
+                .key("handler")
+                .cron("*/1 * * * * ?")
+                .timezone("+00:00")
+                .data(Collections.singletonMap("n", n))
+                .build();
+    }
+
+    private static void assertSameState(RaceJobStore expected, RaceJobStore actual) {
+        List<RaceJob> jobs = expected.findAll(INSTANCE);
+        assertEquals(jobs.size(), actual.findAll(INSTANCE).size());
+        for (RaceJob job : jobs) {
+            RaceJob restored = actual.find(INSTANCE, job.toKey());
+            assertNotNull(restored, job::toString);
+            assertEquals(job.getVersion(), restored.getVersion());
+            assertEquals(job.getEnabled(), restored.getEnabled());
+            assertEquals(job.getData().get("n"), restored.getData().get("n"));
+            RaceJobStatus status = expected.getStatus(INSTANCE, job.toKey());
+            RaceJobStatus restoredStatus = actual.getStatus(INSTANCE, job.toKey());
+            assertEquals(status.getState(), restoredStatus.getState());
+            assertEquals(status.getNextTime(), restoredStatus.getNextTime());
+            assertEquals(status.getLastActiveTime(), restoredStatus.getLastActiveTime());
+        }
+        assertEquals(expected.findChangedSince(INSTANCE, 0).getRemovedKeys().size(), actual.findChangedSince(INSTANCE, 0).getRemovedKeys().size());
+    }
+
+    /**
+     * Apply the same changes as a running scheduler would, so the log holds every record type.
+     */
+    private static void change(RaceJobStore store) {
+        List<RaceJob> jobs = new ArrayList<>();
+        long[] nextTimes = new long[200];
+        for (int i = 0; i < 200; i++) {
+            jobs.add(job(i));
+            nextTimes[i] = i;
+        }
+        store.upsert(INSTANCE, jobs, nextTimes);
+        store.update(INSTANCE, job(1).toBuilder().version(2).build(), 10);
+        store.compete(INSTANCE, job(2).toKey(), 100, 1000);
+        store.tryClaim(INSTANCE, job(3).toKey(), 100, 1000, 0);
+        store.release(INSTANCE, job(3).toKey(), 200);
+        store.updateActive(INSTANCE, Collections.singletonList(job(2).toKey()), 2000);
+        store.compete(INSTANCE, job(4).toKey(), 3000);
+        store.finish(INSTANCE, job(4).toKey(), 4000);
+        store.disable(INSTANCE, job(5).toKey());
+        store.disableGroup(INSTANCE, "g6");
+        store.enable(INSTANCE, job(16).toKey());
+        store.delete(INSTANCE, job(7).toKey());
+        store.deleteGroup(INSTANCE, "g8");
+        store.claimDue(INSTANCE, Collections.singleton("handler"), System.currentTimeMillis(), 0, 50);
+    }
+
+    @Test
+    void recover(@TempDir Path directory) throws IOException {
+        FileRaceJobStoreImpl store = open(directory, Long.MAX_VALUE);
+        change(store);
+        store.destroy();
+
+        FileRaceJobStoreImpl reopened = open(directory, Long.MAX_VALUE);
+        assertSameState(store, reopened);
+        assertEquals(RaceJobState.EXECUTING, reopened.getStatus(INSTANCE, job(2).toKey()).getState());
+        assertNull(reopened.find(INSTANCE, job(18).toKey()));
+        assertFalse(reopened.find(INSTANCE, job(26).toKey()).getEnabled());
+        assertEquals(0, reopened.compete(INSTANCE, job(2).toKey(), 100, 5000), "claimed before the restart");
+        reopened.destroy();
+    }
+
+    @Test
+    void recoverIgnoresTornRecord(@TempDir Path directory) throws IOException {
+        FileRaceJobStoreImpl store = open(directory, Long.MAX_VALUE);
+        store.insert(INSTANCE, job(1), 100);
+        store.insert(INSTANCE, job(2), 100);
+        store.destroy();
+
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.collect(Collectors.toList()).get(0);
+        }
+        long end = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            // an incomplete record after the valid ones, and a corrupted tail of the last valid one
+            channel.write(ByteBuffer.allocate(8).putInt(0, 100).putInt(4, 0x01020304), end);
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), end - 1);
+        }
+
+        FileRaceJobStoreImpl reopened = open(directory, Long.MAX_VALUE);
+        assertNotNull(reopened.find(INSTANCE, job(1).toKey()));
+        assertNull(reopened.find(INSTANCE, job(2).toKey()));
+        reopened.insert(INSTANCE, job(3), 100);
+        reopened.destroy();
+
+        reopened = open(directory, Long.MAX_VALUE);
+        assertNotNull(reopened.find(INSTANCE, job(3).toKey()));
+        reopened.destroy();
+    }
+
+    @Test
+    void compact(@TempDir Path directory) throws Exception {
+        FileRaceJobStoreImpl store = open(directory, 1024);
+        change(store);
+        for (int i = 0; i < 200; i++) {
+            store.updateActive(INSTANCE, job(i), i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(directory.resolve("race-job-0.log")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(Files.exists(directory.resolve("race-job-1.log")));
+        assertFalse(Files.exists(directory.resolve("race-job-0.log")));
+        store.compete(INSTANCE, job(0).toKey(), 100, 1000);
+        store.destroy();
+
+        FileRaceJobStoreImpl reopened = open(directory, Long.MAX_VALUE);
+        assertSameState(store, reopened);
+        reopened.destroy();
+    }
+
+    @Test
+    void unfinishedSnapshotIsIgnored(@TempDir Path directory) throws IOException {
+        FileRaceJobStoreImpl store = open(directory, Long.MAX_VALUE);
+        store.insert(INSTANCE, job(1), 100);
+        store.destroy();
+        Files.write(directory.resolve("race-job-5.log"), new byte[64]);
+
+        FileRaceJobStoreImpl reopened = open(directory, Long.MAX_VALUE);
+        assertNotNull(reopened.find(INSTANCE, job(1).toKey()));
+        assertFalse(Files.exists(directory.resolve("race-job-5.log")));
+        reopened.destroy();
+    }
+
+    @Test
+    void closed(@TempDir Path directory) throws IOException {
+        FileRaceJobStoreImpl store = open(directory, Long.MAX_VALUE);
+        store.destroy();
+        assertThrows(RuntimeException.class, () -> store.insert(INSTANCE, job(1), 100));
+        assertNull(store.find(INSTANCE, new RaceJobKey("g1", "1")));
+    }
+}
@@ -0,0 +1,83 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.constant.RaceJobDialect;
+import pers.clare.racejob.vo.RaceJob;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcRaceJobStoreImplTest extends RaceJobStoreConformanceTest {
+    private static final AtomicInteger connections = new AtomicInteger();
+
+    private static JdbcRaceJobStoreImpl store;
+
+    @Override
+    protected RaceJobStore createStore() {
+        if (store == null) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:conformance;MODE=MYSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", "sa", "");
+            store = new JdbcRaceJobStoreImpl(new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    connections.incrementAndGet();
+                    return super.getConnection();
+                }
+            });
+            store.afterPropertiesSet();
+        }
+        return store;
+    }
+
+    @Test
+    void sessionHoldsOneConnection() {
+        String instance = UUID.randomUUID().toString();
+        RaceJob job = RaceJob.builder().group("g").name("a").key("handler").cron("*/1 * * * * ?").build();
+        int before = connections.get();
+        store.session(() -> {
+            store.insert(instance, job, 100);
+            for (int i = 1; i <= 10; i++) {
+                assertEquals(1, store.compete(instance, job.toKey(), 100 + i, i));
+                assertEquals(1, store.finish(instance, job.toKey(), i));
+            }
+            return store.find(instance, job.toKey());
+        });
+        assertEquals(before + 1, connections.get());
+    }
+
+    /**
+     * The native upsert of MySQL, on H2 in MySQL mode.
+     */
+    @Nested
+    class MySqlDialect extends RaceJobStoreConformanceTest {
+        @Override
+        protected RaceJobStore createStore() {
+            return dialectStore("jdbc:h2:mem:conformance_mysql;MODE=MYSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", RaceJobDialect.MYSQL);
+        }
+    }
+
+    /**
+     * The MERGE of H2, on H2 in PostgreSQL mode.
+     */
+    @Nested
+    class H2PostgreSqlMode extends RaceJobStoreConformanceTest {
+        @Override
+        protected RaceJobStore createStore() {
+            return dialectStore("jdbc:h2:mem:conformance_postgresql;MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", RaceJobDialect.H2);
+        }
+    }
+
+    private static RaceJobStore dialectStore(String url, RaceJobDialect dialect) {
+        JdbcRaceJobStoreImpl store = new JdbcRaceJobStoreImpl(new DriverManagerDataSource(url, "sa", ""), RaceJobMetrics.NOOP, dialect);
+        store.afterPropertiesSet();
+        return store;
+    }
+}
@@ -0,0 +1,12 @@
+package pers.clare.racejob.impl;
+
+import pers.clare.racejob.RaceJobStore;
+
+class MemoryRaceJobStoreImplTest extends RaceJobStoreConformanceTest {
+    private static final MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl();
+
+    @Override
+    protected RaceJobStore createStore() {
+        return store;
+    }
+}
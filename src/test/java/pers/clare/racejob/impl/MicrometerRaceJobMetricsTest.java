@@ -0,0 +1,163 @@
+package pers.clare.racejob.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobNode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerRaceJobMetricsTest {
+    private static final String INSTANCE = "metrics";
+
+    private static final String KEY = "handler";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MicrometerRaceJobMetrics metrics = new MicrometerRaceJobMetrics(registry, INSTANCE);
+
+    private static RaceJob job(String name) {
+        return RaceJob.builder()
+                .group("g")
+                .name(name)
+                .key(KEY)
+                .cron("* * * * * ?")
+                .timezone("+00:00")
+                .build();
+    }
+
+    private double compete(String result) {
+        return registry.get("race.job.compete").tags("instance", INSTANCE, "result", result).counter().count();
+    }
+
+    private long statements(String statement) {
+        Timer timer = registry.find("race.job.store").tags("instance", INSTANCE, "statement", statement, "outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private long statements() {
+        return registry.find("race.job.store").timers().stream().mapToLong(Timer::count).sum();
+    }
+
+    private void assertTimed(String statement, Runnable call) {
+        long before = statements(statement);
+        long total = statements();
+        call.run();
+        assertEquals(before + 1, statements(statement), statement);
+        assertEquals(total + 1, statements(), statement + " is the only statement recorded");
+    }
+
+    @Test
+    void claimOutcomes() {
+        for (RaceJobClaim claim : RaceJobClaim.values()) {
+            assertEquals(0, compete(claim.name().toLowerCase()), "registered up front");
+            metrics.recordClaim(claim);
+        }
+        metrics.recordCompete(true);
+        metrics.recordCompete(false);
+        metrics.recordOrphansReleased(3);
+
+        assertEquals(2, compete("won"));
+        assertEquals(2, compete("lost"));
+        assertEquals(1, compete("stale"));
+        assertEquals(1, compete("held"));
+        assertEquals(1, compete("disabled"));
+        Counter orphans = registry.get("race.job.orphans.released").tags("instance", INSTANCE).counter();
+        assertEquals(3, orphans.count());
+    }
+
+    @Test
+    void storeClaimsRecordStaleTakeovers() {
+        MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl(metrics);
+        long now = System.currentTimeMillis();
+        RaceJob due = job("due");
+        RaceJob stale = job("stale");
+        store.insert(INSTANCE, due, now - 1000);
+        store.insert(INSTANCE, stale, now - 1000);
+        assertEquals(RaceJobClaim.WON, store.tryClaim(INSTANCE, stale.toKey(), now - 500, now - 10000, 0));
+
+        assertEquals(2, store.claimDue(INSTANCE, Collections.singleton(KEY), now, now - 5000, 10).size());
+        assertEquals(1, compete("won"));
+        assertEquals(1, compete("stale"));
+    }
+
+    @Test
+    void executionAndReloadTimers() {
+        metrics.recordExecution("g", KEY, TimeUnit.MILLISECONDS.toNanos(5), false);
+        metrics.recordReload(false, TimeUnit.MILLISECONDS.toNanos(2), 7);
+        metrics.recordHistoryDropped(4);
+        metrics.recordFireLag(-1);
+
+        assertEquals(1, registry.get("race.job.execution").tags("instance", INSTANCE, "group", "g", "key", KEY, "outcome", "failure").timer().count());
+        assertEquals(1, registry.get("race.job.reload").tags("instance", INSTANCE, "type", "delta").timer().count());
+        assertEquals(7, registry.get("race.job.reload.rows").tags("type", "delta").summary().totalAmount());
+        assertEquals(4, registry.get("race.job.history.dropped").counter().count());
+        assertEquals(0, registry.get("race.job.fire.lag").timer().totalTime(TimeUnit.MILLISECONDS), "negative lag is clamped");
+    }
+
+    @Test
+    void storeCallsTimedByStatement() {
+        RaceJobStore store = new MeteredRaceJobStore(new MemoryRaceJobStoreImpl(), metrics);
+        RaceJob job = job("a");
+        RaceJobKey key = job.toKey();
+        List<RaceJobKey> keys = Collections.singletonList(key);
+        Set<String> handlerKeys = Collections.singleton(KEY);
+
+        assertTimed("insert", () -> store.insert(INSTANCE, job, 100));
+        assertTimed("update", () -> store.update(INSTANCE, job, 100));
+        assertTimed("save", () -> store.save(INSTANCE, job, 100));
+        assertTimed("upsert", () -> store.upsert(INSTANCE, Collections.singletonList(job), new long[]{100}));
+        assertTimed("findAll", () -> store.findAll(INSTANCE));
+        assertTimed("findAllByGroup", () -> store.findAll(INSTANCE, "g"));
+        assertTimed("find", () -> store.find(INSTANCE, key));
+        assertTimed("findByKeys", () -> store.find(INSTANCE, keys));
+        assertTimed("findChangedSince", () -> store.findChangedSince(INSTANCE, 0));
+        assertTimed("deleteTombstones", () -> store.deleteTombstones(INSTANCE, 0));
+        assertTimed("getStatus", () -> store.getStatus(INSTANCE, key));
+        assertTimed("enable", () -> store.enable(INSTANCE, key));
+        assertTimed("disable", () -> store.disable(INSTANCE, key));
+        assertTimed("enableGroup", () -> store.enableGroup(INSTANCE, "g"));
+        assertTimed("disableGroup", () -> store.disableGroup(INSTANCE, "g"));
+        assertTimed("release", () -> store.release(INSTANCE, key, 100));
+        assertTimed("compete", () -> store.compete(INSTANCE, key, 100, 200));
+        assertTimed("competeCommand", () -> store.compete(INSTANCE, key, 300));
+        assertTimed("tryClaim", () -> store.tryClaim(INSTANCE, key, 200, 400, 0));
+        assertTimed("tryClaim", () -> store.tryClaim(INSTANCE, key, 300, 500, 0, "node"));
+        assertTimed("claimDue", () -> store.claimDue(INSTANCE, handlerKeys, 0, 0, 10));
+        assertTimed("claimDue", () -> store.claimDue(INSTANCE, handlerKeys, 0, 0, 10, "node"));
+        assertTimed("updateActive", () -> store.updateActive(INSTANCE, job, 600));
+        assertTimed("updateActiveBatch", () -> store.updateActive(INSTANCE, keys, 600));
+        assertTimed("finish", () -> store.finish(INSTANCE, key, 700));
+        assertTimed("finish", () -> store.finish(INSTANCE, key, 700, "node"));
+        assertTimed("heartbeat", () -> store.heartbeat(INSTANCE, new RaceJobNode("node", 100, handlerKeys, 1)));
+        assertTimed("findNodes", () -> store.findNodes(INSTANCE, 0));
+        assertTimed("releaseOrphans", () -> store.releaseOrphans(INSTANCE, 0));
+        assertTimed("deleteNodes", () -> store.deleteNodes(INSTANCE, 0));
+        assertTimed("deleteNode", () -> store.deleteNode(INSTANCE, "node"));
+        assertTimed("acquireLease", () -> store.acquireLease(INSTANCE, "lease", "node", 100, 200));
+        assertTimed("releaseLease", () -> store.releaseLease(INSTANCE, "lease", "node"));
+        assertTimed("delete", () -> store.delete(INSTANCE, key));
+        assertTimed("deleteBatch", () -> store.delete(INSTANCE, keys));
+        assertTimed("deleteGroup", () -> store.deleteGroup(INSTANCE, "g"));
+    }
+
+    @Test
+    void failedStoreCallsTimedAsFailure() {
+        RaceJobStore store = new MeteredRaceJobStore(new MemoryRaceJobStoreImpl(), metrics);
+        RaceJob job = job("a");
+        store.insert(INSTANCE, job, 100);
+
+        assertThrows(RuntimeException.class, () -> store.insert(INSTANCE, job, 100));
+        assertEquals(1, registry.get("race.job.store").tags("statement", "insert", "outcome", "failure").timer().count());
+    }
+}
@@ -0,0 +1,28 @@
+package pers.clare.racejob.impl;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobStore;
+
+/**
+ * The MySQL dialect with the row alias upsert on a real MySQL 8 server, skipped when Docker is unavailable.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MySqlRaceJobStoreImplTest extends RaceJobStoreConformanceTest {
+    @Container
+    private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    private static JdbcRaceJobStoreImpl store;
+
+    @Override
+    protected RaceJobStore createStore() {
+        if (store == null) {
+            store = new JdbcRaceJobStoreImpl(new DriverManagerDataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword()), RaceJobMetrics.NOOP, null);
+            store.afterPropertiesSet();
+        }
+        return store;
+    }
+}
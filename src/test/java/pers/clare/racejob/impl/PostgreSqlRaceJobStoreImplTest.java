@@ -0,0 +1,28 @@
+package pers.clare.racejob.impl;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobStore;
+
+/**
+ * The PostgreSQL dialect on a real PostgreSQL server, skipped when Docker is unavailable.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PostgreSqlRaceJobStoreImplTest extends RaceJobStoreConformanceTest {
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13-alpine");
+
+    private static JdbcRaceJobStoreImpl store;
+
+    @Override
+    protected RaceJobStore createStore() {
+        if (store == null) {
+            store = new JdbcRaceJobStoreImpl(new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()), RaceJobMetrics.NOOP, null);
+            store.afterPropertiesSet();
+        }
+        return store;
+    }
+}
@@ -0,0 +1,294 @@
+package pers.clare.racejob.impl;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.tools.Server;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import pers.clare.racejob.RaceJobEventBus;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.constant.RaceJobMode;
+import pers.clare.racejob.constant.RaceJobTimerType;
+import pers.clare.racejob.vo.RaceJob;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs N schedulers in one JVM against a shared H2 TCP server and an in-process event bus,
+ * and reports duplicate executions, missed firings, fire lag, store calls per firing and throughput per node count.
+ * <p>
+ * Options are system properties:
+ * <pre>
+ * -Dnodes=1,2,4       node counts, one run each
+ * -Djobs=20000        cron jobs, spread over the periods
+ * -Dperiods=1,5,10,30 cron periods in seconds, each must divide 60
+ * -Dlatency=exp:20    handler latency in ms: 0, fixed:N, uniform:A-B or exp:MEAN
+ * -Dduration=PT60S    measured window
+ * -Dwarmup=PT10S      ignored time after start
+ * -Dmode=RACE         scheduler mode
+ * -Dthreads=16        handler threads per node
+ * -Dport=9998         H2 TCP port
+ * </pre>
+ * A firing is identified by its job and the period boundary before the handler start,
+ * so a lag longer than the period shows up as a duplicate plus a missed firing.
+ */
+public class RaceJobClusterSimulator {
+    private static final String INSTANCE = "simulator";
+
+    private static final String HANDLER_KEY = "simulator";
+
+    /**
+     * Firings due this close to the end of the window are not counted as missed.
+     */
+    private static final long GRACE = TimeUnit.SECONDS.toMillis(2);
+
+    private static final int MAX_LAG = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] nodeCounts = ints(System.getProperty("nodes", "1,2,4"));
+        int jobCount = Integer.getInteger("jobs", 20_000);
+        int[] periods = ints(System.getProperty("periods", "1,5,10,30"));
+        for (int period : periods) {
+            if (period <= 0 || 60 % period != 0) throw new IllegalArgumentException("Period must divide 60: " + period);
+        }
+        LongSupplier latency = latency(System.getProperty("latency", "exp:20"));
+        Duration duration = Duration.parse(System.getProperty("duration", "PT60S"));
+        Duration warmup = Duration.parse(System.getProperty("warmup", "PT10S"));
+        RaceJobMode mode = RaceJobMode.valueOf(System.getProperty("mode", "RACE"));
+        int threads = Integer.getInteger("threads", 16);
+        String port = System.getProperty("port", "9998");
+
+        Server server = Server.createTcpServer("-tcpPort", port, "-ifNotExists").start();
+        try {
+            System.out.printf("%-5s %9s %9s %10s %8s %8s %8s %8s %8s %10s%n"
+                    , "nodes", "firings", "expected", "per sec", "dup", "missed", "p50 ms", "p99 ms", "max ms", "calls/fire");
+            for (int nodeCount : nodeCounts) {
+                new Run("jdbc:h2:tcp://localhost:" + port + "/mem:simulator-" + nodeCount + ";MODE=MYSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1"
+                        , nodeCount, jobCount, periods, latency, mode, threads).execute(warmup, duration);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static class Run {
+        private final String url;
+        private final int nodeCount;
+        private final int jobCount;
+        private final int[] periods;
+        private final LongSupplier latency;
+        private final RaceJobMode mode;
+        private final int threads;
+
+        /**
+         * Executions per firing, keyed by job index and period boundary in seconds.
+         */
+        private final Map<Long, AtomicInteger> firings = new ConcurrentHashMap<>();
+        private final AtomicLongArray lags = new AtomicLongArray(MAX_LAG + 1);
+        private final AtomicLong statements = new AtomicLong();
+        private volatile long measureStart = Long.MAX_VALUE;
+        private volatile long measureEnd = Long.MAX_VALUE;
+
+        Run(String url, int nodeCount, int jobCount, int[] periods, LongSupplier latency, RaceJobMode mode, int threads) {
+            this.url = url;
+            this.nodeCount = nodeCount;
+            this.jobCount = jobCount;
+            this.periods = periods;
+            this.latency = latency;
+            this.mode = mode;
+            this.threads = threads;
+        }
+
+        void execute(Duration warmup, Duration duration) throws Exception {
+            RaceJobMetrics metrics = new RaceJobMetrics() {
+                @Override
+                public void recordStatement(String statement, long duration, boolean success) {
+                    statements.incrementAndGet();
+                }
+            };
+            InProcessEventBus eventBus = new InProcessEventBus();
+            List<HikariDataSource> dataSources = new ArrayList<>();
+            List<RaceJobSchedulerImpl> schedulers = new ArrayList<>();
+            try {
+                for (int i = 0; i < nodeCount; i++) {
+                    HikariDataSource dataSource = newDataSource();
+                    dataSources.add(dataSource);
+                    JdbcRaceJobStoreImpl store = new JdbcRaceJobStoreImpl(dataSource);
+                    store.afterPropertiesSet();
+                    RaceJobSchedulerImpl scheduler = new RaceJobSchedulerImpl(newProperties(i), new MeteredRaceJobStore(store, metrics)
+                            , new TextRaceJobEventChannel(eventBus), new DefaultRaceJobExecutorFactory(), metrics);
+                    scheduler.registerHandler(HANDLER_KEY, this::handle);
+                    scheduler.afterPropertiesSet();
+                    schedulers.add(scheduler);
+                }
+                schedulers.get(0).addAll(newJobs());
+                for (RaceJobSchedulerImpl scheduler : schedulers) {
+                    scheduler.run();
+                }
+                Thread.sleep(warmup.toMillis());
+                measureStart = System.currentTimeMillis();
+                long startStatements = statements.get();
+                Thread.sleep(duration.toMillis());
+                measureEnd = System.currentTimeMillis();
+                long windowStatements = statements.get() - startStatements;
+                report(windowStatements);
+            } finally {
+                for (RaceJobSchedulerImpl scheduler : schedulers) {
+                    scheduler.destroy();
+                }
+                eventBus.close();
+                for (HikariDataSource dataSource : dataSources) {
+                    dataSource.close();
+                }
+            }
+        }
+
+        private void handle(RaceJob job) throws InterruptedException {
+            long start = System.currentTimeMillis();
+            int index = Integer.parseInt(job.getName());
+            long period = TimeUnit.SECONDS.toMillis(periods[index % periods.length]);
+            long fireTime = start / period * period;
+            if (fireTime >= measureStart && fireTime < measureEnd) {
+                firings.computeIfAbsent(((long) index << 32) | (fireTime / 1000 & 0xFFFFFFFFL), k -> new AtomicInteger()).incrementAndGet();
+                lags.incrementAndGet((int) Math.min(MAX_LAG, start - fireTime));
+            }
+            long sleep = latency.getAsLong();
+            if (sleep > 0) Thread.sleep(sleep);
+        }
+
+        private void report(long windowStatements) {
+            long executions = 0;
+            long duplicates = 0;
+            for (AtomicInteger count : firings.values()) {
+                executions += count.get();
+                duplicates += count.get() - 1;
+            }
+            long expected = 0;
+            long missed = 0;
+            long cutoff = measureEnd - GRACE;
+            for (int index = 0; index < jobCount; index++) {
+                long period = TimeUnit.SECONDS.toMillis(periods[index % periods.length]);
+                for (long fireTime = (measureStart + period - 1) / period * period; fireTime < cutoff; fireTime += period) {
+                    expected++;
+                    if (!firings.containsKey(((long) index << 32) | (fireTime / 1000 & 0xFFFFFFFFL))) missed++;
+                }
+            }
+            double seconds = (measureEnd - measureStart) / 1000.0;
+            System.out.printf("%-5d %9d %9d %10.1f %8d %8d %8d %8d %8d %10.2f%n"
+                    , nodeCount, executions, expected, executions / seconds, duplicates, missed
+                    , percentile(executions, 0.5), percentile(executions, 0.99), percentile(executions, 1.0)
+                    , executions == 0 ? 0 : (double) windowStatements / executions);
+        }
+
+        private long percentile(long total, double ratio) {
+            long rank = Math.max(1, (long) Math.ceil(total * ratio));
+            long seen = 0;
+            for (int lag = 0; lag <= MAX_LAG; lag++) {
+                seen += lags.get(lag);
+                if (seen >= rank) return lag;
+            }
+            return MAX_LAG;
+        }
+
+        private List<RaceJob> newJobs() {
+            List<RaceJob> jobs = new ArrayList<>(jobCount);
+            for (int i = 0; i < jobCount; i++) {
+                jobs.add(RaceJob.builder()
+                        .group(INSTANCE)
+                        .name(String.valueOf(i))
+                        .key(HANDLER_KEY)
+                        .cron("*/" + periods[i % periods.length] + " * * * * ?")
+                        .timezone("+00:00")
+                        .build());
+            }
+            return jobs;
+        }
+
+        private RaceJobProperties newProperties(int index) {
+            RaceJobProperties properties = new RaceJobProperties();
+            properties.setInstance(INSTANCE);
+            properties.setNodeId("node-" + index);
+            properties.setMode(mode);
+            properties.setThreadCount(threads);
+            properties.setMaxConcurrency(threads * 4);
+            properties.setQueueCapacity(Math.max(10_000, jobCount));
+            properties.setTimer(RaceJobTimerType.WHEEL);
+            properties.setReloadInterval(Duration.ofSeconds(5));
+            properties.setUpdateActiveInterval(Duration.ofSeconds(1));
+            properties.setNodeHeartbeatInterval(Duration.ofSeconds(1));
+            properties.setNodeTimeout(Duration.ofSeconds(3));
+            properties.setAbortOnError(false);
+            return properties;
+        }
+
+        private HikariDataSource newDataSource() {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(url);
+            config.setUsername("sa");
+            config.setMaximumPoolSize(threads + 4);
+            return new HikariDataSource(config);
+        }
+    }
+
+    /**
+     * Delivers every event to every node, the sender included, on one thread like a broker subscription.
+     */
+    private static class InProcessEventBus implements RaceJobEventBus {
+        private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("simulator-bus-"));
+
+        @Override
+        public void send(String body) {
+            executor.execute(() -> listeners.forEach(listener -> listener.accept(body)));
+        }
+
+        @Override
+        public void listen(Consumer<String> listener) {
+            listeners.add(listener);
+        }
+
+        void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    private static LongSupplier latency(String spec) {
+        String[] parts = spec.split(":", 2);
+        switch (parts[0]) {
+            case "0":
+                return () -> 0;
+            case "fixed":
+                long fixed = Long.parseLong(parts[1]);
+                return () -> fixed;
+            case "uniform":
+                String[] range = parts[1].split("-");
+                long min = Long.parseLong(range[0]);
+                long max = Long.parseLong(range[1]);
+                return () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+            case "exp":
+                double mean = Double.parseDouble(parts[1]);
+                return () -> (long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+            default:
+                throw new IllegalArgumentException("Unknown latency: " + spec);
+        }
+    }
+
+    private static int[] ints(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
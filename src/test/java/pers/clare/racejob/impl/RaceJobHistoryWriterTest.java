@@ -0,0 +1,114 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import pers.clare.racejob.RaceJobHistoryStore;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.vo.RaceJobExecution;
+import pers.clare.racejob.vo.RaceJobKey;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaceJobHistoryWriterTest {
+    private static final Duration NEVER = Duration.ofDays(1);
+
+    private static JdbcRaceJobHistoryStoreImpl historyStore;
+
+    @BeforeAll
+    static void init() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:history;MODE=MYSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", "sa", "");
+        historyStore = new JdbcRaceJobHistoryStoreImpl(dataSource);
+        historyStore.afterPropertiesSet();
+    }
+
+    private static RaceJobExecution execution(int n, long startTime) {
+        return new RaceJobExecution("g", "n" + n % 2, "handler", "node", startTime, startTime + 1, n % 3 != 0, n % 3 != 0 ? "" : "IllegalStateException: " + n);
+    }
+
+    @Test
+    void flush() throws InterruptedException {
+        String instance = UUID.randomUUID().toString();
+        RaceJobHistoryWriter writer = new RaceJobHistoryWriter(instance, historyStore, 1024, 7, Duration.ofMillis(20), NEVER, NEVER, RaceJobMetrics.NOOP);
+        for (int i = 0; i < 100; i++) {
+            writer.record(execution(i, i));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (historyStore.find(instance, new RaceJobKey("g", "n0"), 100).size() < 50 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        List<RaceJobExecution> executions = historyStore.find(instance, new RaceJobKey("g", "n0"), 100);
+        assertEquals(50, executions.size());
+        assertEquals(98, executions.get(0).getStartTime(), "newest first");
+        assertFalse(executions.get(1).isSuccess());
+        assertEquals("IllegalStateException: 96", executions.get(1).getError());
+        assertEquals(3, historyStore.find(instance, new RaceJobKey("g", "n1"), 3).size());
+        writer.destroy();
+        assertEquals(0, writer.getDropped());
+    }
+
+    @Test
+    void dropWhenFull() {
+        String instance = UUID.randomUUID().toString();
+        AtomicLong reported = new AtomicLong();
+        RaceJobMetrics metrics = new RaceJobMetrics() {
+            @Override
+            public void recordHistoryDropped(long count) {
+                reported.addAndGet(count);
+            }
+        };
+        RaceJobHistoryWriter writer = new RaceJobHistoryWriter(instance, historyStore, 10, 100, NEVER, NEVER, NEVER, metrics);
+        for (int i = 0; i < 20; i++) {
+            writer.record(execution(i, i));
+        }
+        assertEquals(4, writer.getDropped(), "buffer rounded up to 16");
+        writer.destroy();
+        assertEquals(4, reported.get());
+        assertEquals(8, historyStore.find(instance, new RaceJobKey("g", "n0"), 100).size());
+    }
+
+    @Test
+    void dropFailedBatch() {
+        RaceJobHistoryStore failing = new RaceJobHistoryStore() {
+            @Override
+            public void insert(String instance, List<RaceJobExecution> executions) {
+                throw new IllegalStateException("unavailable");
+            }
+
+            @Override
+            public List<RaceJobExecution> find(String instance, RaceJobKey jobKey, int limit) {
+                return List.of();
+            }
+
+            @Override
+            public int deleteBefore(String instance, long startTime, int limit) {
+                return 0;
+            }
+        };
+        RaceJobHistoryWriter writer = new RaceJobHistoryWriter("failing", failing, 16, 4, NEVER, NEVER, NEVER, RaceJobMetrics.NOOP);
+        for (int i = 0; i < 10; i++) {
+            writer.record(execution(i, i));
+        }
+        writer.destroy();
+        assertEquals(10, writer.getDropped());
+    }
+
+    @Test
+    void prune() {
+        String instance = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        RaceJobHistoryWriter writer = new RaceJobHistoryWriter(instance, historyStore, 1024, 100, NEVER, Duration.ofHours(1), NEVER, RaceJobMetrics.NOOP);
+        for (int i = 0; i < 10; i++) {
+            writer.record(execution(i * 2, i < 6 ? now - Duration.ofHours(2).toMillis() : now));
+        }
+        writer.flush();
+        writer.prune();
+        assertEquals(4, historyStore.find(instance, new RaceJobKey("g", "n0"), 100).size());
+        writer.destroy();
+    }
+}
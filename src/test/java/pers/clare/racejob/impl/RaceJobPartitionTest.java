@@ -0,0 +1,113 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.vo.RaceJobKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaceJobPartitionTest {
+    private static final int VIRTUAL_NODES = 128;
+
+    private static final int JOBS = 10000;
+
+    private static final List<RaceJobKey> jobKeys = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < JOBS; i++) {
+            jobKeys.add(new RaceJobKey("group" + i % 10, "job" + i));
+        }
+    }
+
+    private static Map<String, Set<String>> nodes(int count) {
+        Map<String, Set<String>> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            nodes.put("node-" + i, Set.of("a"));
+        }
+        return nodes;
+    }
+
+    private static Map<RaceJobKey, String> owners(Map<String, Set<String>> nodes) {
+        RaceJobPartition partition = new RaceJobPartition(nodes, VIRTUAL_NODES);
+        Map<RaceJobKey, String> owners = new HashMap<>();
+        for (RaceJobKey jobKey : jobKeys) {
+            owners.put(jobKey, partition.owner(jobKey, "a"));
+        }
+        return owners;
+    }
+
+    @Test
+    void ownershipIsExclusiveAndTotal() {
+        Map<String, Set<String>> nodes = new LinkedHashMap<>();
+        nodes.put("node-0", Set.of("a", "b"));
+        nodes.put("node-1", Set.of("a"));
+        nodes.put("node-2", Set.of("b"));
+        nodes.put("node-3", Set.of("a", "b"));
+        RaceJobPartition partition = new RaceJobPartition(nodes, VIRTUAL_NODES);
+        // every node builds its own snapshot, in any order
+        List<String> names = new ArrayList<>(nodes.keySet());
+        Collections.reverse(names);
+        Map<String, Set<String>> reversed = new LinkedHashMap<>();
+        for (String name : names) {
+            reversed.put(name, nodes.get(name));
+        }
+        RaceJobPartition other = new RaceJobPartition(reversed, VIRTUAL_NODES);
+
+        for (String handlerKey : List.of("a", "b")) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (RaceJobKey jobKey : jobKeys) {
+                String owner = partition.owner(jobKey, handlerKey);
+                assertNotNull(owner);
+                assertTrue(nodes.get(owner).contains(handlerKey), owner + " does not serve " + handlerKey);
+                assertEquals(owner, other.owner(jobKey, handlerKey));
+                counts.merge(owner, 1, Integer::sum);
+            }
+            assertEquals(3, counts.size(), "every node serving " + handlerKey + " owns jobs");
+            for (int count : counts.values()) {
+                assertTrue(count > JOBS / 3 / 2 && count < JOBS / 3 * 3 / 2, "uneven share " + counts);
+            }
+        }
+        assertNull(partition.owner(jobKeys.get(0), "c"));
+        assertNull(new RaceJobPartition(Map.of(), VIRTUAL_NODES).owner(jobKeys.get(0), "a"));
+    }
+
+    @Test
+    void nodeJoinMovesOnlyItsShare() {
+        Map<RaceJobKey, String> before = owners(nodes(4));
+        Map<RaceJobKey, String> after = owners(nodes(5));
+        int moved = 0;
+        for (RaceJobKey jobKey : jobKeys) {
+            if (before.get(jobKey).equals(after.get(jobKey))) continue;
+            assertEquals("node-4", after.get(jobKey), "jobs only move to the joining node");
+            moved++;
+        }
+        assertMovedAbout(moved, 5);
+    }
+
+    @Test
+    void nodeLeaveMovesOnlyItsShare() {
+        Map<String, Set<String>> nodes = nodes(5);
+        Map<RaceJobKey, String> before = owners(nodes);
+        nodes.remove("node-2");
+        Map<RaceJobKey, String> after = owners(nodes);
+        int moved = 0;
+        for (RaceJobKey jobKey : jobKeys) {
+            if (before.get(jobKey).equals(after.get(jobKey))) continue;
+            assertEquals("node-2", before.get(jobKey), "only jobs of the leaving node move");
+            moved++;
+        }
+        assertMovedAbout(moved, 5);
+    }
+
+    private static void assertMovedAbout(int moved, int nodes) {
+        double expected = (double) JOBS / nodes;
+        assertTrue(moved > expected * 0.6 && moved < expected * 1.4, "moved " + moved + " of " + JOBS + ", expected about " + (int) expected);
+    }
+}
@@ -0,0 +1,151 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobMetrics;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.constant.RaceEventType;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobEvent;
+import pers.clare.racejob.vo.RaceJobKey;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CHANGE events received within the coalesce window are reloaded together.
+ */
+class RaceJobSchedulerChangeTest {
+    private static final String INSTANCE = "raceJobScheduler";
+
+    private static final Duration WINDOW = Duration.ofMillis(300);
+
+    private static final int JOB_COUNT = 10;
+
+    private final List<Long> batchTimes = new CopyOnWriteArrayList<>();
+
+    private final List<List<RaceJobKey>> batches = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger singleFinds = new AtomicInteger();
+
+    private final AtomicInteger fullReloads = new AtomicInteger();
+
+    private final MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl() {
+        @Override
+        public RaceJob find(String instance, RaceJobKey jobKey) {
+            singleFinds.incrementAndGet();
+            return super.find(instance, jobKey);
+        }
+
+        @Override
+        public List<RaceJob> find(String instance, Collection<RaceJobKey> jobKeys) {
+            batchTimes.add(System.currentTimeMillis());
+            batches.add(new ArrayList<>(jobKeys));
+            return super.find(instance, jobKeys);
+        }
+    };
+
+    private final RaceJobMetrics metrics = new RaceJobMetrics() {
+        @Override
+        public void recordReload(boolean full, long duration, int rows) {
+            if (full) fullReloads.incrementAndGet();
+        }
+    };
+
+    private Consumer<RaceJobEvent> listener;
+
+    private final RaceJobEventChannel eventChannel = new RaceJobEventChannel() {
+        @Override
+        public void publish(RaceJobEvent event) {
+        }
+
+        @Override
+        public void listen(Consumer<RaceJobEvent> listener) {
+            RaceJobSchedulerChangeTest.this.listener = listener;
+        }
+    };
+
+    private RaceJobSchedulerImpl scheduler;
+
+    private final List<RaceJob> jobs = new ArrayList<>();
+
+    private void start(int changeReloadThreshold) throws InterruptedException {
+        for (int i = 0; i < JOB_COUNT; i++) {
+            RaceJob job = RaceJob.builder()
+                    .group("change")
+                    .name("change" + i)
+                    .key("change")
+                    .cron("0 0 0 1 1 ?")
+                    .timezone("+00:00")
+                    .build();
+            store.insert(INSTANCE, job, Long.MAX_VALUE);
+            jobs.add(job);
+        }
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setReloadInterval(Duration.ofHours(1));
+        properties.setChangeCoalesceWindow(WINDOW);
+        properties.setChangeReloadThreshold(changeReloadThreshold);
+        scheduler = new RaceJobSchedulerImpl(properties, store, eventChannel, new DefaultRaceJobExecutorFactory(), metrics);
+        scheduler.afterPropertiesSet();
+        scheduler.run();
+        long deadline = System.currentTimeMillis() + 3000;
+        while (fullReloads.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, fullReloads.get(), "the startup reload");
+    }
+
+    @AfterEach
+    void destroy() {
+        if (scheduler != null) scheduler.destroy();
+    }
+
+    private long changeBurst() {
+        long first = System.currentTimeMillis();
+        for (int round = 0; round < 5; round++) {
+            for (RaceJob job : jobs) {
+                listener.accept(new RaceJobEvent(RaceEventType.CHANGE, job.getGroup(), job.getName(), System.currentTimeMillis()));
+            }
+        }
+        return first;
+    }
+
+    @Test
+    void reloadEachKeyOnceAfterTheWindow() throws InterruptedException {
+        start(100);
+        long first = changeBurst();
+        Thread.sleep(WINDOW.toMillis() * 3);
+
+        assertEquals(1, batches.size(), "the burst is reloaded in one batch");
+        List<RaceJobKey> keys = batches.get(0);
+        assertEquals(JOB_COUNT, keys.size(), "each key once");
+        for (RaceJob job : jobs) {
+            assertTrue(keys.contains(job.toKey()));
+        }
+        assertTrue(batchTimes.get(0) - first >= WINDOW.toMillis(), "reloaded after the window");
+        assertEquals(0, singleFinds.get());
+        assertEquals(1, fullReloads.get());
+
+        changeBurst();
+        Thread.sleep(WINDOW.toMillis() * 3);
+        assertEquals(2, batches.size(), "a later burst opens a new window");
+    }
+
+    @Test
+    void fullReloadAboveThreshold() throws InterruptedException {
+        start(JOB_COUNT - 1);
+        changeBurst();
+        Thread.sleep(WINDOW.toMillis() * 3);
+
+        assertEquals(2, fullReloads.get(), "one full reload for the whole burst");
+        assertTrue(batches.isEmpty());
+        assertEquals(0, singleFinds.get());
+    }
+}
@@ -0,0 +1,84 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.vo.RaceJob;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * With a single permit, executions declined by the limiter run once the permit is released.
+ */
+class RaceJobSchedulerDeferTest {
+    private final MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl();
+
+    private RaceJobSchedulerImpl scheduler;
+
+    private static RaceJob job(String name, String cron) {
+        return RaceJob.builder()
+                .group("defer")
+                .name(name)
+                .key(name)
+                .cron(cron)
+                .timezone("+00:00")
+                .build();
+    }
+
+    private void start() {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setMinConcurrency(1);
+        properties.setMaxConcurrency(1);
+        scheduler = new RaceJobSchedulerImpl(properties, store);
+        scheduler.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void destroy() {
+        if (scheduler != null) scheduler.destroy();
+    }
+
+    @Test
+    void declinedFiringRunsWhenPermitIsReleased() throws InterruptedException {
+        start();
+        AtomicInteger a = new AtomicInteger();
+        AtomicInteger b = new AtomicInteger();
+        scheduler.registerHandler("a", job -> {
+            a.incrementAndGet();
+            Thread.sleep(300);
+        });
+        scheduler.registerHandler("b", job -> {
+            b.incrementAndGet();
+            Thread.sleep(300);
+        });
+        scheduler.add(job("a", "* * * * * ?"));
+        scheduler.add(job("b", "* * * * * ?"));
+        scheduler.run();
+        Thread.sleep(3500);
+        assertTrue(a.get() >= 2, "a ran " + a.get());
+        assertTrue(b.get() >= 2, "b ran " + b.get());
+    }
+
+    @Test
+    void declinedManualExecutionRunsWhenPermitIsReleased() throws InterruptedException {
+        start();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch manual = new CountDownLatch(1);
+        scheduler.registerHandler("long", job -> {
+            started.countDown();
+            Thread.sleep(800);
+        });
+        scheduler.registerHandler("manual", job -> manual.countDown());
+        RaceJob command = job("manual", "");
+        scheduler.add(job("long", "* * * * * ?"));
+        scheduler.add(command);
+        scheduler.run();
+        assertTrue(started.await(3, TimeUnit.SECONDS));
+        scheduler.execute(command.toKey());
+        assertTrue(manual.await(2, TimeUnit.SECONDS), "the manual execution runs after the permit is released");
+    }
+}
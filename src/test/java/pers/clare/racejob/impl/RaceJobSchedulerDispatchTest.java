@@ -0,0 +1,110 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobEventBus;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.constant.RaceJobMode;
+import pers.clare.racejob.vo.RaceJob;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DISPATCH mode nodes sharing a store and an in-process event bus.
+ */
+class RaceJobSchedulerDispatchTest {
+    private final MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl();
+
+    private final EventBus eventBus = new EventBus();
+
+    private final List<RaceJobSchedulerImpl> schedulers = new ArrayList<>();
+
+    private static class EventBus implements RaceJobEventBus {
+        private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(String body) {
+            for (Consumer<String> listener : listeners) {
+                listener.accept(body);
+            }
+        }
+
+        @Override
+        public void listen(Consumer<String> listener) {
+            listeners.add(listener);
+        }
+    }
+
+    private RaceJobSchedulerImpl node(String nodeId, int maxConcurrency) {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setMode(RaceJobMode.DISPATCH);
+        properties.setNodeId(nodeId);
+        properties.setPollInterval(Duration.ofMillis(200));
+        properties.setNodeHeartbeatInterval(Duration.ofMillis(200));
+        properties.setLeaseDuration(Duration.ofSeconds(1));
+        properties.setThreadCount(4);
+        properties.setMinConcurrency(1);
+        properties.setMaxConcurrency(maxConcurrency);
+        RaceJobSchedulerImpl scheduler = new RaceJobSchedulerImpl(properties, store, eventBus);
+        schedulers.add(scheduler);
+        return scheduler;
+    }
+
+    private static RaceJob job(String key, int i) {
+        return RaceJob.builder()
+                .group(key)
+                .name(key + i)
+                .key(key)
+                .cron("* * * * * ?")
+                .timezone("+00:00")
+                .build();
+    }
+
+    @AfterEach
+    void destroy() {
+        for (RaceJobSchedulerImpl scheduler : schedulers) {
+            scheduler.destroy();
+        }
+    }
+
+    @Test
+    void dispatchWithinCapacityOfServingNodes() throws InterruptedException {
+        AtomicInteger x = new AtomicInteger();
+        AtomicInteger y = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        RaceJobSchedulerImpl a = node("a", 10);
+        a.registerHandler("x", job -> x.incrementAndGet());
+        RaceJobSchedulerImpl b = node("b", 1);
+        b.registerHandler("y", job -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                y.incrementAndGet();
+                Thread.sleep(300);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        for (RaceJobSchedulerImpl scheduler : schedulers) {
+            scheduler.afterPropertiesSet();
+            scheduler.run();
+        }
+        for (int i = 0; i < 5; i++) {
+            a.add(job("x", i));
+            a.add(job("y", i));
+        }
+
+        Thread.sleep(4000);
+        assertTrue(x.get() > 0, "x runs on the node serving it");
+        assertTrue(y.get() > 0, "y runs on the node serving it");
+        assertEquals(1, maxRunning.get(), "a node never runs more jobs than its concurrency limit");
+    }
+}
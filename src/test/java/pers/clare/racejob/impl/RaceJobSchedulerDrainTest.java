@@ -0,0 +1,153 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.constant.RaceEventType;
+import pers.clare.racejob.constant.RaceJobMode;
+import pers.clare.racejob.constant.RaceJobState;
+import pers.clare.racejob.function.RaceJobHandler;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaceJobSchedulerDrainTest {
+    private final MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl();
+
+    private final List<RaceJobEvent> events = new CopyOnWriteArrayList<>();
+
+    private final RaceJobEventChannel eventChannel = new RaceJobEventChannel() {
+        @Override
+        public void publish(RaceJobEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void listen(Consumer<RaceJobEvent> listener) {
+        }
+    };
+
+    private final RaceJob job = RaceJob.builder()
+            .group("drain")
+            .name("drain")
+            .key("drain")
+            .cron("* * * * * ?")
+            .timezone("+00:00")
+            .build();
+
+    private RaceJobSchedulerImpl start(Duration drainTimeout, RaceJobHandler handler) {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setDrainTimeout(drainTimeout);
+        RaceJobSchedulerImpl scheduler = new RaceJobSchedulerImpl(properties, store, eventChannel, new DefaultRaceJobExecutorFactory());
+        scheduler.registerHandler(job.getKey(), handler);
+        scheduler.afterPropertiesSet();
+        scheduler.add(job);
+        scheduler.run();
+        return scheduler;
+    }
+
+    private int getState() {
+        return getState(job);
+    }
+
+    private int getState(RaceJob job) {
+        return store.getStatus("raceJobScheduler", job.toKey()).getState();
+    }
+
+    private boolean released() {
+        return released(job);
+    }
+
+    private boolean released(RaceJob job) {
+        return events.stream().anyMatch(event -> event.getType() == RaceEventType.RELEASE && job.toKey().equals(event.toKey()));
+    }
+
+    @Test
+    void waitForRunningHandler() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        RaceJobSchedulerImpl scheduler = start(Duration.ofSeconds(5), job -> {
+            started.countDown();
+            Thread.sleep(500);
+            finished.set(true);
+        });
+        assertTrue(started.await(3, TimeUnit.SECONDS));
+        scheduler.destroy();
+        assertTrue(finished.get(), "the handler finishes within the drain timeout");
+        assertEquals(RaceJobState.WAITING, getState());
+        assertFalse(released(), "a job that finished normally is not released");
+    }
+
+    @Test
+    void releaseAfterTimeout() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stop = new CountDownLatch(1);
+        RaceJobSchedulerImpl scheduler = start(Duration.ofMillis(100), job -> {
+            started.countDown();
+            // ignores interrupts
+            while (stop.getCount() > 0) {
+                try {
+                    stop.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        assertTrue(started.await(3, TimeUnit.SECONDS));
+        scheduler.destroy();
+        assertEquals(RaceJobState.WAITING, getState(), "released while the handler still runs");
+        assertTrue(released());
+        stop.countDown();
+    }
+
+    @Test
+    void releaseClaimedJobsThatNeverStarted() throws InterruptedException {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setMode(RaceJobMode.POLL);
+        properties.setPollInterval(Duration.ofMillis(100));
+        properties.setDrainTimeout(Duration.ofMillis(100));
+        properties.setThreadCount(1);
+        properties.setMinConcurrency(2);
+        properties.setMaxConcurrency(2);
+        RaceJobSchedulerImpl scheduler = new RaceJobSchedulerImpl(properties, store, eventChannel, new DefaultRaceJobExecutorFactory());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stop = new CountDownLatch(1);
+        scheduler.registerHandler(job.getKey(), job -> {
+            started.countDown();
+            while (stop.getCount() > 0) {
+                try {
+                    stop.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        RaceJob queued = job.toBuilder().name("queued").build();
+        scheduler.afterPropertiesSet();
+        // due at once, the single handler thread runs one and queues the other
+        store.insert("raceJobScheduler", job, System.currentTimeMillis());
+        store.insert("raceJobScheduler", queued, System.currentTimeMillis());
+        scheduler.run();
+        assertTrue(started.await(3, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 3000;
+        while ((getState(job) != RaceJobState.EXECUTING || getState(queued) != RaceJobState.EXECUTING) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(RaceJobState.EXECUTING, getState(queued), "both jobs are claimed");
+        // the poll queues the second execution after claiming it, a claim it cannot queue is given back unannounced
+        Thread.sleep(200);
+
+        scheduler.destroy();
+        assertEquals(RaceJobState.WAITING, getState(job));
+        assertEquals(RaceJobState.WAITING, getState(queued), "the claim of the dropped execution is given back");
+        assertTrue(released(job));
+        assertTrue(released(queued));
+        stop.countDown();
+    }
+}
@@ -0,0 +1,93 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.util.JobUtil;
+import pers.clare.racejob.vo.RaceJob;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Changes written to the store by another node, without events, reach the scheduler through the revision and tombstone reloads.
+ */
+class RaceJobSchedulerReloadTest {
+    private static final String INSTANCE = "raceJobScheduler";
+
+    private final MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl();
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private final AtomicReference<Object> lastData = new AtomicReference<>();
+
+    private final RaceJob job = RaceJob.builder()
+            .group("reload")
+            .name("reload")
+            .key("reload")
+            .cron("* * * * * ?")
+            .timezone("+00:00")
+            .data(Collections.singletonMap("v", 1))
+            .build();
+
+    private RaceJobSchedulerImpl scheduler;
+
+    private void start(Duration fullReloadInterval) {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setReloadInterval(Duration.ofMillis(200));
+        properties.setFullReloadInterval(fullReloadInterval);
+        scheduler = new RaceJobSchedulerImpl(properties, store);
+        scheduler.registerHandler(job.getKey(), job -> {
+            executions.incrementAndGet();
+            lastData.set(job.getData().get("v"));
+        });
+        scheduler.afterPropertiesSet();
+        scheduler.add(job);
+        scheduler.run();
+    }
+
+    @AfterEach
+    void destroy() {
+        if (scheduler != null) scheduler.destroy();
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, message);
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void deltaReloadSeesChangeAndDelete() throws InterruptedException {
+        start(Duration.ofHours(1));
+        await(() -> executions.get() > 0, "the job runs");
+        assertEquals(1, lastData.get());
+
+        // another node writes a newer version
+        RaceJob changed = job.toBuilder().version(2).data(Collections.singletonMap("v", 2)).build();
+        store.update(INSTANCE, changed, JobUtil.getNextTime(changed.getCron(), changed.getTimezone()));
+        await(() -> Integer.valueOf(2).equals(lastData.get()), "the change is reloaded");
+
+        // another node deletes the job
+        store.delete(INSTANCE, job.toKey());
+        Thread.sleep(1500);
+        int count = executions.get();
+        Thread.sleep(2000);
+        assertEquals(count, executions.get(), "the deleted job is no longer scheduled");
+    }
+
+    @Test
+    void fullReloadPrunesTombstones() throws InterruptedException {
+        start(Duration.ofMillis(300));
+        store.delete(INSTANCE, job.toKey());
+        assertFalse(store.findChangedSince(INSTANCE, 0).getRemovedKeys().isEmpty());
+        await(() -> store.findChangedSince(INSTANCE, 0).getRemovedKeys().isEmpty(), "old tombstones are deleted");
+    }
+}
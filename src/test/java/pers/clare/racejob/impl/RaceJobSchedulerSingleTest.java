@@ -8,6 +8,7 @@ import org.springframework.test.context.ActiveProfiles;
 import pers.clare.h2.H2Application;
 import pers.clare.racejob.RaceJobScheduler;
 import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobKey;
 import pers.clare.test.ApplicationTest2;
 import pers.clare.test.racejob.JobRegister;
 
@@ -351,6 +352,83 @@ class RaceJobSchedulerSingleTest {
         }
     }
 
+    @Test
+    @Order(18)
+    void addAllAndRemoveAll() {
+        String group = "bulk-" + System.currentTimeMillis();
+        List<RaceJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            jobs.add(RaceJob.builder()
+                    .group(group)
+                    .name(String.valueOf(i))
+                    .key("bulk")
+                    .cron("0 0 * * * ?")
+                    .timezone("+00:00")
+                    .version(1)
+                    .build());
+        }
+        jobScheduler.addAll(jobs);
+        assertEquals(jobs.size(), jobScheduler.findAll(group).size());
+
+        jobs.get(0).setDescription("old version");
+        jobs.get(1).setDescription("new version");
+        jobs.get(1).setVersion(2);
+        jobScheduler.addAll(jobs.subList(0, 2));
+        assertNotEquals("old version", jobScheduler.find(jobs.get(0).toKey()).getDescription());
+        assertEquals("new version", jobScheduler.find(jobs.get(1).toKey()).getDescription());
+
+        List<RaceJobKey> jobKeys = new ArrayList<>();
+        for (RaceJob job : jobs) {
+            jobKeys.add(job.toKey());
+        }
+        jobScheduler.removeAll(jobKeys);
+        assertEquals(0, jobScheduler.findAll(group).size());
+    }
+
+    @Test
+    @Order(19)
+    void groupOperations() throws InterruptedException {
+        String group = "group-" + System.currentTimeMillis();
+        String key = "group-job-" + System.currentTimeMillis();
+        AtomicInteger count = new AtomicInteger();
+        jobScheduler.registerHandler(key, (inner) -> count.incrementAndGet());
+        List<RaceJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            jobs.add(RaceJob.builder()
+                    .group(group)
+                    .name(String.valueOf(i))
+                    .key(key)
+                    .cron("*/1 * * * * ?")
+                    .timezone("+00:00")
+                    .build());
+        }
+        jobScheduler.addAll(jobs);
+
+        jobScheduler.disableGroup(group);
+        assertTrue(jobScheduler.findAll(group).stream().noneMatch(RaceJob::getEnabled));
+        Thread.sleep(1500);
+        count.set(0);
+        Thread.sleep(2000);
+        assertEquals(0, count.get());
+
+        jobScheduler.executeGroup(group);
+        Thread.sleep(1000);
+        assertEquals(jobs.size(), count.get());
+
+        jobScheduler.enableGroup(group);
+        assertTrue(jobScheduler.findAll(group).stream().allMatch(RaceJob::getEnabled));
+        Thread.sleep(2500);
+        assertTrue(count.get() > jobs.size());
+
+        jobScheduler.removeGroup(group);
+        assertEquals(0, jobScheduler.findAll(group).size());
+        Thread.sleep(1500);
+        int countAfterRemove = count.get();
+        Thread.sleep(2000);
+        assertEquals(countAfterRemove, count.get());
+        jobScheduler.unregisterHandler(key);
+    }
+
     RaceJob getJob(int n) {
         return RaceJob.builder()
                 .group("job")
@@ -0,0 +1,114 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobProperties;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.constant.RaceJobMode;
+import pers.clare.racejob.constant.RaceJobState;
+import pers.clare.racejob.function.RaceJobHandler;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobNode;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Node liveness through the shared store, the takeover of a dead node's jobs and the cleanup of node rows.
+ */
+class RaceJobSchedulerTakeoverTest {
+    private static final String INSTANCE = "raceJobScheduler";
+
+    private static final Duration NODE_TIMEOUT = Duration.ofSeconds(1);
+
+    private final MemoryRaceJobStoreImpl store = new MemoryRaceJobStoreImpl();
+
+    private final RaceJob job = RaceJob.builder()
+            .group("takeover")
+            .name("takeover")
+            .key("takeover")
+            .cron("* * * * * ?")
+            .timezone("+00:00")
+            .build();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private RaceJobSchedulerImpl scheduler;
+
+    @AfterEach
+    void destroy() {
+        release.countDown();
+        if (scheduler != null) scheduler.destroy();
+    }
+
+    private RaceJobSchedulerImpl start(RaceJobMode mode, String nodeId, RaceJobHandler handler) {
+        RaceJobProperties properties = new RaceJobProperties();
+        properties.setMode(mode);
+        properties.setNodeId(nodeId);
+        properties.setPollInterval(Duration.ofMillis(100));
+        properties.setNodeHeartbeatInterval(Duration.ofMillis(100));
+        properties.setNodeTimeout(NODE_TIMEOUT);
+        RaceJobSchedulerImpl scheduler = new RaceJobSchedulerImpl(properties, store);
+        scheduler.registerHandler(job.getKey(), handler);
+        scheduler.afterPropertiesSet();
+        scheduler.run();
+        return scheduler;
+    }
+
+    private int getState() {
+        return store.getStatus(INSTANCE, job.toKey()).getState();
+    }
+
+    @Test
+    void takeOverJobOfDeadNode() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        store.insert(INSTANCE, job, now);
+        store.heartbeat(INSTANCE, new RaceJobNode("dead", now, Set.of(job.getKey()), 1));
+        assertEquals(RaceJobClaim.WON, store.tryClaim(INSTANCE, job.toKey(), now + 1000, now, now, "dead"));
+
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler = start(RaceJobMode.POLL, "live", job -> {
+            started.countDown();
+            release.await();
+        });
+
+        assertTrue(started.await(NODE_TIMEOUT.toMillis() + 2000, TimeUnit.MILLISECONDS), "the job of the dead node is taken over");
+        assertTrue(System.currentTimeMillis() - now >= NODE_TIMEOUT.toMillis(), "not before the dead node times out");
+
+        assertEquals(0, store.finish(INSTANCE, job.toKey(), System.currentTimeMillis(), "dead"), "a late finish of the dead node leaves the new claim");
+        assertEquals(RaceJobState.EXECUTING, getState());
+
+        release.countDown();
+        scheduler.destroy();
+        scheduler = null;
+        assertEquals(RaceJobState.WAITING, getState());
+    }
+
+    @Test
+    void restartsLeaveNoNodes() {
+        for (int i = 0; i < 3; i++) {
+            RaceJobSchedulerImpl restarted = start(RaceJobMode.RACE, null, job -> {
+            });
+            assertEquals(1, store.findNodes(INSTANCE, 0).size());
+            restarted.destroy();
+        }
+        assertTrue(store.findNodes(INSTANCE, 0).isEmpty(), "each restart with a new node id deletes its row");
+    }
+
+    @Test
+    void pruneNodesThatCrashedLongAgo() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        store.heartbeat(INSTANCE, new RaceJobNode("crashed", now - NODE_TIMEOUT.toMillis() * 10, Set.of(job.getKey()), 1));
+        store.heartbeat(INSTANCE, new RaceJobNode("late", now - NODE_TIMEOUT.toMillis(), Set.of(job.getKey()), 1));
+
+        scheduler = start(RaceJobMode.RACE, "live", job -> {
+        });
+        Thread.sleep(300);
+        assertEquals(Set.of("late", "live"), store.findNodes(INSTANCE, 0).stream().map(RaceJobNode::getNodeId).collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,51 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.constant.RaceJobDialect;
+
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaceJobSqlDialectTest {
+
+    private static DatabaseMetaData metaData(String product, String version) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(DatabaseMetaData.class.getClassLoader(), new Class[]{DatabaseMetaData.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getDatabaseProductName":
+                    return product;
+                case "getDatabaseProductVersion":
+                    return version;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @Test
+    void rowAliasFromMySql8019() throws SQLException {
+        assertFalse(RaceJobSqlDialect.supportsRowAlias(metaData("MySQL", "5.7.44")));
+        assertFalse(RaceJobSqlDialect.supportsRowAlias(metaData("MySQL", "8.0.18")));
+        assertTrue(RaceJobSqlDialect.supportsRowAlias(metaData("MySQL", "8.0.19")));
+        assertTrue(RaceJobSqlDialect.supportsRowAlias(metaData("MySQL", "8.0.35-log")));
+        assertTrue(RaceJobSqlDialect.supportsRowAlias(metaData("MySQL", "8.4.0")));
+        assertFalse(RaceJobSqlDialect.supportsRowAlias(metaData("MySQL", "5.5.5-10.11.6-MariaDB")));
+        assertFalse(RaceJobSqlDialect.supportsRowAlias(metaData("MariaDB", "10.11.6")));
+        assertFalse(RaceJobSqlDialect.supportsRowAlias(metaData("H2", "1.4.200 (2019-10-14)")));
+    }
+
+    @Test
+    void upsertForServerVersion() throws SQLException {
+        String legacy = RaceJobSqlDialect.of(RaceJobDialect.MYSQL, metaData("MySQL", "8.0.18")).upsert;
+        assertTrue(legacy.contains("VALUES(`version`)"));
+
+        String alias = RaceJobSqlDialect.of(RaceJobDialect.MYSQL, metaData("MySQL", "8.0.35")).upsert;
+        assertFalse(alias.contains("VALUES("));
+        assertTrue(alias.contains(") AS excluded ON DUPLICATE KEY UPDATE "));
+        assertTrue(alias.contains("`data` = CASE WHEN `version` < excluded.`version` THEN excluded.`data` ELSE `data` END"));
+
+        assertTrue(RaceJobSqlDialect.of(RaceJobDialect.POSTGRESQL, metaData("PostgreSQL", "13.0")) instanceof RaceJobSqlDialect.PostgreSql);
+    }
+}
@@ -0,0 +1,396 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobStore;
+import pers.clare.racejob.constant.RaceJobClaim;
+import pers.clare.racejob.constant.RaceJobState;
+import pers.clare.racejob.exception.RaceJobException;
+import pers.clare.racejob.vo.RaceJob;
+import pers.clare.racejob.vo.RaceJobChanges;
+import pers.clare.racejob.vo.RaceJobKey;
+import pers.clare.racejob.vo.RaceJobNode;
+import pers.clare.racejob.vo.RaceJobStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contract every {@link RaceJobStore} must follow, the scheduler relies on these conditional updates to never run a firing twice.
+ * Each test works in its own instance, so stores may be shared between tests.
+ */
+abstract class RaceJobStoreConformanceTest {
+    private static final String KEY = "handler";
+
+    private static final String CRON = "*/1 * * * * ?";
+
+    private RaceJobStore store;
+
+    private String instance;
+
+    protected abstract RaceJobStore createStore();
+
+    @BeforeEach
+    void setUp() {
+        store = createStore();
+        instance = UUID.randomUUID().toString();
+    }
+
+    private RaceJob job(String group, String name) {
+        return RaceJob.builder()
+                .group(group)
+                .name(name)
+                .key(KEY)
+                .cron(CRON)
+                .timezone("+00:00")
+                .data(Collections.singletonMap("test", "test"))
+                .build();
+    }
+
+    private static void tick() throws InterruptedException {
+        // revisions are millisecond timestamps
+        Thread.sleep(5);
+    }
+
+    @Test
+    void insertAndFind() {
+        RaceJob job = job("g", "a");
+        store.insert(instance, job, 100);
+        RaceJob found = store.find(instance, job.toKey());
+        assertNotNull(found);
+        assertEquals(KEY, found.getKey());
+        assertEquals(CRON, found.getCron());
+        assertEquals("test", found.getData().get("test"));
+        assertTrue(found.getEnabled());
+        assertNull(store.find(instance, new RaceJobKey("g", "missing")));
+        assertThrows(RaceJobException.class, () -> store.insert(instance, job, 100));
+
+        store.insert(instance, job("h", "b"), 100);
+        assertEquals(2, store.findAll(instance).size());
+        assertEquals(1, store.findAll(instance, "g").size());
+        assertEquals(2, store.find(instance, Arrays.asList(job.toKey(), new RaceJobKey("h", "b"), new RaceJobKey("g", "missing"))).size());
+        assertTrue(store.findAll(UUID.randomUUID().toString()).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void returnedJobsAreCopies() {
+        RaceJob job = job("g", "a");
+        store.insert(instance, job, 100);
+        RaceJob found = store.find(instance, job.toKey());
+        found.setDescription("other");
+        assertThrows(UnsupportedOperationException.class, () -> found.getData().put("other", "other"));
+        assertEquals("", store.find(instance, job.toKey()).getDescription());
+        assertNull(store.find(instance, job.toKey()).getData().get("other"));
+
+        RaceJob nested = job("g", "b").toBuilder().data(Map.of("list", List.of(1), "map", Map.of("a", 1))).build();
+        store.insert(instance, nested, 100);
+        Map<String, Object> data = store.find(instance, nested.toKey()).getData();
+        assertThrows(UnsupportedOperationException.class, () -> ((List<Object>) data.get("list")).add(2));
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) data.get("map")).put("b", 2));
+    }
+
+    @Test
+    void updateOnlyNewerVersion() {
+        RaceJob job = job("g", "a");
+        store.insert(instance, job, 100);
+        store.disable(instance, job.toKey());
+
+        store.update(instance, job.toBuilder().description("same").build(), 200);
+        assertEquals("", store.find(instance, job.toKey()).getDescription());
+
+        store.update(instance, job.toBuilder().version(2).description("newer").enabled(true).build(), 200);
+        RaceJob found = store.find(instance, job.toKey());
+        assertEquals("newer", found.getDescription());
+        assertEquals(2, found.getVersion());
+        assertFalse(found.getEnabled(), "update must not change enabled");
+        assertEquals(200, store.getStatus(instance, job.toKey()).getNextTime());
+    }
+
+    @Test
+    void upsert() {
+        RaceJob a = job("g", "a");
+        store.insert(instance, a, 100);
+        RaceJob b = job("g", "b");
+        int count = store.upsert(instance, Arrays.asList(a.toBuilder().version(2).build(), b, a), new long[]{200, 300, 400});
+        assertEquals(2, count);
+        assertEquals(2, store.find(instance, a.toKey()).getVersion());
+        assertEquals(200, store.getStatus(instance, a.toKey()).getNextTime());
+        assertEquals(300, store.getStatus(instance, b.toKey()).getNextTime());
+    }
+
+    @Test
+    void save() {
+        RaceJob job = job("g", "a");
+        RaceJob saved = store.save(instance, job, 100);
+        assertNotNull(saved);
+        assertEquals(1, saved.getVersion());
+        assertNull(store.save(instance, job.toBuilder().description("same").build(), 200));
+        assertEquals(100, store.getStatus(instance, job.toKey()).getNextTime());
+
+        store.disable(instance, job.toKey());
+        saved = store.save(instance, job.toBuilder().version(2).description("newer").build(), 300);
+        assertNotNull(saved);
+        assertEquals("newer", saved.getDescription());
+        assertFalse(saved.getEnabled(), "save must not change enabled");
+        assertEquals(300, store.getStatus(instance, job.toKey()).getNextTime());
+        assertNull(store.save(instance, job, 400));
+    }
+
+    @Test
+    void enableAndDisable() {
+        RaceJob a = job("g", "a");
+        RaceJob b = job("g", "b");
+        store.insert(instance, a, 100);
+        store.insert(instance, b, 100);
+        store.insert(instance, job("h", "c"), 100);
+
+        store.disable(instance, a.toKey());
+        assertFalse(store.getStatus(instance, a.toKey()).getEnabled());
+        assertEquals(1, store.disableGroup(instance, "g"), "only changed rows count");
+        assertEquals(0, store.disableGroup(instance, "g"));
+        assertEquals(2, store.enableGroup(instance, "g"));
+        store.disable(instance, b.toKey());
+        store.enable(instance, b.toKey());
+        assertTrue(store.find(instance, b.toKey()).getEnabled());
+        assertTrue(store.find(instance, new RaceJobKey("h", "c")).getEnabled());
+    }
+
+    @Test
+    void competeOnceForEachFiring() {
+        RaceJob job = job("g", "a");
+        store.insert(instance, job, 100);
+
+        assertEquals(0, store.compete(instance, job.toKey(), 100, 1000), "next time must move forward");
+        assertEquals(1, store.compete(instance, job.toKey(), 200, 1000));
+        assertEquals(0, store.compete(instance, job.toKey(), 200, 1000));
+        assertEquals(0, store.compete(instance, job.toKey(), 300, 1000), "executing");
+        RaceJobStatus status = store.getStatus(instance, job.toKey());
+        assertEquals(RaceJobState.EXECUTING, status.getState());
+        assertEquals(200, status.getNextTime());
+        assertEquals(1000, status.getLastActiveTime());
+
+        assertEquals(0, store.release(instance, job.toKey(), 200));
+        assertEquals(1, store.release(instance, job.toKey(), 300));
+        assertEquals(RaceJobState.WAITING, store.getStatus(instance, job.toKey()).getState());
+        assertEquals(0, store.release(instance, job.toKey(), 300), "waiting");
+
+        store.disable(instance, job.toKey());
+        assertEquals(0, store.compete(instance, job.toKey(), 300, 2000), "disabled");
+    }
+
+    @Test
+    void tryClaim() {
+        RaceJob job = job("g", "a");
+        store.insert(instance, job, 100);
+
+        assertEquals(RaceJobClaim.WON, store.tryClaim(instance, job.toKey(), 200, 1000, 0));
+        assertEquals(RaceJobClaim.LOST, store.tryClaim(instance, job.toKey(), 200, 1000, 0));
+        assertEquals(RaceJobClaim.HELD, store.tryClaim(instance, job.toKey(), 300, 1500, 999), "owner still active");
+        assertEquals(RaceJobClaim.STALE, store.tryClaim(instance, job.toKey(), 300, 2000, 1000), "stale owner");
+        assertEquals(2000, store.getStatus(instance, job.toKey()).getLastActiveTime());
+
+        store.updateActive(instance, job, 5000);
+        assertEquals(RaceJobClaim.HELD, store.tryClaim(instance, job.toKey(), 400, 6000, 4000));
+        assertEquals(1, store.finish(instance, job.toKey(), 6000));
+        store.disable(instance, job.toKey());
+        assertEquals(RaceJobClaim.DISABLED, store.tryClaim(instance, job.toKey(), 400, 6000, 0));
+        assertEquals(RaceJobClaim.DISABLED, store.tryClaim(instance, new RaceJobKey("g", "missing"), 400, 6000, 0));
+    }
+
+    @Test
+    void claimDue() {
+        long now = System.currentTimeMillis();
+        RaceJob due = job("g", "due");
+        RaceJob later = job("g", "later");
+        RaceJob stale = job("g", "stale");
+        RaceJob active = job("g", "active");
+        RaceJob other = job("g", "other").toBuilder().key("other").build();
+        RaceJob disabled = job("g", "disabled").toBuilder().enabled(false).build();
+        RaceJob command = job("g", "command").toBuilder().cron("").build();
+        store.insert(instance, due, now - 1000);
+        store.insert(instance, later, now + 60_000);
+        store.insert(instance, stale, now - 2000);
+        store.insert(instance, active, now - 2000);
+        store.insert(instance, other, now - 1000);
+        store.insert(instance, disabled, now - 1000);
+        store.insert(instance, command, now - 1000);
+        store.compete(instance, stale.toKey(), now - 1000, now - 10_000);
+        store.compete(instance, active.toKey(), now - 1000, now);
+
+        List<RaceJob> claimed = store.claimDue(instance, Collections.singleton(KEY), now, now - 5000, 10);
+        assertEquals(Arrays.asList("due", "stale"), claimed.stream().map(RaceJob::getName).collect(Collectors.toList()));
+        RaceJobStatus status = store.getStatus(instance, due.toKey());
+        assertEquals(RaceJobState.EXECUTING, status.getState());
+        assertTrue(status.getNextTime() > now);
+        assertEquals(now, status.getLastActiveTime());
+        assertTrue(store.claimDue(instance, Collections.singleton(KEY), now, now - 5000, 10).isEmpty());
+
+        store.insert(instance, job("g", "first"), now - 3000);
+        store.insert(instance, job("g", "second"), now - 500);
+        claimed = store.claimDue(instance, Collections.singleton(KEY), now, now - 5000, 1);
+        assertEquals(Collections.singletonList("first"), claimed.stream().map(RaceJob::getName).collect(Collectors.toList()));
+        assertTrue(store.claimDue(instance, Collections.emptyList(), now, now, 10).isEmpty());
+    }
+
+    @Test
+    void releaseOrphans() {
+        long now = System.currentTimeMillis();
+        RaceJob owned = job("g", "owned");
+        RaceJob orphan = job("g", "orphan");
+        RaceJob due = job("g", "due");
+        store.insert(instance, owned, 100);
+        store.insert(instance, orphan, 100);
+        store.insert(instance, due, now - 1000);
+        store.heartbeat(instance, new RaceJobNode("alive", 2000, Set.of(KEY), 1));
+        store.heartbeat(instance, new RaceJobNode("dead", 500, Set.of(KEY), 1));
+
+        assertEquals(RaceJobClaim.WON, store.tryClaim(instance, owned.toKey(), 200, 1000, 0, "alive"));
+        assertEquals(RaceJobClaim.WON, store.tryClaim(instance, orphan.toKey(), 200, 1000, 0, "dead"));
+        assertEquals(RaceJobClaim.HELD, store.tryClaim(instance, owned.toKey(), 300, 5000, 4000, "other"), "owned claims do not go stale");
+        List<RaceJob> claimed = store.claimDue(instance, Collections.singleton(KEY), now, now, 10, "alive");
+        assertEquals(Collections.singletonList("due"), claimed.stream().map(RaceJob::getName).collect(Collectors.toList()));
+
+        assertEquals(1, store.releaseOrphans(instance, 1000));
+        assertEquals(RaceJobState.WAITING, store.getStatus(instance, orphan.toKey()).getState());
+        assertEquals(RaceJobState.EXECUTING, store.getStatus(instance, owned.toKey()).getState());
+        assertEquals(0, store.releaseOrphans(instance, 1000));
+        assertEquals(RaceJobClaim.WON, store.tryClaim(instance, orphan.toKey(), 300, 3000, 0, "alive"));
+
+        assertEquals(1, store.finish(instance, owned.toKey(), 3000));
+        assertEquals(RaceJobClaim.WON, store.tryClaim(instance, owned.toKey(), 300, 4000, 0), "finish clears the owner");
+        assertEquals(RaceJobClaim.STALE, store.tryClaim(instance, owned.toKey(), 400, 6000, 5000, "alive"), "claims without owner go stale");
+
+        assertEquals(1, store.deleteNode(instance, "alive"));
+        assertEquals(3, store.releaseOrphans(instance, 1000));
+    }
+
+    @Test
+    void deleteNodes() {
+        store.heartbeat(instance, new RaceJobNode("old", 1000, Set.of(KEY), 1));
+        store.heartbeat(instance, new RaceJobNode("new", 2000, Set.of(KEY), 1));
+
+        assertEquals(1, store.deleteNodes(instance, 2000));
+        assertEquals(Collections.singletonList("new"), store.findNodes(instance, 0).stream().map(RaceJobNode::getNodeId).collect(Collectors.toList()));
+        assertEquals(0, store.deleteNodes(instance, 2000));
+    }
+
+    @Test
+    void finishOnlyOwnClaims() {
+        RaceJob job = job("g", "a");
+        store.insert(instance, job, 100);
+
+        assertEquals(RaceJobClaim.WON, store.tryClaim(instance, job.toKey(), 200, 1000, 0, "taker"));
+        assertEquals(0, store.finish(instance, job.toKey(), 1500, "released"), "a released node does not reset the claim of the node that took over");
+        assertEquals(RaceJobState.EXECUTING, store.getStatus(instance, job.toKey()).getState());
+        assertEquals(1, store.finish(instance, job.toKey(), 2000, "taker"));
+        assertEquals(RaceJobState.WAITING, store.getStatus(instance, job.toKey()).getState());
+
+        assertEquals(RaceJobClaim.WON, store.tryClaim(instance, job.toKey(), 300, 3000, 0));
+        assertEquals(1, store.finish(instance, job.toKey(), 4000, "released"), "claims without owner are finished by any node");
+        assertEquals(RaceJobState.WAITING, store.getStatus(instance, job.toKey()).getState());
+    }
+
+    @Test
+    void competeCommand() {
+        RaceJob job = job("g", "a").toBuilder().cron("").build();
+        store.insert(instance, job, 0);
+
+        assertEquals(1, store.compete(instance, job.toKey(), 1000));
+        assertEquals(0, store.compete(instance, job.toKey(), 1000));
+        assertEquals(1, store.compete(instance, job.toKey(), 2000));
+        assertEquals(1, store.finish(instance, job.toKey(), 3000));
+        assertEquals(RaceJobState.WAITING, store.getStatus(instance, job.toKey()).getState());
+        assertEquals(0, store.finish(instance, new RaceJobKey("g", "missing"), 3000));
+    }
+
+    @Test
+    void changesAndTombstones() throws InterruptedException {
+        RaceJob a = job("g", "a");
+        RaceJob b = job("g", "b");
+        RaceJob c = job("h", "c");
+        store.insert(instance, a, 100);
+        store.insert(instance, b, 100);
+        store.insert(instance, c, 100);
+        tick();
+        long revision = System.currentTimeMillis();
+        tick();
+
+        assertTrue(store.findChangedSince(instance, revision).getJobs().isEmpty());
+        store.updateActive(instance, a, 1000);
+        store.compete(instance, a.toKey(), 200, 1000);
+        assertTrue(store.findChangedSince(instance, revision).getJobs().isEmpty(), "runtime columns are not changes");
+
+        store.disable(instance, a.toKey());
+        store.delete(instance, c.toKey());
+        RaceJobChanges changes = store.findChangedSince(instance, revision);
+        assertEquals(Collections.singletonList(a.toKey()), changes.getJobs().stream().map(RaceJob::toKey).collect(Collectors.toList()));
+        assertEquals(Collections.singletonList(c.toKey()), changes.getRemovedKeys());
+        assertNull(store.find(instance, c.toKey()));
+
+        assertEquals(2, store.deleteGroup(instance, "g"));
+        assertTrue(store.findAll(instance).isEmpty());
+        assertEquals(Set.of(a.toKey(), b.toKey(), c.toKey()), Set.copyOf(store.findChangedSince(instance, revision).getRemovedKeys()));
+
+        store.insert(instance, a, 100);
+        assertEquals(1, store.delete(instance, Arrays.asList(a.toKey(), b.toKey())));
+        tick();
+        assertEquals(3, store.deleteTombstones(instance, System.currentTimeMillis()));
+        assertTrue(store.findChangedSince(instance, 0).getRemovedKeys().isEmpty());
+    }
+
+    @Test
+    void nodes() {
+        store.heartbeat(instance, new RaceJobNode("n1", 1000, Set.of("a", "b"), 4));
+        store.heartbeat(instance, new RaceJobNode("n2", 500, Set.of("a"), 0));
+        store.heartbeat(instance, new RaceJobNode("n1", 2000, Set.of("a"), 2));
+
+        List<RaceJobNode> nodes = store.findNodes(instance, 1000);
+        assertEquals(1, nodes.size());
+        RaceJobNode node = nodes.get(0);
+        assertEquals("n1", node.getNodeId());
+        assertEquals(2000, node.getHeartbeatTime());
+        assertEquals(Set.of("a"), node.getHandlerKeys());
+        assertEquals(2, node.getCapacity());
+        assertEquals(2, store.findNodes(instance, 0).size());
+
+        assertEquals(1, store.deleteNode(instance, "n2"));
+        assertEquals(0, store.deleteNode(instance, "n2"));
+        assertEquals(1, store.findNodes(instance, 0).size());
+    }
+
+    @Test
+    void leases() {
+        assertTrue(store.acquireLease(instance, "leader", "n1", 1000, 2000));
+        assertFalse(store.acquireLease(instance, "leader", "n2", 1500, 2500));
+        assertTrue(store.acquireLease(instance, "leader", "n1", 1500, 3000), "renew");
+        assertTrue(store.acquireLease(instance, "other", "n2", 1500, 3000));
+        assertTrue(store.acquireLease(instance, "leader", "n2", 3001, 4000), "expired");
+
+        assertEquals(0, store.releaseLease(instance, "leader", "n1"));
+        assertEquals(1, store.releaseLease(instance, "leader", "n2"));
+        assertTrue(store.acquireLease(instance, "leader", "n1", 3001, 4000));
+    }
+
+    @Test
+    void session() {
+        RaceJob job = job("g", "a");
+        int finished = store.session(() -> {
+            store.insert(instance, job, 100);
+            assertThrows(RaceJobException.class, () -> store.insert(instance, job, 100));
+            assertEquals(1, store.compete(instance, job.toKey(), 200, 1000));
+            return store.session(() -> store.finish(instance, job.toKey(), 1500));
+        });
+        assertEquals(1, finished);
+        RaceJobStatus status = store.getStatus(instance, job.toKey());
+        assertEquals(RaceJobState.WAITING, status.getState());
+        assertEquals(200, status.getNextTime());
+    }
+}
@@ -0,0 +1,87 @@
+package pers.clare.racejob.impl;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import pers.clare.racejob.RaceJobTimer;
+import pers.clare.racejob.constant.RaceJobTimerType;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares fire-time accuracy and CPU use of the timer engines.
+ * <p>
+ * Run with {@code java -Xmx4g ... RaceJobTimerBenchmark [counts...]}, default 10000 100000 1000000.
+ */
+public class RaceJobTimerBenchmark {
+    private static final int THREAD_COUNT = 4;
+
+    private static final long SPREAD = TimeUnit.SECONDS.toNanos(10);
+
+    private static final long MIN_DELAY = TimeUnit.SECONDS.toNanos(1);
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] counts = args.length == 0
+                ? new int[]{10_000, 100_000, 1_000_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        System.out.printf("%-9s %9s %12s %10s %10s %10s %12s%n"
+                , "timer", "jobs", "schedule ms", "p50 ms", "p99 ms", "max ms", "cpu ms");
+        for (int count : counts) {
+            for (RaceJobTimerType type : RaceJobTimerType.values()) {
+                run(type, count);
+            }
+        }
+    }
+
+    private static void run(RaceJobTimerType type, int count) throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(THREAD_COUNT, new CustomizableThreadFactory("benchmark-"));
+        RaceJobTimer timer = type == RaceJobTimerType.WHEEL
+                ? new TimingWheelRaceJobTimer(executor, Duration.ofMillis(10), 512)
+                : new ExecutorRaceJobTimer(executor);
+        long[] lags = new long[count];
+        CountDownLatch latch = new CountDownLatch(count);
+        System.gc();
+
+        long cpu = getProcessCpuTime();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            long delay = MIN_DELAY + ThreadLocalRandom.current().nextLong(SPREAD);
+            long expected = System.nanoTime() + delay;
+            timer.schedule(() -> {
+                lags[index] = System.nanoTime() - expected;
+                latch.countDown();
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+        long scheduleTime = System.nanoTime() - start;
+        latch.await();
+        cpu = getProcessCpuTime() - cpu;
+
+        timer.stop();
+        executor.shutdownNow();
+
+        Arrays.sort(lags);
+        System.out.printf("%-9s %9d %12d %10.2f %10.2f %10.2f %12d%n"
+                , type, count
+                , TimeUnit.NANOSECONDS.toMillis(scheduleTime)
+                , toMillis(lags[count / 2])
+                , toMillis(lags[(int) (count * 0.99)])
+                , toMillis(lags[count - 1])
+                , TimeUnit.NANOSECONDS.toMillis(cpu)
+        );
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static long getProcessCpuTime() {
+        return ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+}
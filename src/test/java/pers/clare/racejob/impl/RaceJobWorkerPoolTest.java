@@ -0,0 +1,61 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.vo.RaceJobNode;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaceJobWorkerPoolTest {
+
+    private static RaceJobWorkerPool pool() {
+        RaceJobWorkerPool pool = new RaceJobWorkerPool();
+        pool.update(List.of(
+                new RaceJobNode("a", 1, Set.of("x", "z"), 2),
+                new RaceJobNode("b", 1, Set.of("y", "z"), 3)
+        ));
+        return pool;
+    }
+
+    @Test
+    void groupKeysByServingNodes() {
+        RaceJobWorkerPool pool = pool();
+        assertEquals(Set.of(Set.of("x"), Set.of("y"), Set.of("z")), new HashSet<>(pool.getHandlerKeyGroups()));
+        assertEquals(2, pool.getRemainingCapacity(Set.of("x")));
+        assertEquals(3, pool.getRemainingCapacity(Set.of("y")));
+        assertEquals(5, pool.getRemainingCapacity(Set.of("z")));
+        assertEquals(0, pool.getRemainingCapacity(Set.of("missing")));
+    }
+
+    @Test
+    void selectWithinCapacity() {
+        RaceJobWorkerPool pool = pool();
+        assertEquals("a", pool.select("x"));
+        assertEquals("a", pool.select("x"));
+        assertNull(pool.select("x"), "a node is never sent more jobs than it reported free");
+        assertEquals(0, pool.getRemainingCapacity(Set.of("x")));
+        assertEquals(3, pool.getRemainingCapacity(Set.of("z")));
+
+        assertEquals("b", pool.select("z"));
+        assertEquals("b", pool.select("y"));
+        assertEquals("b", pool.select("y"));
+        assertNull(pool.select("y"));
+        assertNull(pool.select("z"));
+        assertNull(pool.select("missing"));
+    }
+
+    @Test
+    void heartbeatResetsCapacity() {
+        RaceJobWorkerPool pool = pool();
+        pool.select("x");
+        pool.select("x");
+        pool.update(List.of(new RaceJobNode("a", 1, Set.of("x", "z"), 2)));
+        assertNull(pool.select("x"), "the same heartbeat keeps the dispatched count");
+        pool.update(List.of(new RaceJobNode("a", 2, Set.of("x", "z"), 2)));
+        assertEquals("a", pool.select("x"));
+        assertNull(pool.select("y"), "a node that stopped heartbeating is dropped");
+    }
+}
@@ -0,0 +1,185 @@
+package pers.clare.racejob.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.RaceJobTimeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tasks run on the tick thread, so the order they are handed out is the order they run.
+ */
+class TimingWheelRaceJobTimerTest {
+    private TimingWheelRaceJobTimer timer;
+
+    /**
+     * One millisecond ticks, 4 buckets per level, the four levels cover 256 ticks.
+     */
+    private TimingWheelRaceJobTimer timer() {
+        timer = new TimingWheelRaceJobTimer(Runnable::run, Duration.ofMillis(1), 4);
+        return timer;
+    }
+
+    @AfterEach
+    void stop() {
+        if (timer != null) timer.stop();
+    }
+
+    private static boolean await(CountDownLatch latch) throws InterruptedException {
+        return latch.await(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void fireInDeadlineOrder() throws InterruptedException {
+        TimingWheelRaceJobTimer timer = timer();
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(8);
+        // scheduled latest first, spread over the first three levels
+        for (int i = 7; i >= 0; i--) {
+            int delay = i * 10;
+            timer.schedule(() -> {
+                fired.add(delay);
+                done.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(await(done));
+        assertEquals(List.of(0, 10, 20, 30, 40, 50, 60, 70), fired);
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void neverFireEarlyAcrossLevels() throws InterruptedException {
+        TimingWheelRaceJobTimer timer = timer();
+        // every level boundary and cascade point of 4 bucket levels, then random delays below 256 ticks
+        long[] boundaries = {0, 1, 3, 4, 5, 15, 16, 17, 63, 64, 65, 127, 128, 129, 255};
+        int count = 300;
+        CountDownLatch done = new CountDownLatch(count);
+        Map<Integer, Long> early = new ConcurrentHashMap<>();
+        Map<Integer, Long> lateness = new ConcurrentHashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            int id = i;
+            long delay = i < boundaries.length ? boundaries[i] : random.nextLong(0, 256);
+            long start = System.nanoTime();
+            timer.schedule(() -> {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed < TimeUnit.MILLISECONDS.toNanos(delay)) early.put(id, elapsed);
+                lateness.put(id, elapsed - TimeUnit.MILLISECONDS.toNanos(delay));
+                done.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+            if (i % 50 == 0) Thread.sleep(7);
+        }
+        assertTrue(await(done));
+        assertTrue(early.isEmpty(), () -> "fired early " + early);
+        long maxLate = lateness.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        assertTrue(maxLate < TimeUnit.MILLISECONDS.toNanos(200), "max lateness " + maxLate);
+    }
+
+    @Test
+    void fireBeyondTopLevel() throws InterruptedException {
+        TimingWheelRaceJobTimer timer = timer();
+        long[] delays = {257, 400, 700};
+        List<Long> fired = new CopyOnWriteArrayList<>();
+        Map<Long, Long> elapsed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(delays.length);
+        long start = System.nanoTime();
+        for (long delay : delays) {
+            timer.schedule(() -> {
+                fired.add(delay);
+                elapsed.put(delay, System.nanoTime() - start);
+                done.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(delays.length, timer.size());
+        assertTrue(await(done));
+        assertEquals(List.of(257L, 400L, 700L), fired);
+        for (long delay : delays) {
+            assertTrue(elapsed.get(delay) >= TimeUnit.MILLISECONDS.toNanos(delay), delay + " fired after " + elapsed.get(delay));
+        }
+        long took = TimeUnit.NANOSECONDS.toMillis(elapsed.get(700L));
+        assertTrue(took < 700 + 200, "parked schedules are placed again in time, took " + took);
+    }
+
+    @Test
+    void cancelBeforePlaced() throws InterruptedException {
+        TimingWheelRaceJobTimer timer = timer();
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        timer.schedule(() -> {
+            blocking.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+        assertTrue(await(blocking));
+
+        // the tick thread is blocked, so this schedule is still pending when it is cancelled
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        RaceJobTimeout timeout = timer.schedule(() -> cancelledRan.set(true), 0, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel(), "cancel only once");
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timer.size());
+
+        CountDownLatch next = new CountDownLatch(1);
+        timer.schedule(next::countDown, 5, TimeUnit.MILLISECONDS);
+        release.countDown();
+        assertTrue(await(next));
+        assertFalse(cancelledRan.get());
+    }
+
+    @Test
+    void cancelAfterPlaced() throws InterruptedException {
+        TimingWheelRaceJobTimer timer = timer();
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        List<RaceJobTimeout> timeouts = new ArrayList<>();
+        for (int delay : new int[]{30, 100, 400}) {
+            timeouts.add(timer.schedule(() -> cancelledRan.set(true), delay, TimeUnit.MILLISECONDS));
+        }
+        CountDownLatch fired = new CountDownLatch(1);
+        RaceJobTimeout kept = timer.schedule(fired::countDown, 20, TimeUnit.MILLISECONDS);
+        Thread.sleep(10);
+        for (RaceJobTimeout timeout : timeouts) {
+            assertTrue(timeout.cancel());
+        }
+        assertEquals(1, timer.size());
+        assertTrue(await(fired));
+        assertFalse(kept.cancel(), "a fired schedule cannot be cancelled");
+        Thread.sleep(500);
+        assertFalse(cancelledRan.get());
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void stopWithPendingSchedules() throws InterruptedException {
+        TimingWheelRaceJobTimer timer = timer();
+        AtomicBoolean ran = new AtomicBoolean();
+        for (int delay : new int[]{20, 50, 300}) {
+            timer.schedule(() -> ran.set(true), delay, TimeUnit.MILLISECONDS);
+        }
+        timer.stop();
+        assertThrows(RejectedExecutionException.class, () -> timer.schedule(() -> ran.set(true), 0, TimeUnit.MILLISECONDS));
+        Thread.sleep(400);
+        assertFalse(ran.get(), "pending schedules are dropped");
+    }
+
+    @Test
+    void rejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheelRaceJobTimer(Runnable::run, Duration.ZERO, 4));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheelRaceJobTimer(Runnable::run, Duration.ofMillis(1), 1));
+    }
+}
@@ -0,0 +1,131 @@
+package pers.clare.racejob.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSourceSchemaUtilTest {
+
+    @Test
+    void migrateOnce() throws SQLException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:migration;MODE=MYSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSourceSchemaUtil.init(dataSource);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("select count(*), max(version) from race_job_schema")) {
+                assertTrue(rs.next());
+                assertEquals(DataSourceSchemaUtil.LATEST_VERSION, rs.getInt(1));
+                assertEquals(DataSourceSchemaUtil.LATEST_VERSION, rs.getInt(2));
+            }
+            assertTrue(hasIndex(connection, "race_job_handler"));
+            assertTrue(hasIndex(connection, "race_job_depends"));
+            assertFalse(hasIndex(connection, "race_job_due"));
+            assertTrue(hasIndex(connection, "race_job_node", "race_job_node_heartbeat"));
+
+            statement.execute("drop table race_job_lease");
+        }
+
+        DataSourceSchemaUtil.init(dataSource);
+        try (Connection connection = dataSource.getConnection()) {
+            try (ResultSet rs = connection.getMetaData().getTables(null, null, "race_job_lease", null)) {
+                assertFalse(rs.next(), "a current schema is not migrated again");
+            }
+        }
+    }
+
+    @Test
+    void upgradeLegacyTable() throws SQLException {
+        DriverManagerDataSource dataSource = dataSource("migration_legacy");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table race_job (`instance` varchar(100) not null default '', `group` varchar(100) not null default ''"
+                              + ", `name` varchar(100) not null default '', `key` varchar(100) not null default '', `state` int not null default 0"
+                              + ", `next_time` bigint not null default 0, `enabled` boolean not null default true, `depends_key` varchar(100) not null default ''"
+                              + ", primary key (`instance`, `group`, `name`))");
+        }
+        DataSourceSchemaUtil.init(dataSource);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            assertEquals(DataSourceSchemaUtil.LATEST_VERSION, version(statement));
+            statement.executeQuery("select `revision`, `owner` from race_job").close();
+            assertTrue(hasIndex(connection, "race_job_revision"));
+        }
+    }
+
+    @Test
+    void failedMigrationIsNotRecorded() throws SQLException {
+        DriverManagerDataSource dataSource = dataSource("migration_failed");
+        DataSourceSchemaUtil.init(dataSource);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("delete from race_job_schema where version = " + DataSourceSchemaUtil.LATEST_VERSION);
+            statement.execute("drop table race_job_node");
+            statement.execute("create view race_job_node as select 1 x");
+        }
+        assertThrows(SQLException.class, () -> DataSourceSchemaUtil.init(dataSource));
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            assertEquals(DataSourceSchemaUtil.LATEST_VERSION - 1, version(statement));
+            try (ResultSet rs = statement.executeQuery("select count(*) from race_job_schema where version = 0")) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1), "the lock is released");
+            }
+        }
+    }
+
+    @Test
+    void concurrentMigratorsApplyOnce() throws Exception {
+        DriverManagerDataSource dataSource = dataSource("migration_concurrent");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    DataSourceSchemaUtil.init(dataSource);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*), min(version) from race_job_schema")) {
+            assertTrue(rs.next());
+            assertEquals(DataSourceSchemaUtil.LATEST_VERSION, rs.getInt(1));
+            assertEquals(1, rs.getInt(2));
+        }
+    }
+
+    private static DriverManagerDataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MYSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static int version(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("select max(version) from race_job_schema")) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    private static boolean hasIndex(Connection connection, String name) throws SQLException {
+        return hasIndex(connection, "race_job", name);
+    }
+
+    private static boolean hasIndex(Connection connection, String table, String name) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                if (name.equalsIgnoreCase(rs.getString("INDEX_NAME"))) return true;
+            }
+        }
+        return false;
+    }
+}
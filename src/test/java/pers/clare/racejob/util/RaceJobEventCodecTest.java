@@ -0,0 +1,88 @@
+package pers.clare.racejob.util;
+
+import org.junit.jupiter.api.Test;
+import pers.clare.racejob.constant.RaceEventType;
+import pers.clare.racejob.exception.RaceJobException;
+import pers.clare.racejob.vo.RaceJobEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaceJobEventCodecTest {
+    private static final int[] TYPES = {
+            RaceEventType.CHANGE, RaceEventType.COMPLETE, RaceEventType.EXECUTE, RaceEventType.RELOAD,
+            RaceEventType.ENABLE_GROUP, RaceEventType.DISABLE_GROUP, RaceEventType.REMOVE_GROUP,
+            RaceEventType.EXECUTE_GROUP, RaceEventType.DISPATCH, RaceEventType.RELEASE
+    };
+
+    private static final long[] TIMES = {
+            0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, 1L << 35, Long.MAX_VALUE, -1, Long.MIN_VALUE
+    };
+
+    @Test
+    void roundTripEveryType() {
+        List<RaceJobEvent> events = new ArrayList<>();
+        for (int type : TYPES) {
+            events.add(new RaceJobEvent(type, "group", "name" + type, 1700000000000L + type, type % 2 == 0 ? "node-1" : null));
+        }
+        assertEquals(events, RaceJobEventCodec.decode(RaceJobEventCodec.encode(events)));
+        for (RaceJobEvent event : events) {
+            assertEquals(Collections.singletonList(event), RaceJobEventCodec.decode(RaceJobEventCodec.encode(event)));
+            assertEquals(event, RaceJobEventCodec.decodeText(RaceJobEventCodec.encodeText(event)));
+        }
+    }
+
+    @Test
+    void roundTripVarintEdges() {
+        for (long time : TIMES) {
+            RaceJobEvent event = new RaceJobEvent(RaceEventType.COMPLETE, "g", "n", time);
+            assertEquals(event, RaceJobEventCodec.decode(RaceJobEventCodec.encode(event)).get(0), "time " + time);
+        }
+        RaceJobEvent negativeType = new RaceJobEvent(-1, "g", "n", 0);
+        assertEquals(negativeType, RaceJobEventCodec.decode(RaceJobEventCodec.encode(negativeType)).get(0));
+
+        assertEquals(2, RaceJobEventCodec.encode(Collections.emptyList()).length);
+        assertEquals(Collections.emptyList(), RaceJobEventCodec.decode(RaceJobEventCodec.encode(Collections.emptyList())));
+
+        List<RaceJobEvent> many = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            many.add(new RaceJobEvent(RaceEventType.CHANGE, "g", String.valueOf(i), i));
+        }
+        assertEquals(many, RaceJobEventCodec.decode(RaceJobEventCodec.encode(many)));
+    }
+
+    @Test
+    void roundTripStrings() {
+        char[] longName = new char[200];
+        Arrays.fill(longName, 'x');
+        RaceJobEvent[] events = {
+                new RaceJobEvent(RaceEventType.CHANGE, "", "", 0, ""),
+                new RaceJobEvent(RaceEventType.CHANGE, null, null, 0, null),
+                new RaceJobEvent(RaceEventType.EXECUTE, "群組", "排程😀", 5, "節點"),
+                new RaceJobEvent(RaceEventType.EXECUTE, "g", new String(longName), 5, "n")
+        };
+        for (RaceJobEvent event : events) {
+            assertEquals(event, RaceJobEventCodec.decode(RaceJobEventCodec.encode(event)).get(0));
+        }
+        assertEquals(events[2], RaceJobEventCodec.decodeText(RaceJobEventCodec.encodeText(events[2])));
+    }
+
+    @Test
+    void decodeVersionOneFrame() {
+        byte[] frame = {1, 1, 3, 1, 'g', 1, 'n', 5};
+        assertEquals(new RaceJobEvent(RaceEventType.EXECUTE, "g", "n", 5), RaceJobEventCodec.decode(frame).get(0));
+    }
+
+    @Test
+    void rejectInvalidFrames() {
+        byte[] frame = RaceJobEventCodec.encode(new RaceJobEvent(RaceEventType.CHANGE, "group", "name", 1));
+        assertThrows(RaceJobException.class, () -> RaceJobEventCodec.decode(Arrays.copyOf(frame, frame.length - 3)));
+        assertThrows(RaceJobException.class, () -> RaceJobEventCodec.decode(new byte[0]));
+        assertThrows(RaceJobException.class, () -> RaceJobEventCodec.decode(new byte[]{9, 0}));
+        assertThrows(RaceJobException.class, () -> RaceJobEventCodec.decodeText("1"));
+    }
+}